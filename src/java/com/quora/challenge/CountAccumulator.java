@@ -0,0 +1,116 @@
+package com.quora.challenge;
+
+import java.math.BigInteger;
+
+/**
+ * An overflow-safe accumulator for path counts.
+ * <p/>
+ * Counts are accumulated in a <code>long</code> for as long as they fit. An addition that would overflow spills the
+ * accumulated value into a {@link BigInteger}, so a {@link BigInteger} is only ever allocated once a count no longer
+ * fits in a <code>long</code>.
+ * <p/>
+ * Note that this class is not thread safe.
+ *
+ * @author mattt
+ */
+public final class CountAccumulator {
+
+    private long value;
+
+    // the part of the count that has spilled out of the long; null until the first overflow
+    private BigInteger spilled;
+
+    /**
+     * Adds the given value to the count.
+     *
+     * @param v
+     *            is the value to add.
+     */
+    public void add(final long v) {
+        final long sum = value + v;
+        // the sum overflowed if both operands have a sign different from the sum
+        if (((value ^ sum) & (v ^ sum)) < 0) {
+            spill(BigInteger.valueOf(value).add(BigInteger.valueOf(v)));
+            value = 0;
+        } else {
+            value = sum;
+        }
+    }
+
+    /**
+     * Adds the given value to the count.
+     *
+     * @param v
+     *            is the value to add.
+     */
+    public void add(final BigInteger v) {
+        if (v.bitLength() < 64) {
+            add(v.longValue());
+        } else {
+            spill(v);
+        }
+    }
+
+    /**
+     * Adds the count of the given accumulator to this count.
+     *
+     * @param accumulator
+     *            is the {@link CountAccumulator} to add.
+     */
+    public void add(final CountAccumulator accumulator) {
+        add(accumulator.value);
+        if (accumulator.spilled != null) {
+            spill(accumulator.spilled);
+        }
+    }
+
+    /**
+     * @return true if the count fits in a <code>long</code>.
+     */
+    public boolean fitsInLong() {
+        return spilled == null || toBigInteger().bitLength() < 64;
+    }
+
+    /**
+     * @return the count.
+     * @throws ArithmeticException
+     *             if the count does not fit in a <code>long</code>.
+     */
+    public long longValue() {
+        if (spilled == null) {
+            return value;
+        }
+        final BigInteger count = toBigInteger();
+        if (count.bitLength() >= 64) {
+            throw new ArithmeticException("The count " + count + " does not fit in a long");
+        }
+        return count.longValue();
+    }
+
+    /**
+     * @return the count.
+     */
+    public BigInteger toBigInteger() {
+        final BigInteger v = BigInteger.valueOf(value);
+        return spilled == null ? v : spilled.add(v);
+    }
+
+    /**
+     * Adds the given value to the spilled part of the count.
+     *
+     * @param v
+     *            is the value to add.
+     */
+    private void spill(final BigInteger v) {
+        spilled = spilled == null ? v : spilled.add(v);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return toBigInteger().toString();
+    }
+}
@@ -1,6 +1,12 @@
 package com.quora.challenge;
 
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.Lists;
 import com.quora.challenge.graph.Graph;
+import com.quora.challenge.graph.ham.SearchCounters;
 
 /**
  * Holds path generation statistics.
@@ -17,7 +23,11 @@ public final class PathStatistics<V> {
 
         private long elapsedTime; // in milliseconds
         private long depth;
-        private long pathCount;
+        private BigInteger pathCount = BigInteger.ZERO;
+        private SearchCounters counters = new SearchCounters();
+        private List<SearchCounters> workerCounters = Collections.emptyList();
+        private boolean complete = true;
+        private double exploredFraction = 1.0;
 
         public final PathStatistics<V> build() {
             if (graph == null)
@@ -31,10 +41,43 @@ public final class PathStatistics<V> {
         }
 
         public final Builder<V> count(final long count) {
+            this.pathCount = BigInteger.valueOf(count);
+            return this;
+        }
+
+        public final Builder<V> count(final BigInteger count) {
+            if (count == null)
+                throw new NullPointerException();
             this.pathCount = count;
             return this;
         }
 
+        public final Builder<V> counters(final SearchCounters counters) {
+            this.counters = counters.copy();
+            return this;
+        }
+
+        public final Builder<V> workerCounters(final List<SearchCounters> workerCounters) {
+            final List<SearchCounters> copies = Lists.newArrayList();
+            for (final SearchCounters c : workerCounters) {
+                copies.add(c.copy());
+            }
+            this.workerCounters = Collections.unmodifiableList(copies);
+            return this;
+        }
+
+        public final Builder<V> complete(final boolean complete) {
+            this.complete = complete;
+            return this;
+        }
+
+        public final Builder<V> exploredFraction(final double exploredFraction) {
+            if (exploredFraction < 0 || exploredFraction > 1)
+                throw new IllegalArgumentException("The explored fraction must be between 0 and 1");
+            this.exploredFraction = exploredFraction;
+            return this;
+        }
+
         public final Builder<V> graph(final Graph<V> graph) {
             this.graph = graph;
             return this;
@@ -47,8 +90,12 @@ public final class PathStatistics<V> {
     }
 
     private final long depth;
-    private final long pathCount;
+    private final BigInteger pathCount;
     private final long elapsedTime;
+    private final SearchCounters counters;
+    private final List<SearchCounters> workerCounters;
+    private final boolean complete;
+    private final double exploredFraction;
 
     private final Graph<V> graph;
 
@@ -56,6 +103,10 @@ public final class PathStatistics<V> {
         this.depth = builder.depth;
         this.pathCount = builder.pathCount;
         this.elapsedTime = builder.elapsedTime;
+        this.counters = builder.counters;
+        this.workerCounters = builder.workerCounters;
+        this.complete = builder.complete;
+        this.exploredFraction = builder.exploredFraction;
         this.graph = builder.graph;
     }
 
@@ -68,8 +119,20 @@ public final class PathStatistics<V> {
 
     /**
      * @return the number of paths
+     * @throws ArithmeticException
+     *             if the number of paths does not fit in a <code>long</code> (see {@link #getExactPathCount()}).
      */
     public long getPathCount() {
+        if (pathCount.bitLength() >= 64) {
+            throw new ArithmeticException("The path count " + pathCount + " does not fit in a long");
+        }
+        return pathCount.longValue();
+    }
+
+    /**
+     * @return the exact number of paths, however large
+     */
+    public BigInteger getExactPathCount() {
         return pathCount;
     }
 
@@ -80,6 +143,39 @@ public final class PathStatistics<V> {
         return elapsedTime;
     }
 
+    /**
+     * @return a copy of the search node statistics, totalled over all search tasks
+     */
+    public SearchCounters getCounters() {
+        return counters.copy();
+    }
+
+    /**
+     * @return the search node statistics of each search task
+     */
+    public List<SearchCounters> getWorkerCounters() {
+        final List<SearchCounters> copies = Lists.newArrayList();
+        for (final SearchCounters c : workerCounters) {
+            copies.add(c.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * @return true if the whole search space was explored, false if the search was stopped early, in which case the
+     *         path count only covers the part of the search space that was explored
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return the (estimated) fraction of the search space that was explored, 1.0 for a complete search
+     */
+    public double getExploredFraction() {
+        return exploredFraction;
+    }
+
     /**
      * @return the graph associated with these statistics
      */
@@ -99,9 +195,19 @@ public final class PathStatistics<V> {
         sb.append("\n");
         sb.append("Search depth: " + depth);
         sb.append("\n");
+        sb.append("Search nodes: " + counters.getNodes() + " (" + counters.getPrunes() + " pruned, "
+                + counters.getLeaves() + " leaves)");
+        sb.append("\n");
+        for (int i = 0; i < workerCounters.size(); i++) {
+            sb.append("  Worker " + i + ": " + workerCounters.get(i));
+            sb.append("\n");
+        }
         sb.append("Elapsed time: " + elapsedTime + " ms");
         sb.append("\n");
         sb.append(" Total paths: " + pathCount);
+        if (!complete) {
+            sb.append(" (incomplete, " + String.format("%.2f", exploredFraction * 100) + "% explored)");
+        }
         sb.append("\n=============");
         return sb.toString();
     }
@@ -0,0 +1,266 @@
+package com.quora.challenge;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Lists;
+import com.quora.challenge.cache.CacheStats;
+import com.quora.challenge.cache.ResultCache;
+import com.quora.challenge.command.InputGrid;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+
+/**
+ * A read only table of the path counts of small grids, memory mapped from a file written by the tablebase generator
+ * (see {@link com.quora.challenge.command.TablebaseGenerator}). Lookups are binary searches over the mapped file, so
+ * opening even a large table is cheap, and only the pages a lookup touches are read.
+ * <p/>
+ * The table is keyed by the canonical keys of {@link RoomGraphKeys}, packed into a <code>long</code> (see
+ * {@link #encode(String)}), so it serves as a {@link ResultCache} tier for a path counter keyed by
+ * {@link RoomGraphKeys#CANONICAL}. The statistics it returns hold just the path count, and the graph the key was made
+ * from rather than the graph looked up.
+ * <p/>
+ * The file format is a header of a magic number, a version and an entry count, followed by the entries in increasing
+ * key order, each a key and a path count. All values are big endian.
+ *
+ * @author mattt
+ */
+public final class PathTablebase implements ResultCache<Object, PathStatistics<Room>> {
+
+    private static final int MAGIC = 0x44505442; // "DPTB"
+    // version 1 packed the columns of a key into 4 bits, so its keys of grids over 15 columns wide were wrong
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 16;
+
+    /**
+     * The largest number of rooms (including rooms not owned) in a grid whose key can be packed into a long.
+     */
+    public static final int MAX_AREA = 36;
+
+    // the layout of a packed key: rows, cols, start and goal positions (6 bits each), then the room mask (36 bits)
+    private static final int ROWS_SHIFT = 54;
+    private static final int COLS_SHIFT = 48;
+    private static final long FIELD_MASK = 0x3F;
+    private static final int START_SHIFT = 42;
+    private static final int GOAL_SHIFT = 36;
+
+    private final ByteBuffer table;
+    private final int size;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param table
+     *            is the table, positioned after the header.
+     * @param size
+     *            is the number of entries of the table.
+     */
+    private PathTablebase(final ByteBuffer table, final int size) {
+        this.table = table;
+        this.size = size;
+    }
+
+    /**
+     * Opens a table, mapping it into memory.
+     *
+     * @param file
+     *            is the table file.
+     * @return the {@link PathTablebase}.
+     * @throws IOException
+     *             if the file can't be read or isn't a table.
+     */
+    public static PathTablebase open(final File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a path tablebase");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported tablebase version " + buffer.getInt(4) + " in " + file);
+            }
+            final long size = buffer.getLong(8);
+            if (size < 0 || HEADER_SIZE + size * ENTRY_SIZE != buffer.capacity()) {
+                throw new IOException("Truncated or corrupt tablebase " + file);
+            }
+            buffer.position(HEADER_SIZE);
+            // the mapping stays valid once the file is closed
+            return new PathTablebase(buffer.slice(), (int) size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes a table to the given file, replacing it.
+     *
+     * @param file
+     *            is the table file.
+     * @param counts
+     *            maps packed keys (see {@link #encode(String)}) to path counts.
+     * @throws IOException
+     *             if an error occurs while writing the file.
+     */
+    public static void write(final File file, final SortedMap<Long, Long> counts) throws IOException {
+        if ((long) counts.size() * ENTRY_SIZE > Integer.MAX_VALUE - HEADER_SIZE)
+            throw new IllegalArgumentException("The table is too large to be mapped");
+
+        final File temp = new File(file.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(counts.size());
+            for (final Map.Entry<Long, Long> entry : counts.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        } finally {
+            out.close();
+        }
+        // renaming over an existing file fails on some platforms
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    /**
+     * Looks up the path count of a packed key.
+     *
+     * @param key
+     *            is the packed key.
+     * @return the path count, or -1 if the key isn't in the table.
+     */
+    public long lookup(final long key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            // absolute reads don't move the position of the buffer, so lookups can run concurrently
+            final long middleKey = table.getLong(middle * ENTRY_SIZE);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return table.getLong(middle * ENTRY_SIZE + 8);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of entries of the table.
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.cache.ResultCache#get(java.lang.Object)
+     */
+    @Override
+    public PathStatistics<Room> get(final Object key) {
+        final long packed = key instanceof String ? encode((String) key) : -1;
+        final long count = packed < 0 ? -1 : lookup(packed);
+        if (count < 0) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new PathStatistics.Builder<Room>().count(count).graph(decode(packed)).build();
+    }
+
+    /**
+     * Does nothing, as the table is read only.
+     *
+     * @see com.quora.challenge.cache.ResultCache#put(java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public void put(final Object key, final PathStatistics<Room> value) {
+        // read only
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.cache.ResultCache#getStats()
+     */
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(hits.get(), misses.get(), 0, size, (long) size * ENTRY_SIZE);
+    }
+
+    /**
+     * Packs a canonical key (see {@link RoomGraphKeys#canonicalKey(Graph)}) into a <code>long</code>.
+     *
+     * @param canonicalKey
+     *            is the canonical key.
+     * @return the packed key, or -1 if the key isn't that of a grid of at most {@link #MAX_AREA} rooms.
+     */
+    public static long encode(final String canonicalKey) {
+        final String[] parts = canonicalKey.split("[x:]");
+        if (parts.length != 5) {
+            return -1;
+        }
+        final int rows = Integer.parseInt(parts[0]);
+        final int cols = Integer.parseInt(parts[1]);
+        if (rows * cols > MAX_AREA) {
+            return -1;
+        }
+        final long start = Long.parseLong(parts[2]);
+        final long goal = Long.parseLong(parts[3]);
+        final long mask = Long.parseLong(parts[4], 16);
+        return (long) rows << ROWS_SHIFT | (long) cols << COLS_SHIFT | start << START_SHIFT | goal << GOAL_SHIFT
+                | mask;
+    }
+
+    /**
+     * Builds a grid from a packed key.
+     *
+     * @param key
+     *            is the packed key.
+     * @return the room {@link Graph} of the grid, whose canonical key packs into the given key.
+     */
+    public static Graph<Room> decode(final long key) {
+        return RoomGraphFactory.generateRoomGraph(decodeGrid(key));
+    }
+
+    /**
+     * Builds a grid from a packed key. Every owned room of the grid has an owned neighbor, since the key only describes
+     * the rooms of a room graph.
+     *
+     * @param key
+     *            is the packed key.
+     * @return the {@link InputGrid}, whose room graph has a canonical key that packs into the given key.
+     */
+    public static InputGrid decodeGrid(final long key) {
+        final int rows = (int) (key >>> ROWS_SHIFT & FIELD_MASK);
+        final int cols = (int) (key >>> COLS_SHIFT & FIELD_MASK);
+        final int start = (int) (key >>> START_SHIFT & FIELD_MASK);
+        final int goal = (int) (key >>> GOAL_SHIFT & FIELD_MASK);
+
+        final List<String> grid = Lists.newArrayList();
+        for (int i = 0; i < rows * cols; i++) {
+            final boolean owned = (key & 1L << i) != 0;
+            grid.add(owned ? Room.Type.OWNED.getRoomId() : Room.Type.NOT_OWNED.getRoomId());
+        }
+        // the start room comes first, since the factory reads a start room after the goal room as both
+        grid.set(Math.min(start, goal), Room.Type.START.getRoomId());
+        grid.set(Math.max(start, goal), Room.Type.GOAL.getRoomId());
+        return new InputGrid(rows, cols, grid);
+    }
+}
@@ -0,0 +1,135 @@
+package com.quora.challenge;
+
+import java.util.Set;
+
+import com.google.common.base.Function;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+
+/**
+ * Obtains canonical keys for {@link Room} graphs, such that graphs with the same number of hamiltonian paths map to the
+ * same key.
+ * <p/>
+ * A room graph (see {@link RoomGraphFactory}) is determined by the locations of its rooms, since rooms are adjacent
+ * exactly when their locations are. The key of a graph describes its rooms within their bounding box, so rooms not
+ * owned around the grid don't matter. Rotating or mirroring a grid (8 symmetries), or swapping its start and goal rooms
+ * (a path read backwards), doesn't change its path count either; the key of a graph is the least key of all 16 of its
+ * variants.
+ *
+ * @author mattt
+ */
+public final class RoomGraphKeys {
+
+    /**
+     * A function mapping a room graph to its canonical key (see {@link #canonicalKey(Graph)}).
+     */
+    public static final Function<Graph<Room>, String> CANONICAL = new Function<Graph<Room>, String>() {
+        @Override
+        public String apply(final Graph<Room> graph) {
+            return canonicalKey(graph);
+        }
+    };
+
+    /**
+     * suppress default constructor
+     */
+    private RoomGraphKeys() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Obtains the canonical key of the given room graph.
+     *
+     * @param graph
+     *            is the room graph.
+     * @return the canonical key, of the form 'rows x cols : start : goal : rooms', where start and goal are the
+     *         positions of the start and goal rooms within the bounding box (row by row), and rooms is a bitmask of the
+     *         positions holding a room; or 'empty' if the start or goal room isn't part of the graph, in which case
+     *         there are no paths.
+     */
+    public static String canonicalKey(final Graph<Room> graph) {
+        if (graph == null)
+            throw new NullPointerException();
+
+        final Set<Room> rooms = graph.getGraph().getVerticies();
+        if (!rooms.contains(graph.getStart()) || !rooms.contains(graph.getGoal())) {
+            return "empty";
+        }
+
+        int minRow = Integer.MAX_VALUE;
+        int minCol = Integer.MAX_VALUE;
+        int maxRow = Integer.MIN_VALUE;
+        int maxCol = Integer.MIN_VALUE;
+        for (final Room room : rooms) {
+            minRow = Math.min(minRow, room.getLocation().getX());
+            maxRow = Math.max(maxRow, room.getLocation().getX());
+            minCol = Math.min(minCol, room.getLocation().getY());
+            maxCol = Math.max(maxCol, room.getLocation().getY());
+        }
+        final int rows = maxRow - minRow + 1;
+        final int cols = maxCol - minCol + 1;
+
+        final int[] roomRows = new int[rooms.size()];
+        final int[] roomCols = new int[rooms.size()];
+        int i = 0;
+        for (final Room room : rooms) {
+            roomRows[i] = room.getLocation().getX() - minRow;
+            roomCols[i] = room.getLocation().getY() - minCol;
+            i++;
+        }
+        final int startRow = graph.getStart().getLocation().getX() - minRow;
+        final int startCol = graph.getStart().getLocation().getY() - minCol;
+        final int goalRow = graph.getGoal().getLocation().getX() - minRow;
+        final int goalCol = graph.getGoal().getLocation().getY() - minCol;
+
+        String best = null;
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            final boolean transpose = symmetry >= 4;
+            final int keyRows = transpose ? cols : rows;
+            final int keyCols = transpose ? rows : cols;
+
+            final long[] mask = new long[(rows * cols + 63) / 64];
+            for (int r = 0; r < roomRows.length; r++) {
+                final int position = position(symmetry, roomRows[r], roomCols[r], rows, cols);
+                mask[position >>> 6] |= 1L << (position & 63);
+            }
+            final StringBuilder bits = new StringBuilder();
+            for (final long word : mask) {
+                bits.append(':').append(Long.toHexString(word));
+            }
+
+            final int start = position(symmetry, startRow, startCol, rows, cols);
+            final int goal = position(symmetry, goalRow, goalCol, rows, cols);
+            final String forward = keyRows + "x" + keyCols + ":" + start + ":" + goal + bits;
+            final String backward = keyRows + "x" + keyCols + ":" + goal + ":" + start + bits;
+            if (best == null || forward.compareTo(best) < 0) {
+                best = forward;
+            }
+            if (backward.compareTo(best) < 0) {
+                best = backward;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Maps a location of a grid through one of its 8 symmetries.
+     *
+     * @param symmetry
+     *            is the symmetry, between 0 and 7. Symmetries 4 to 7 transpose the grid.
+     * @param row
+     *            is the row of the location.
+     * @param col
+     *            is the column of the location.
+     * @param rows
+     *            is the number of rows of the grid.
+     * @param cols
+     *            is the number of columns of the grid.
+     * @return the position of the mapped location, row by row, within the mapped grid.
+     */
+    private static int position(final int symmetry, final int row, final int col, final int rows, final int cols) {
+        final int r = (symmetry & 1) == 0 ? row : rows - 1 - row;
+        final int c = (symmetry & 2) == 0 ? col : cols - 1 - col;
+        return symmetry < 4 ? r * cols + c : c * rows + r;
+    }
+}
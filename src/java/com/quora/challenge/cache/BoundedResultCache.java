@@ -0,0 +1,231 @@
+package com.quora.challenge.cache;
+
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Maps;
+
+/**
+ * An in memory {@link ResultCache} bounded by the number of results it holds, by their total weight, or both.
+ * <p/>
+ * Eviction is cost aware (the GreedyDual-Size policy): each result has a priority of its cost per unit of weight, on
+ * top of an inflation value that rises to the priority of every evicted result; the result with the least priority is
+ * evicted first. A result regains priority when it is looked up, so results that are cheap to recompute age out
+ * first, and expensive ones stay until they have long gone unused. With a constant cost, eviction is least recently
+ * used.
+ * 
+ * @author mattt
+ * @param <K>
+ *            is the key type
+ * @param <V>
+ *            is the result type
+ */
+public final class BoundedResultCache<K, V> implements ResultCache<K, V> {
+
+    public static class Builder<K, V> {
+
+        private long maximumSize = Long.MAX_VALUE;
+        private long maximumWeight = Long.MAX_VALUE;
+        private Function<? super V, ? extends Number> weigher = constant(1);
+        private Function<? super V, ? extends Number> cost = constant(1);
+
+        public final BoundedResultCache<K, V> build() {
+            return new BoundedResultCache<K, V>(this);
+        }
+
+        /**
+         * @param maximumSize
+         *            is the maximum number of results to cache.
+         */
+        public final Builder<K, V> maximumSize(final long maximumSize) {
+            if (maximumSize < 0)
+                throw new IllegalArgumentException("The maximum size must be >= 0");
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * @param maximumWeight
+         *            is the maximum total weight of the results to cache.
+         * @param weigher
+         *            obtains the weight of a result, which must be >= 0.
+         */
+        public final Builder<K, V> maximumWeight(final long maximumWeight,
+                final Function<? super V, ? extends Number> weigher) {
+            if (maximumWeight < 0)
+                throw new IllegalArgumentException("The maximum weight must be >= 0");
+            if (weigher == null)
+                throw new NullPointerException();
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * @param cost
+         *            obtains the cost of recomputing a result, such as the time it took, which must be >= 0.
+         */
+        public final Builder<K, V> cost(final Function<? super V, ? extends Number> cost) {
+            if (cost == null)
+                throw new NullPointerException();
+            this.cost = cost;
+            return this;
+        }
+    }
+
+    /**
+     * A cached result, ordered by priority, then by the order in which results were last used.
+     */
+    private static final class Entry<K, V> implements Comparable<Entry<K, V>> {
+        private final K key;
+        private final V value;
+        private final long weight;
+        private final double cost;
+
+        private double priority;
+        private long sequence;
+
+        Entry(final K key, final V value, final long weight, final double cost) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.cost = cost;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        @Override
+        public int compareTo(final Entry<K, V> other) {
+            if (priority != other.priority) {
+                return priority < other.priority ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    private final long maximumSize;
+    private final long maximumWeight;
+    private final Function<? super V, ? extends Number> weigher;
+    private final Function<? super V, ? extends Number> cost;
+
+    // the cached results, by key and by priority; guarded by this
+    private final Map<K, Entry<K, V>> entries = Maps.newHashMap();
+    private final TreeSet<Entry<K, V>> evictionOrder = new TreeSet<Entry<K, V>>();
+
+    // guarded by this
+    private double inflation;
+    private long sequence;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private BoundedResultCache(final Builder<K, V> builder) {
+        this.maximumSize = builder.maximumSize;
+        this.maximumWeight = builder.maximumWeight;
+        this.weigher = builder.weigher;
+        this.cost = builder.cost;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.cache.ResultCache#get(java.lang.Object)
+     */
+    @Override
+    public synchronized V get(final K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        final Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        evictionOrder.remove(entry);
+        prioritize(entry);
+        evictionOrder.add(entry);
+        return entry.value;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.cache.ResultCache#put(java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public synchronized void put(final K key, final V value) {
+        if (key == null)
+            throw new NullPointerException();
+        if (value == null)
+            throw new NullPointerException();
+
+        final long entryWeight = weigher.apply(value).longValue();
+        final double entryCost = cost.apply(value).doubleValue();
+        if (entryWeight < 0)
+            throw new IllegalArgumentException("The weight of a result must be >= 0");
+        if (entryCost < 0)
+            throw new IllegalArgumentException("The cost of a result must be >= 0");
+
+        remove(entries.get(key));
+        if (maximumSize == 0 || entryWeight > maximumWeight) {
+            return;
+        }
+
+        final Entry<K, V> entry = new Entry<K, V>(key, value, entryWeight, entryCost);
+        prioritize(entry);
+        entries.put(key, entry);
+        evictionOrder.add(entry);
+        weight += entryWeight;
+
+        while (entries.size() > maximumSize || weight > maximumWeight) {
+            final Entry<K, V> evicted = evictionOrder.first();
+            inflation = evicted.priority;
+            remove(evicted);
+            evictions++;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.cache.ResultCache#getStats()
+     */
+    @Override
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, entries.size(), weight);
+    }
+
+    /**
+     * Sets the priority of an entry that has just been used. The entry must not be in the eviction order.
+     */
+    private void prioritize(final Entry<K, V> entry) {
+        entry.priority = inflation + entry.cost / Math.max(entry.weight, 1);
+        entry.sequence = sequence++;
+    }
+
+    /**
+     * Removes an entry from the cache, if there is one.
+     */
+    private void remove(final Entry<K, V> entry) {
+        if (entry == null) {
+            return;
+        }
+        entries.remove(entry.key);
+        evictionOrder.remove(entry);
+        weight -= entry.weight;
+    }
+
+    /**
+     * @return a function mapping any value to the given constant.
+     */
+    private static <T> Function<T, Long> constant(final long constant) {
+        return new Function<T, Long>() {
+            @Override
+            public Long apply(final T value) {
+                return constant;
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package com.quora.challenge.cache;
+
+/**
+ * A snapshot of the statistics of a {@link ResultCache}.
+ * 
+ * @author mattt
+ */
+public final class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long size;
+    private final long weight;
+
+    /**
+     * @param hits
+     *            is the number of lookups that found a result.
+     * @param misses
+     *            is the number of lookups that found no result.
+     * @param evictions
+     *            is the number of results evicted to make room for others.
+     * @param size
+     *            is the number of results cached.
+     * @param weight
+     *            is the total weight of the results cached.
+     */
+    public CacheStats(final long hits, final long misses, final long evictions, final long size, final long weight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.weight = weight;
+    }
+
+    /**
+     * @return the number of lookups that found a result.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that found no result.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the fraction of lookups that found a result, or 0 if there were no lookups.
+     */
+    public double getHitRate() {
+        final long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return the number of results evicted to make room for others.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of results cached.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the total weight of the results cached.
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("[hits=%d, misses=%d, hit rate=%.3f, evictions=%d, size=%d, weight=%d]", hits, misses,
+                getHitRate(), evictions, size, weight);
+    }
+}
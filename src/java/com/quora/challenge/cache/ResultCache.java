@@ -0,0 +1,41 @@
+package com.quora.challenge.cache;
+
+/**
+ * A cache of computed results, such as path counts. Implementations are thread safe.
+ * <p/>
+ * Caches can be combined into tiers (see {@link TieredResultCache}), so a small fast cache can sit in front of a
+ * larger or slower one.
+ * 
+ * @author mattt
+ * @param <K>
+ *            is the key type
+ * @param <V>
+ *            is the result type
+ */
+public interface ResultCache<K, V> {
+
+    /**
+     * Obtains the result cached for the given key. Each call counts as a hit or a miss in the cache statistics.
+     * 
+     * @param key
+     *            is the key of the result.
+     * @return the cached result, or null if there is none.
+     */
+    V get(K key);
+
+    /**
+     * Caches a result, replacing any result already cached for its key. The cache may evict other results to make
+     * room for it, or decline to cache it at all (a read only cache, say, or a result larger than the whole cache).
+     * 
+     * @param key
+     *            is the key of the result.
+     * @param value
+     *            is the result.
+     */
+    void put(K key, V value);
+
+    /**
+     * @return a snapshot of the statistics of this cache.
+     */
+    CacheStats getStats();
+}
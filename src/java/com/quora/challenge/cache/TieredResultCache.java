@@ -0,0 +1,93 @@
+package com.quora.challenge.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link ResultCache} made of two tiers: a near cache, such as a small in memory cache, in front of a far cache,
+ * such as a larger or on disk one. Lookups try the near tier first, and results found in the far tier are copied into
+ * the near tier. Results are put in both tiers. More tiers are made by nesting tiered caches.
+ * 
+ * @author mattt
+ * @param <K>
+ *            is the key type
+ * @param <V>
+ *            is the result type
+ */
+public final class TieredResultCache<K, V> implements ResultCache<K, V> {
+
+    private final ResultCache<K, V> near;
+    private final ResultCache<K, V> far;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param near
+     *            is the tier looked up first.
+     * @param far
+     *            is the tier looked up when the near tier misses.
+     */
+    public TieredResultCache(final ResultCache<K, V> near, final ResultCache<K, V> far) {
+        if (near == null)
+            throw new NullPointerException();
+        if (far == null)
+            throw new NullPointerException();
+        this.near = near;
+        this.far = far;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.cache.ResultCache#get(java.lang.Object)
+     */
+    @Override
+    public V get(final K key) {
+        V value = near.get(key);
+        if (value == null) {
+            value = far.get(key);
+            if (value != null) {
+                near.put(key, value);
+            }
+        }
+        (value == null ? misses : hits).incrementAndGet();
+        return value;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.cache.ResultCache#put(java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public void put(final K key, final V value) {
+        near.put(key, value);
+        far.put(key, value);
+    }
+
+    /**
+     * Obtains the statistics of this cache: hits and misses count lookups of either tier, while evictions, size and
+     * weight are totalled over both tiers (see {@link #getNear()} and {@link #getFar()} for each tier).
+     * 
+     * @see com.quora.challenge.cache.ResultCache#getStats()
+     */
+    @Override
+    public CacheStats getStats() {
+        final CacheStats nearStats = near.getStats();
+        final CacheStats farStats = far.getStats();
+        return new CacheStats(hits.get(), misses.get(), nearStats.getEvictions() + farStats.getEvictions(),
+                nearStats.getSize() + farStats.getSize(), nearStats.getWeight() + farStats.getWeight());
+    }
+
+    /**
+     * @return the tier looked up first.
+     */
+    public ResultCache<K, V> getNear() {
+        return near;
+    }
+
+    /**
+     * @return the tier looked up when the near tier misses.
+     */
+    public ResultCache<K, V> getFar() {
+        return far;
+    }
+}
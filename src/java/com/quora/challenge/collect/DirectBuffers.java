@@ -0,0 +1,77 @@
+package com.quora.challenge.collect;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees the memory of direct {@link ByteBuffer}s at once, rather than once the buffers are garbage collected.
+ * <p/>
+ * There is no public API to do so: the memory is freed by the cleaner of the buffer, reached through
+ * <code>sun.misc.Unsafe.invokeCleaner</code> on Java 9 and later, and through the <code>cleaner()</code> method of the
+ * buffer before. If neither is available, freeing a buffer does nothing, and its memory is freed once it is garbage
+ * collected, as usual.
+ *
+ * @author mattt
+ */
+final class DirectBuffers {
+
+    // Unsafe.invokeCleaner(ByteBuffer) and the Unsafe instance on Java 9 and later, or null
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Exception e) {
+            // before Java 9, the cleaner of each buffer is used instead
+            invokeCleaner = null;
+            unsafe = null;
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    /**
+     * suppress default constructor
+     */
+    private DirectBuffers() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Frees the memory of a direct buffer allocated by {@link ByteBuffer#allocateDirect(int)}. The buffer, and any
+     * view of it, must not be used afterwards.
+     *
+     * @param buffer
+     *            is the buffer to free.
+     */
+    static void free(final ByteBuffer buffer) {
+        if (buffer == null)
+            throw new NullPointerException();
+        if (!buffer.isDirect()) {
+            return;
+        }
+
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else {
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            // the memory is freed once the buffer is garbage collected
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.quora.challenge.collect;
+
+/**
+ * A map from <code>long</code> keys to <code>long</code> values, without boxing either, for the large tables of the
+ * counting engines (memoized counts, frontier states and the like).
+ *
+ * @author mattt
+ */
+public interface LongLongMap {
+
+    /**
+     * @param key
+     *            is the key.
+     * @param defaultValue
+     *            is the value to return if the key isn't in the map.
+     * @return the value of the key, or the default value if the key isn't in the map.
+     */
+    long get(long key, long defaultValue);
+
+    /**
+     * @param key
+     *            is the key.
+     * @return true if the key is in the map.
+     */
+    boolean containsKey(long key);
+
+    /**
+     * Maps a key to a value, replacing any value it had.
+     *
+     * @param key
+     *            is the key.
+     * @param value
+     *            is the value.
+     */
+    void put(long key, long value);
+
+    /**
+     * Adds to the value of a key, which is 0 if the key isn't in the map.
+     *
+     * @param key
+     *            is the key.
+     * @param delta
+     *            is the amount to add.
+     * @return the new value of the key.
+     */
+    long addTo(long key, long delta);
+
+    /**
+     * @return the number of keys in the map.
+     */
+    long size();
+
+    /**
+     * @return true if the map holds no keys.
+     */
+    boolean isEmpty();
+
+    /**
+     * Removes every key from the map.
+     */
+    void clear();
+
+    /**
+     * Releases the memory held by the map now, rather than once the map is garbage collected. The map must not be used
+     * afterwards; freeing it again does nothing.
+     */
+    void free();
+
+    /**
+     * @return a {@link Cursor} over the entries of the map, in no particular order. The map must not be changed while
+     *         the cursor is in use.
+     */
+    Cursor cursor();
+
+    /**
+     * A cursor over the entries of a {@link LongLongMap}, which starts before the first entry.
+     *
+     * @author mattt
+     */
+    interface Cursor {
+
+        /**
+         * Moves to the next entry.
+         *
+         * @return true if there is a next entry, false if the cursor is past the last entry.
+         */
+        boolean next();
+
+        /**
+         * @return the key of the current entry.
+         */
+        long key();
+
+        /**
+         * @return the value of the current entry.
+         */
+        long value();
+    }
+}
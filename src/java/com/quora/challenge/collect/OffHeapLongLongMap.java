@@ -0,0 +1,364 @@
+package com.quora.challenge.collect;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link LongLongMap} whose entries are held outside the java heap, in direct {@link ByteBuffer}s, so a map of
+ * hundreds of millions of entries neither fills the heap nor slows the garbage collector down.
+ * <p/>
+ * The map is an open-addressing hash table with linear probing: each entry is a key and a value, 16 bytes in all, in
+ * the slot its hashed key points at, or the first free slot after it. The key 0 marks a free slot, so the entry of key
+ * 0 itself is held apart. The table doubles once three quarters of its slots are used. A direct buffer holds at most
+ * 2 GB, so the table is split into segments of 2^26 slots (1 GB) each.
+ * <p/>
+ * The memory of the table is freed once the map is garbage collected, or as soon as {@link #free()} is called; the
+ * segments of the table are freed as soon as it grows out of them. Note that the JVM limits the total memory of direct
+ * buffers (see '-XX:MaxDirectMemorySize'), by default to the maximum heap size, and collects the memory of buffers
+ * only as the heap fills up, so a program that drops many maps should free them.
+ * <p/>
+ * Note that this class is not thread safe.
+ *
+ * @author mattt
+ */
+public final class OffHeapLongLongMap implements LongLongMap {
+
+    // the size of an entry, in bytes: its key, then its value
+    private static final int ENTRY_SHIFT = 4;
+    // the number of slots of a segment, as a power of 2
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final int MIN_CAPACITY = 16;
+
+    // the key of a free slot
+    private static final long FREE = 0;
+
+    private ByteBuffer[] segments;
+    private long capacity;
+    private long mask;
+    private long threshold;
+    private long size;
+
+    // the entry of the key of a free slot
+    private boolean hasFreeKey;
+    private long freeKeyValue;
+
+    /**
+     * Creates an empty map.
+     */
+    public OffHeapLongLongMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * @param expectedSize
+     *            is the number of entries the map is expected to hold; the map holds them without growing. Must be >=
+     *            0.
+     */
+    public OffHeapLongLongMap(final long expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("The expected size must be >= 0");
+
+        long initialCapacity = MIN_CAPACITY;
+        while (initialCapacity / 4 * 3 < expectedSize) {
+            initialCapacity <<= 1;
+        }
+        allocate(initialCapacity);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.collect.LongLongMap#get(long, long)
+     */
+    @Override
+    public long get(final long key, final long defaultValue) {
+        if (key == FREE) {
+            return hasFreeKey ? freeKeyValue : defaultValue;
+        }
+        final long slot = find(key);
+        return keyAt(slot) == key ? valueAt(slot) : defaultValue;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.collect.LongLongMap#containsKey(long)
+     */
+    @Override
+    public boolean containsKey(final long key) {
+        return key == FREE ? hasFreeKey : keyAt(find(key)) == key;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.collect.LongLongMap#put(long, long)
+     */
+    @Override
+    public void put(final long key, final long value) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return;
+        }
+        final long slot = find(key);
+        if (keyAt(slot) == key) {
+            setValueAt(slot, value);
+        } else {
+            insert(slot, key, value);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.collect.LongLongMap#addTo(long, long)
+     */
+    @Override
+    public long addTo(final long key, final long delta) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue += delta;
+            return freeKeyValue;
+        }
+        final long slot = find(key);
+        if (keyAt(slot) == key) {
+            final long value = valueAt(slot) + delta;
+            setValueAt(slot, value);
+            return value;
+        }
+        insert(slot, key, delta);
+        return delta;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.collect.LongLongMap#size()
+     */
+    @Override
+    public long size() {
+        return size;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.collect.LongLongMap#isEmpty()
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.collect.LongLongMap#clear()
+     */
+    @Override
+    public void clear() {
+        for (final ByteBuffer segment : segments) {
+            for (int offset = 0; offset < segment.capacity(); offset += 8) {
+                segment.putLong(offset, 0);
+            }
+        }
+        size = 0;
+        hasFreeKey = false;
+        freeKeyValue = 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.collect.LongLongMap#free()
+     */
+    @Override
+    public void free() {
+        if (segments == null) {
+            return;
+        }
+        final ByteBuffer[] freed = segments;
+        // a map used once freed fails on the missing segments, rather than reading freed memory
+        segments = null;
+        capacity = 0;
+        size = 0;
+        for (final ByteBuffer segment : freed) {
+            DirectBuffers.free(segment);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.collect.LongLongMap#cursor()
+     */
+    @Override
+    public Cursor cursor() {
+        return new SlotCursor();
+    }
+
+    /**
+     * @return the memory held by the table outside the heap, in bytes.
+     */
+    public long getMemoryUsage() {
+        return capacity << ENTRY_SHIFT;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "[size=" + size + ", capacity=" + capacity + ", memory=" + getMemoryUsage() + " bytes]";
+    }
+
+    /**
+     * Allocates an empty table of the given number of slots.
+     */
+    private void allocate(final long newCapacity) {
+        final int segmentCount = (int) ((newCapacity + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            final long slots = Math.min(newCapacity - ((long) i << SEGMENT_SHIFT), 1L << SEGMENT_SHIFT);
+            // direct buffers are zeroed, so every slot starts free
+            segments[i] = ByteBuffer.allocateDirect((int) (slots << ENTRY_SHIFT)).order(ByteOrder.nativeOrder());
+        }
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        threshold = newCapacity / 4 * 3;
+    }
+
+    /**
+     * Fills a free slot, growing the table if it is too full.
+     */
+    private void insert(final long slot, final long key, final long value) {
+        setKeyAt(slot, key);
+        setValueAt(slot, value);
+        if (++size > threshold) {
+            grow();
+        }
+    }
+
+    /**
+     * Doubles the table, and moves every entry into it.
+     */
+    private void grow() {
+        final ByteBuffer[] oldSegments = segments;
+        final long oldCapacity = capacity;
+        allocate(oldCapacity << 1);
+        for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            final ByteBuffer segment = oldSegments[(int) (oldSlot >>> SEGMENT_SHIFT)];
+            final int offset = (int) (oldSlot & SEGMENT_MASK) << ENTRY_SHIFT;
+            final long key = segment.getLong(offset);
+            if (key != FREE) {
+                final long slot = find(key);
+                setKeyAt(slot, key);
+                setValueAt(slot, segment.getLong(offset + 8));
+            }
+        }
+        for (final ByteBuffer segment : oldSegments) {
+            DirectBuffers.free(segment);
+        }
+    }
+
+    /**
+     * @return the slot of the given key, or the free slot it would be put in.
+     */
+    private long find(final long key) {
+        long slot = hash(key) & mask;
+        long k;
+        while ((k = keyAt(slot)) != key && k != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private long keyAt(final long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)].getLong((int) (slot & SEGMENT_MASK) << ENTRY_SHIFT);
+    }
+
+    private long valueAt(final long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)].getLong(((int) (slot & SEGMENT_MASK) << ENTRY_SHIFT) + 8);
+    }
+
+    private void setKeyAt(final long slot, final long key) {
+        segments[(int) (slot >>> SEGMENT_SHIFT)].putLong((int) (slot & SEGMENT_MASK) << ENTRY_SHIFT, key);
+    }
+
+    private void setValueAt(final long slot, final long value) {
+        segments[(int) (slot >>> SEGMENT_SHIFT)].putLong(((int) (slot & SEGMENT_MASK) << ENTRY_SHIFT) + 8, value);
+    }
+
+    /**
+     * @return the hash of a key, spreading keys that differ in few bits across the table (the finalizer of
+     *         MurmurHash3).
+     */
+    private static long hash(final long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * A cursor over the entry of the key of a free slot, if any, then the used slots in order.
+     *
+     * @author mattt
+     */
+    private final class SlotCursor implements Cursor {
+
+        // the current slot, or -1 for the entry of the key of a free slot
+        private long slot = -2;
+
+        /*
+         * (non-Javadoc)
+         * @see com.quora.challenge.collect.LongLongMap.Cursor#next()
+         */
+        @Override
+        public boolean next() {
+            if (slot == -2 && hasFreeKey) {
+                slot = -1;
+                return true;
+            }
+            if (slot == -2) {
+                slot = -1;
+            }
+            while (++slot < capacity) {
+                if (keyAt(slot) != FREE) {
+                    return true;
+                }
+            }
+            slot = capacity;
+            return false;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see com.quora.challenge.collect.LongLongMap.Cursor#key()
+         */
+        @Override
+        public long key() {
+            check();
+            return slot < 0 ? FREE : keyAt(slot);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see com.quora.challenge.collect.LongLongMap.Cursor#value()
+         */
+        @Override
+        public long value() {
+            check();
+            return slot < 0 ? freeKeyValue : valueAt(slot);
+        }
+
+        private void check() {
+            if (slot == -2 || slot >= capacity)
+                throw new NoSuchElementException();
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.quora.challenge.command;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Sets;
+import com.quora.challenge.PathStatistics;
+import com.quora.challenge.RoomGraphFactory;
+import com.quora.challenge.RoomGraphKeys;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+import com.quora.challenge.graph.ham.CancellationToken;
+import com.quora.challenge.graph.ham.HamiltonianPathCounter;
+import com.quora.challenge.graph.ham.HamiltonianPathCounterFactory;
+import com.quora.challenge.graph.ham.ProgressListener;
+import com.quora.challenge.graph.ham.SearchOptions;
+import com.quora.challenge.graph.ham.SearchProgress;
+
+/**
+ * A long running duct counting service, listening for requests on a local (loopback) socket.
+ * <p/>
+ * The service keeps a single {@link HamiltonianPathCounter} warm, whose result cache is kept across requests and
+ * connections, so repeated requests (or requests for a reflection of a grid already counted) are answered without a
+ * search. Requests are queued on a bounded pool: at most a given
+ * number of counts run at once (each count already uses every processor), and at most a given number wait for their
+ * turn. A request that doesn't fit in the queue is turned away.
+ * <p/>
+ * The protocol is line based. A client sends one request per line, of the form 'id cols rows room1 room2 ... roomN',
+ * where the id is any token chosen by the client, and 'QUIT' to close the connection. A client may send requests
+ * without waiting for earlier ones to be answered. Each response line begins with the id of its request:
+ * <ul>
+ * <li>'id PROGRESS percent paths' is sent periodically while the count runs.</li>
+ * <li>'id OK count millis cached|computed' ends a successful request.</li>
+ * <li>'id BUSY' ends a request turned away because the queue is full.</li>
+ * <li>'id ERROR message' ends a request that failed.</li>
+ * </ul>
+ *
+ * @author mattt
+ */
+public class CountService implements Closeable {
+
+    private static final int DEFAULT_PORT = 7390;
+    private static final int DEFAULT_CONCURRENCY = 1;
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final long DEFAULT_PROGRESS_INTERVAL = 1000;
+
+    // a small grid counted on start up, so the search code is compiled before the first request arrives
+    private static final String WARMUP_GRID = "5 5 2 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 3";
+
+    private final HamiltonianPathCounter<Room> pathCounter = HamiltonianPathCounterFactory
+            .getInstance(RoomGraphKeys.CANONICAL);
+
+    private final ThreadPoolExecutor requestPool;
+    private final ExecutorService connectionPool = Executors.newCachedThreadPool();
+    private final long progressInterval;
+
+    // cancels the counts still running when the service is closed
+    private final CancellationToken cancellation = new CancellationToken();
+
+    private final Set<Socket> connections = Sets.newHashSet();
+    private ServerSocket serverSocket;
+
+    /**
+     * @param concurrency
+     *            is the maximum number of counts to run at once. Must be >= 1.
+     * @param queueCapacity
+     *            is the maximum number of requests waiting for a count to finish. Must be >= 1.
+     * @param progressInterval
+     *            is the interval between two progress lines of a running count, in milliseconds. Must be >= 1.
+     */
+    public CountService(final int concurrency, final int queueCapacity, final long progressInterval) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("The concurrency must be >= 1");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("The queue capacity must be >= 1");
+        }
+        if (progressInterval <= 0) {
+            throw new IllegalArgumentException("The progress interval must be >= 1");
+        }
+
+        this.requestPool = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity));
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * @param args
+     * @throws IOException
+     *             if the service can't listen on the requested port.
+     */
+    public static void main(String[] args) throws IOException {
+
+        int port = DEFAULT_PORT;
+        int concurrency = DEFAULT_CONCURRENCY;
+        int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+        for (int i = 0; i < args.length; i++) {
+            if ("--port".equals(args[i]) && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if ("--concurrency".equals(args[i]) && i + 1 < args.length) {
+                concurrency = Integer.parseInt(args[++i]);
+            } else if ("--queue".equals(args[i]) && i + 1 < args.length) {
+                queueCapacity = Integer.parseInt(args[++i]);
+            } else if ("--progress".equals(args[i]) && i + 1 < args.length) {
+                progressInterval = Long.parseLong(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+        }
+
+        final CountService service = new CountService(concurrency, queueCapacity, progressInterval);
+        service.start(port);
+        System.out.println("Listening for duct counting requests on port " + service.getPort() + " ...");
+    }
+
+    /**
+     * Starts listening for requests on the loopback interface.
+     *
+     * @param port
+     *            is the port to listen on, or 0 for any free port (see {@link #getPort()}).
+     * @throws IOException
+     *             if the service can't listen on the given port.
+     */
+    public synchronized void start(final int port) throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("The service has already been started");
+        }
+        serverSocket = new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+
+        requestPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                pathCounter.findPaths(RoomGraphFactory.generateRoomGraph(InputGridUtil.asInputGrid(WARMUP_GRID)),
+                        new SearchOptions.Builder().cancellation(cancellation).build());
+            }
+        });
+
+        final ServerSocket listener = serverSocket;
+        final Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        final Socket socket = listener.accept();
+                        synchronized (CountService.this) {
+                            connections.add(socket);
+                        }
+                        connectionPool.execute(new Connection(socket));
+                    }
+                } catch (IOException e) {
+                    // the service has been closed
+                }
+            }
+        }, "count-service-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * @return the port the service listens on.
+     */
+    public synchronized int getPort() {
+        if (serverSocket == null) {
+            throw new IllegalStateException("The service has not been started");
+        }
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops the service: stops listening, cancels the running counts and closes every connection.
+     */
+    @Override
+    public synchronized void close() {
+        cancellation.cancel();
+        requestPool.shutdownNow();
+        connectionPool.shutdownNow();
+        closeQuietly(serverSocket);
+        for (final Socket socket : connections) {
+            closeQuietly(socket);
+        }
+        connections.clear();
+    }
+
+    /**
+     * Normalizes the spacing of a grid, trimming it and separating its fields by single spaces, which is the form
+     * {@link InputGridUtil#asInputGrid(String)} parses.
+     *
+     * @param grid
+     *            is the grid, in the form 'cols rows room1 room2 ... roomN', its fields separated by any whitespace.
+     * @return the normalized grid.
+     */
+    static String normalize(final String grid) {
+        final String[] fields = grid.trim().split("\\s+");
+        final StringBuilder sb = new StringBuilder();
+        for (final String field : fields) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(field);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param socket
+     *            is the socket to close, possibly null.
+     */
+    private static void closeQuietly(final Socket socket) {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    /**
+     * @param socket
+     *            is the server socket to close, possibly null.
+     */
+    private static void closeQuietly(final ServerSocket socket) {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    /**
+     * Reads the requests of a single client connection, and writes back their responses.
+     *
+     * @author mattt
+     */
+    private final class Connection implements Runnable {
+
+        private final Socket socket;
+        private Writer writer;
+
+        /**
+         * @param socket
+         *            is the socket of the connection.
+         */
+        Connection(final Socket socket) {
+            this.socket = socket;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            try {
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        "US-ASCII"));
+                synchronized (this) {
+                    writer = new OutputStreamWriter(socket.getOutputStream(), "US-ASCII");
+                }
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.length() == 0) {
+                        continue;
+                    }
+                    if ("QUIT".equals(line)) {
+                        break;
+                    }
+
+                    final int split = line.indexOf(' ');
+                    if (split < 0) {
+                        respond(line, "ERROR missing grid");
+                        continue;
+                    }
+                    final String id = line.substring(0, split);
+                    try {
+                        requestPool.execute(new Request(this, id, normalize(line.substring(split + 1))));
+                    } catch (RejectedExecutionException e) {
+                        respond(id, "BUSY");
+                    }
+                }
+            } catch (SocketException e) {
+                // the connection or the service has been closed
+            } catch (IOException e) {
+                // the client has gone away
+            } finally {
+                synchronized (CountService.this) {
+                    connections.remove(socket);
+                }
+                closeQuietly(socket);
+            }
+        }
+
+        /**
+         * Writes a response line. A response to a client that has gone away is dropped.
+         *
+         * @param id
+         *            is the id of the request being responded to.
+         * @param response
+         *            is the response.
+         */
+        synchronized void respond(final String id, final String response) {
+            try {
+                writer.write(id + " " + response + "\n");
+                writer.flush();
+            } catch (IOException e) {
+                // the client has gone away; a computed count is still cached
+            }
+        }
+    }
+
+    /**
+     * Counts the paths of the grid of a single request.
+     *
+     * @author mattt
+     */
+    private final class Request implements Runnable {
+
+        private final Connection connection;
+        private final String id;
+        private final String grid;
+
+        /**
+         * @param connection
+         *            is the connection the request was received on.
+         * @param id
+         *            is the id of the request.
+         * @param grid
+         *            is the grid to count, its fields separated by single spaces (see
+         *            {@link CountService#normalize(String)}).
+         */
+        Request(final Connection connection, final String id, final String grid) {
+            this.connection = connection;
+            this.id = id;
+            this.grid = grid;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            final long startTime = System.currentTimeMillis();
+            final Graph<Room> roomGraph;
+            try {
+                final InputGrid inputGrid = InputGridUtil.asInputGrid(grid);
+                if (inputGrid.getRows() <= 0 || inputGrid.getCols() <= 0
+                        || inputGrid.getRows() * inputGrid.getCols() != inputGrid.getGrid().size()) {
+                    connection.respond(id, "ERROR the grid must hold cols * rows rooms");
+                    return;
+                }
+                roomGraph = RoomGraphFactory.generateRoomGraph(inputGrid);
+            } catch (RuntimeException e) {
+                connection.respond(id, "ERROR malformed grid: " + e.getMessage());
+                return;
+            }
+
+            final PathStatistics<Room> statistics;
+            try {
+                statistics = pathCounter.findPaths(roomGraph, new SearchOptions.Builder().cancellation(cancellation)
+                        .progress(new ProgressListener() {
+                            @Override
+                            public void progress(final SearchProgress progress) {
+                                connection.respond(id, String.format(Locale.ROOT, "PROGRESS %.2f %s",
+                                        progress.getExploredFraction() * 100, progress.getPartialCount()));
+                            }
+                        }, progressInterval).build());
+            } catch (RuntimeException e) {
+                connection.respond(id, "ERROR count failed: " + e);
+                return;
+            } catch (Error e) {
+                connection.respond(id, "ERROR count failed: " + e);
+                throw e;
+            }
+
+            if (!statistics.isComplete()) {
+                connection.respond(id, "ERROR cancelled");
+                return;
+            }
+            // statistics of another graph come from the counter's cache, or from a count another request started
+            connection.respond(id, "OK " + statistics.getExactPathCount() + " "
+                    + (System.currentTimeMillis() - startTime) + (statistics.getGraph() == roomGraph ? " computed"
+                            : " cached"));
+        }
+    }
+}
@@ -1,41 +1,245 @@
 package com.quora.challenge.command;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 
 import com.quora.challenge.PathStatistics;
+import com.quora.challenge.PathTablebase;
 import com.quora.challenge.RoomGraphFactory;
+import com.quora.challenge.RoomGraphKeys;
+import com.quora.challenge.cache.ResultCache;
+import com.quora.challenge.cache.TieredResultCache;
 import com.quora.challenge.domain.Room;
+import com.quora.challenge.export.RoomPathWriter;
 import com.quora.challenge.graph.Graph;
 import com.quora.challenge.graph.ham.HamiltonianPathCounter;
 import com.quora.challenge.graph.ham.HamiltonianPathCounterFactory;
+import com.quora.challenge.graph.ham.PathApproximation;
+import com.quora.challenge.graph.ham.PathCountMatrix;
+import com.quora.challenge.graph.ham.PathDiagram;
+import com.quora.challenge.graph.ham.PathEnumeration;
+import com.quora.challenge.graph.ham.ProgressListener;
+import com.quora.challenge.graph.ham.SearchCheckpoint;
+import com.quora.challenge.graph.ham.SearchEstimate;
+import com.quora.challenge.graph.ham.SearchOptions;
+import com.quora.challenge.graph.ham.SearchProgress;
 
 /**
  * Entry point for the duct counter.
+ * <p/>
+ * By default the count runs within this process. Passing '--workers N' shards the count across N local worker processes
+ * (see {@link ShardCoordinator}), optionally with '--prefix-steps K' to control the size of each unit of work and
+ * '--max-attempts M' to control how often a failed unit is retried, and '--unit-timeout SECONDS' to control how long
+ * a worker may take on a single unit before it is restarted. Passing '--export FILE' writes every path to the given
+ * file in a compact binary form (see {@link RoomPathWriter}) instead of only counting them.
+ * <p/>
+ * Passing '--checkpoint FILE' periodically writes the progress of the count to the given file (see
+ * {@link SearchCheckpoint}), every 60 seconds unless '--checkpoint-interval SECONDS' is given. Adding '--resume' picks
+ * the count up from that checkpoint, if it exists, rather than starting over. Passing '--progress SECONDS' prints the
+ * progress of the count to stderr at the given interval. Passing '--estimate MILLIS' only estimates the cost and result
+ * of the count (see {@link SearchEstimate}), spending the given time on it. Passing '--approximate ERROR' approximates
+ * the count by sampling (see {@link PathApproximation}) until the given relative error is reached, or for at most
+ * '--approximate-budget SECONDS' (60 by default). Passing '--tablebase FILE' looks the grid up in a table of
+ * precomputed counts (see {@link PathTablebase}) before searching. Passing '--path-limit K' stops the count once K
+ * paths have been found (see {@link SearchOptions#getPathLimit()}), so '--path-limit 1' checks whether the grid has a
+ * path at all. Passing '--all-pairs' counts the paths between every pair of rooms instead (see
+ * {@link PathCountMatrix}), ignoring the start and goal rooms of the grid. Passing '--zdd' builds a decision diagram of
+ * every path (see {@link PathDiagram}) and counts the paths from it.
  * 
  * @author mattt
  */
 public class DuctPathCounter {
 
+    private static final int DEFAULT_PREFIX_STEPS = 6;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_CHECKPOINT_INTERVAL_SECONDS = 60;
+    private static final long DEFAULT_APPROXIMATION_BUDGET_SECONDS = 60;
+
     /**
      * @param args
      * @throws IOException
      *             if an error occurs while reading grid input.
+     * @throws InterruptedException
+     *             if interrupted while waiting for worker processes.
      */
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        int workers = 0;
+        int prefixSteps = DEFAULT_PREFIX_STEPS;
+        int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        long unitTimeout = ShardCoordinator.DEFAULT_UNIT_TIMEOUT_MILLIS / 1000;
+        File exportFile = null;
+        File checkpointFile = null;
+        long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL_SECONDS;
+        boolean resume = false;
+        long progressInterval = 0;
+        long estimateBudget = -1;
+        double approximationError = 0;
+        long approximationBudget = DEFAULT_APPROXIMATION_BUDGET_SECONDS;
+        File tablebaseFile = null;
+        boolean allPairs = false;
+        boolean diagram = false;
+        long pathLimit = 0;
+        for (int i = 0; i < args.length; i++) {
+            if ("--workers".equals(args[i]) && i + 1 < args.length) {
+                workers = Integer.parseInt(args[++i]);
+            } else if ("--prefix-steps".equals(args[i]) && i + 1 < args.length) {
+                prefixSteps = Integer.parseInt(args[++i]);
+            } else if ("--max-attempts".equals(args[i]) && i + 1 < args.length) {
+                maxAttempts = Integer.parseInt(args[++i]);
+            } else if ("--unit-timeout".equals(args[i]) && i + 1 < args.length) {
+                unitTimeout = Long.parseLong(args[++i]);
+            } else if ("--export".equals(args[i]) && i + 1 < args.length) {
+                exportFile = new File(args[++i]);
+            } else if ("--checkpoint".equals(args[i]) && i + 1 < args.length) {
+                checkpointFile = new File(args[++i]);
+            } else if ("--checkpoint-interval".equals(args[i]) && i + 1 < args.length) {
+                checkpointInterval = Long.parseLong(args[++i]);
+            } else if ("--progress".equals(args[i]) && i + 1 < args.length) {
+                progressInterval = Long.parseLong(args[++i]);
+            } else if ("--estimate".equals(args[i]) && i + 1 < args.length) {
+                estimateBudget = Long.parseLong(args[++i]);
+            } else if ("--approximate".equals(args[i]) && i + 1 < args.length) {
+                approximationError = Double.parseDouble(args[++i]);
+            } else if ("--approximate-budget".equals(args[i]) && i + 1 < args.length) {
+                approximationBudget = Long.parseLong(args[++i]);
+            } else if ("--tablebase".equals(args[i]) && i + 1 < args.length) {
+                tablebaseFile = new File(args[++i]);
+            } else if ("--path-limit".equals(args[i]) && i + 1 < args.length) {
+                pathLimit = Long.parseLong(args[++i]);
+            } else if ("--resume".equals(args[i])) {
+                resume = true;
+            } else if ("--all-pairs".equals(args[i])) {
+                allPairs = true;
+            } else if ("--zdd".equals(args[i])) {
+                diagram = true;
+            } else {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+        }
+        if (resume && checkpointFile == null) {
+            throw new IllegalArgumentException("--resume requires --checkpoint FILE");
+        }
 
         final BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
         System.out.println("Enter a grid in the form 'cols rows room1 room2 ... roomN' :");
         final String input = in.readLine();
 
+        if (workers > 0) {
+            System.out.println("Finding paths for input '" + input + "' using " + workers + " workers ...");
+            System.out.println();
+            System.out.println(new ShardCoordinator(workers, prefixSteps, maxAttempts, unitTimeout * 1000)
+                    .countPaths(input));
+            return;
+        }
+
         final Graph<Room> roomGraph = RoomGraphFactory.generateRoomGraph(InputGridUtil.asInputGrid(input));
-        final HamiltonianPathCounter<Room> pathCounter = HamiltonianPathCounterFactory.getInstance();
+        if (diagram) {
+            System.out.println("Building the path diagram for input '" + input + "' ...");
+            System.out.println();
+            System.out.println(PathDiagram.build(roomGraph));
+            return;
+        }
+
+        ResultCache<Object, PathStatistics<Room>> resultCache = HamiltonianPathCounter.newResultCache();
+        if (tablebaseFile != null) {
+            resultCache = new TieredResultCache<Object, PathStatistics<Room>>(resultCache, PathTablebase
+                    .open(tablebaseFile));
+        }
+        final HamiltonianPathCounter<Room> pathCounter = HamiltonianPathCounterFactory.getInstance(
+                RoomGraphKeys.CANONICAL, resultCache);
+
+        if (estimateBudget >= 0) {
+            System.out.println("Estimating paths for input '" + input + "' ...");
+            System.out.println();
+            System.out.println(pathCounter.estimateSearch(roomGraph, estimateBudget));
+            return;
+        }
+
+        if (allPairs) {
+            System.out.println("Finding paths between every pair of rooms for input '" + input + "' ...");
+            System.out.println();
+            System.out.println(pathCounter.countPathsByPair(roomGraph));
+            return;
+        }
+
+        if (approximationError > 0) {
+            System.out.println("Approximating paths for input '" + input + "' ...");
+            System.out.println();
+            System.out.println(pathCounter.approximatePaths(roomGraph, approximationError,
+                    approximationBudget * 1000));
+            return;
+        }
+
+        if (exportFile != null) {
+            System.out.println("Exporting paths for input '" + input + "' to " + exportFile + " ...");
+            System.out.println();
+            System.out.println(exportPaths(pathCounter, roomGraph, exportFile));
+            return;
+        }
+
+        final SearchOptions.Builder options = new SearchOptions.Builder();
+        if (pathLimit > 0) {
+            options.pathLimit(pathLimit);
+        }
+        if (checkpointFile != null) {
+            options.checkpoint(checkpointFile).checkpointInterval(checkpointInterval * 1000);
+            if (resume && checkpointFile.exists()) {
+                final SearchCheckpoint checkpoint = SearchCheckpoint.read(checkpointFile);
+                System.out.println("Resuming from checkpoint " + checkpointFile + " " + checkpoint + " ...");
+                options.resumeFrom(checkpoint);
+            }
+        }
+
+        if (progressInterval > 0) {
+            options.progress(new ProgressListener() {
+                @Override
+                public void progress(final SearchProgress progress) {
+                    System.err.println(progress);
+                }
+            }, progressInterval * 1000);
+        }
 
         System.out.println("Finding paths for input '" + input + "' ...");
         System.out.println();
-        final PathStatistics<Room> statistics = pathCounter.findPaths(roomGraph);
-        System.out.println(statistics.getPathCount());
+        final PathStatistics<Room> statistics = pathCounter.findPaths(roomGraph, options.build());
+        if (pathLimit > 0 && !statistics.isComplete()) {
+            System.out.print("at least ");
+        }
+        System.out.println(statistics.getExactPathCount());
     }
 
+    /**
+     * Writes every hamiltonian path of the given graph to the given file.
+     * 
+     * @param pathCounter
+     *            is the path counter to enumerate paths with.
+     * @param roomGraph
+     *            is the graph to enumerate paths for.
+     * @param exportFile
+     *            is the file to write the paths to.
+     * @return the number of paths written.
+     * @throws IOException
+     *             if an error occurs while writing the paths.
+     */
+    private static long exportPaths(final HamiltonianPathCounter<Room> pathCounter, final Graph<Room> roomGraph,
+            final File exportFile) throws IOException {
+        final PathEnumeration<Room> enumeration = pathCounter.enumeratePaths(roomGraph);
+        try {
+            final RoomPathWriter writer = new RoomPathWriter(exportFile, enumeration.getVertices(),
+                    roomGraph.getStart());
+            try {
+                while (enumeration.hasNext()) {
+                    writer.write(enumeration.next());
+                }
+            } finally {
+                writer.close();
+            }
+            return writer.getPathCount();
+        } finally {
+            enumeration.close();
+        }
+    }
 }
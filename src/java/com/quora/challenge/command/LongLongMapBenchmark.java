@@ -0,0 +1,128 @@
+package com.quora.challenge.command;
+
+import java.util.Map;
+import java.util.Random;
+
+import com.google.common.collect.Maps;
+import com.quora.challenge.collect.OffHeapLongLongMap;
+
+/**
+ * Entry point for the map benchmark, which compares an {@link OffHeapLongLongMap} with a
+ * <code>HashMap&lt;Long, Long&gt;</code> on the workload of a table of frontier states: adding counts to random keys,
+ * some of them repeated, then looking every key up.
+ * <p/>
+ * The benchmark adds '--entries N' counts (10000000 by default) to keys drawn from '--keys N' distinct keys (half as
+ * many by default) with the seed given by '--seed S' (0 by default), over '--rounds N' rounds (3 by default, the first
+ * letting the JIT compile both maps). Each round reports the time taken and the heap used by each map.
+ *
+ * @author mattt
+ */
+public class LongLongMapBenchmark {
+
+    private static final int DEFAULT_ENTRIES = 10000000;
+    private static final int DEFAULT_ROUNDS = 3;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+
+        int entries = DEFAULT_ENTRIES;
+        int keys = -1;
+        int rounds = DEFAULT_ROUNDS;
+        long seed = 0;
+        for (int i = 0; i < args.length; i++) {
+            if ("--entries".equals(args[i]) && i + 1 < args.length) {
+                entries = Integer.parseInt(args[++i]);
+            } else if ("--keys".equals(args[i]) && i + 1 < args.length) {
+                keys = Integer.parseInt(args[++i]);
+            } else if ("--rounds".equals(args[i]) && i + 1 < args.length) {
+                rounds = Integer.parseInt(args[++i]);
+            } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+        }
+        if (keys < 0) {
+            keys = Math.max(entries / 2, 1);
+        }
+
+        // the keys are drawn up front, so both maps see the same workload and drawing isn't timed
+        final Random random = new Random(seed);
+        final long[] workload = new long[entries];
+        final long[] distinct = new long[keys];
+        for (int i = 0; i < keys; i++) {
+            distinct[i] = random.nextLong();
+        }
+        for (int i = 0; i < entries; i++) {
+            workload[i] = distinct[random.nextInt(keys)];
+        }
+
+        for (int round = 1; round <= rounds; round++) {
+            System.out.println("Round " + round + ":");
+            System.out.println("  HashMap<Long, Long>  " + runHashMap(workload));
+            System.out.println("  OffHeapLongLongMap   " + runOffHeap(workload));
+        }
+    }
+
+    /**
+     * @return a description of the time taken and heap used.
+     */
+    private static String runHashMap(final long[] workload) {
+        final long heapBefore = usedHeap();
+        final long startTime = System.nanoTime();
+        final Map<Long, Long> map = Maps.newHashMap();
+        for (final long key : workload) {
+            final Long count = map.get(key);
+            map.put(key, count == null ? 1 : count + 1);
+        }
+        long checksum = 0;
+        for (final long key : workload) {
+            checksum += map.get(key);
+        }
+        final long elapsedNanos = System.nanoTime() - startTime;
+        // measured while the map is still in use
+        final long heap = usedHeap() - heapBefore;
+        return describe(map.size(), elapsedNanos, heap, 0, checksum);
+    }
+
+    /**
+     * @return a description of the time taken and memory used.
+     */
+    private static String runOffHeap(final long[] workload) {
+        final long heapBefore = usedHeap();
+        final long startTime = System.nanoTime();
+        final OffHeapLongLongMap map = new OffHeapLongLongMap();
+        for (final long key : workload) {
+            map.addTo(key, 1);
+        }
+        long checksum = 0;
+        for (final long key : workload) {
+            checksum += map.get(key, 0);
+        }
+        final long elapsedNanos = System.nanoTime() - startTime;
+        final long heap = usedHeap() - heapBefore;
+        final String description = describe(map.size(), elapsedNanos, heap, map.getMemoryUsage(), checksum);
+        map.free();
+        return description;
+    }
+
+    private static String describe(final long size, final long elapsedNanos, final long heap, final long offHeap,
+            final long checksum) {
+        // garbage collected during the run can leave less heap in use than before it
+        return size + " keys in " + elapsedNanos / 1000000 + " ms, heap " + Math.max(heap, 0) / (1024 * 1024)
+                + " MB, off heap " + offHeap / (1024 * 1024) + " MB (checksum " + checksum + ")";
+    }
+
+    /**
+     * @return the heap in use once garbage has been collected, in bytes.
+     */
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,81 @@
+package com.quora.challenge.command;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+
+import com.quora.challenge.RoomGraphFactory;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.ham.PathDiagram;
+import com.quora.challenge.graph.ham.UniformPathSampler;
+
+/**
+ * Entry point for the path sampling benchmark, which measures how fast uniformly random paths are drawn from a grid
+ * (see {@link UniformPathSampler}).
+ * <p/>
+ * The benchmark builds the diagram of the paths of the grid read from stdin, then draws '--samples N' paths (100000
+ * by default) with the seed given by '--seed S' (0 by default), after '--warmup N' paths (10000 by default) drawn to
+ * let the JIT compile the sampler. Passing '--print' also prints each sampled path.
+ *
+ * @author mattt
+ */
+public class PathSampleBenchmark {
+
+    private static final int DEFAULT_SAMPLES = 100000;
+    private static final int DEFAULT_WARMUP = 10000;
+
+    /**
+     * @param args
+     * @throws IOException
+     *             if an error occurs while reading grid input.
+     */
+    public static void main(String[] args) throws IOException {
+
+        int samples = DEFAULT_SAMPLES;
+        int warmup = DEFAULT_WARMUP;
+        long seed = 0;
+        boolean print = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("--samples".equals(args[i]) && i + 1 < args.length) {
+                samples = Integer.parseInt(args[++i]);
+            } else if ("--warmup".equals(args[i]) && i + 1 < args.length) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if ("--print".equals(args[i])) {
+                print = true;
+            } else {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+        }
+
+        final BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        System.out.println("Enter a grid in the form 'cols rows room1 room2 ... roomN' :");
+        final String input = in.readLine();
+
+        final PathDiagram<Room> diagram = PathDiagram.build(RoomGraphFactory.generateRoomGraph(InputGridUtil
+                .asInputGrid(input)));
+        System.out.println("Built the path diagram " + diagram);
+
+        final UniformPathSampler<Room> sampler = new UniformPathSampler<Room>(diagram, seed);
+        long checksum = 0;
+        for (int i = 0; i < warmup; i++) {
+            checksum += sampler.next().get(1).hashCode();
+        }
+
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < samples; i++) {
+            final List<Room> path = sampler.next();
+            // keeps the samples from being optimized away
+            checksum += path.get(1).hashCode();
+            if (print) {
+                System.out.println(path);
+            }
+        }
+        final long elapsedNanos = System.nanoTime() - startTime;
+
+        System.out.println("Drew " + samples + " paths in " + elapsedNanos / 1000000 + " ms ("
+                + (long) (samples * 1e9 / Math.max(elapsedNanos, 1)) + " paths/s, checksum " + checksum + ")");
+    }
+}
@@ -0,0 +1,393 @@
+package com.quora.challenge.command;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.collect.Lists;
+import com.quora.challenge.CountAccumulator;
+import com.quora.challenge.RoomGraphFactory;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+import com.quora.challenge.graph.ham.HamiltonianPathCounterFactory;
+
+/**
+ * Counts the hamiltonian paths of a grid by sharding the search across a number of local worker processes.
+ * <p/>
+ * The coordinator enumerates the path prefixes of the grid up to a given number of steps from the start room, then
+ * hands each prefix to a {@link ShardWorker} process as a {@link WorkUnit} over the process' standard input and output.
+ * The partial counts reported by the workers are summed. A worker that exits, misbehaves or doesn't answer within the
+ * unit timeout is killed and restarted, and the unit it was working on is retried (up to a maximum number of attempts).
+ *
+ * @author mattt
+ */
+public class ShardCoordinator {
+
+    // how often an idle worker slot checks whether all units have completed
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    /**
+     * The default time a worker has to answer for a single unit, in milliseconds.
+     */
+    public static final long DEFAULT_UNIT_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    private final int workers;
+    private final int prefixSteps;
+    private final int maxAttempts;
+    private final long unitTimeout;
+    private final Class<?> workerClass;
+    private final String[] workerArgs;
+
+    /**
+     * @param workers
+     *            is the number of worker processes to run. Must be >= 1.
+     * @param prefixSteps
+     *            is the number of steps from the start room each work unit prefix extends. Must be >= 0.
+     * @param maxAttempts
+     *            is the maximum number of times a single work unit is attempted before the count fails. Must be >= 1.
+     */
+    public ShardCoordinator(final int workers, final int prefixSteps, final int maxAttempts) {
+        this(workers, prefixSteps, maxAttempts, DEFAULT_UNIT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param workers
+     *            is the number of worker processes to run. Must be >= 1.
+     * @param prefixSteps
+     *            is the number of steps from the start room each work unit prefix extends. Must be >= 0.
+     * @param maxAttempts
+     *            is the maximum number of times a single work unit is attempted before the count fails. Must be >= 1.
+     * @param unitTimeout
+     *            is the time a worker has to answer for a single unit before it is killed and the unit retried, in
+     *            milliseconds. Must be >= 1.
+     */
+    public ShardCoordinator(final int workers, final int prefixSteps, final int maxAttempts, final long unitTimeout) {
+        this(workers, prefixSteps, maxAttempts, unitTimeout, ShardWorker.class);
+    }
+
+    /**
+     * @param workers
+     *            is the number of worker processes to run. Must be >= 1.
+     * @param prefixSteps
+     *            is the number of steps from the start room each work unit prefix extends. Must be >= 0.
+     * @param maxAttempts
+     *            is the maximum number of times a single work unit is attempted before the count fails. Must be >= 1.
+     * @param unitTimeout
+     *            is the time a worker has to answer for a single unit, in milliseconds. Must be >= 1.
+     * @param workerClass
+     *            is the main class of the worker processes.
+     * @param workerArgs
+     *            is the arguments of the worker processes.
+     */
+    ShardCoordinator(final int workers, final int prefixSteps, final int maxAttempts, final long unitTimeout,
+            final Class<?> workerClass, final String... workerArgs) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("The number of workers must be >= 1");
+        }
+        if (prefixSteps < 0) {
+            throw new IllegalArgumentException("The number of prefix steps must be >= 0");
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("The maximum number of attempts must be >= 1");
+        }
+        if (unitTimeout <= 0) {
+            throw new IllegalArgumentException("The unit timeout must be >= 1");
+        }
+        if (workerClass == null)
+            throw new NullPointerException();
+
+        this.workers = workers;
+        this.prefixSteps = prefixSteps;
+        this.maxAttempts = maxAttempts;
+        this.unitTimeout = unitTimeout;
+        this.workerClass = workerClass;
+        this.workerArgs = workerArgs.clone();
+    }
+
+    /**
+     * Counts the hamiltonian paths of the given grid.
+     *
+     * @param input
+     *            is the grid, in the form 'cols rows room1 room2 ... roomN'.
+     * @return the number of hamiltonian paths in the grid.
+     * @throws IOException
+     *             if a work unit could not be completed within the maximum number of attempts.
+     * @throws InterruptedException
+     *             if interrupted while waiting for the workers to complete.
+     */
+    public BigInteger countPaths(final String input) throws IOException, InterruptedException {
+        if (input == null)
+            throw new NullPointerException();
+
+        // the grid is passed to the workers as a single line
+        final String gridLine = input.replaceAll("\\\n", "").trim();
+        final Graph<Room> roomGraph = RoomGraphFactory.generateRoomGraph(InputGridUtil.asInputGrid(gridLine));
+        final List<List<Room>> prefixes = HamiltonianPathCounterFactory.<Room> getInstance().findPathPrefixes(
+                roomGraph, prefixSteps);
+
+        final BlockingQueue<WorkUnit> pending = new LinkedBlockingQueue<WorkUnit>();
+        for (int i = 0; i < prefixes.size(); i++) {
+            pending.add(WorkUnit.forPrefix(i, prefixes.get(i)));
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(prefixes.size());
+        final CountAccumulator pathCount = new CountAccumulator();
+        final AtomicReference<IOException> failure = new AtomicReference<IOException>();
+
+        // kills workers that take too long to answer
+        final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+        final ExecutorService executorService = Executors.newFixedThreadPool(workers);
+        try {
+            try {
+                for (int i = 0; i < workers; i++) {
+                    executorService.execute(new WorkerSlot(gridLine, pending, remaining, pathCount, failure,
+                            watchdog));
+                }
+            } finally {
+                executorService.shutdown();
+            }
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+        } finally {
+            watchdog.shutdownNow();
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        synchronized (pathCount) {
+            return pathCount.toBigInteger();
+        }
+    }
+
+    /**
+     * Starts a new worker process.
+     *
+     * @return the started process.
+     * @throws IOException
+     *             if the process could not be started.
+     */
+    private Process startWorker() throws IOException {
+        final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        final List<String> command = Lists.newArrayList(java, "-cp", System.getProperty("java.class.path"),
+                workerClass.getName());
+        command.addAll(Arrays.asList(workerArgs));
+        final Process process = new ProcessBuilder(command).start();
+
+        // the worker only writes to stderr when something goes wrong; pass it along so the pipe never fills up.
+        final Thread errorDrain = new Thread(new StreamDrain(process.getErrorStream(), System.err),
+                "shard-worker-stderr");
+        errorDrain.setDaemon(true);
+        errorDrain.start();
+        return process;
+    }
+
+    /**
+     * Feeds work units to a single worker process, restarting the process if it fails.
+     *
+     * @author mattt
+     */
+    private final class WorkerSlot implements Runnable {
+
+        private final String gridLine;
+        private final BlockingQueue<WorkUnit> pending;
+        private final AtomicInteger remaining;
+        private final CountAccumulator pathCount;
+        private final AtomicReference<IOException> failure;
+        private final ScheduledExecutorService watchdog;
+
+        private Process process;
+        private Writer writer;
+        private BufferedReader reader;
+
+        /**
+         * @param gridLine
+         *            is the grid being counted.
+         * @param pending
+         *            is the queue of pending work units, shared among slots.
+         * @param remaining
+         *            is the number of units that have not yet completed.
+         * @param pathCount
+         *            is the number of hamiltonian paths reported thus far, guarded by its own lock.
+         * @param failure
+         *            holds the failure that ended the count, if any.
+         * @param watchdog
+         *            kills workers that don't answer within the unit timeout.
+         */
+        WorkerSlot(final String gridLine, final BlockingQueue<WorkUnit> pending, final AtomicInteger remaining,
+                final CountAccumulator pathCount, final AtomicReference<IOException> failure,
+                final ScheduledExecutorService watchdog) {
+            this.gridLine = gridLine;
+            this.pending = pending;
+            this.remaining = remaining;
+            this.pathCount = pathCount;
+            this.failure = failure;
+            this.watchdog = watchdog;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (remaining.get() > 0 && failure.get() == null) {
+                    final WorkUnit unit = pending.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (unit == null) {
+                        continue;
+                    }
+
+                    try {
+                        final long count = process(unit);
+                        synchronized (pathCount) {
+                            pathCount.add(count);
+                        }
+                        remaining.decrementAndGet();
+                    } catch (IOException e) {
+                        stopWorker();
+                        if (unit.getAttempts() + 1 >= maxAttempts) {
+                            failure.compareAndSet(null, new IOException("Work unit " + unit + " failed after "
+                                    + maxAttempts + " attempts: " + e.getMessage()));
+                        } else {
+                            pending.add(unit.retry());
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stopWorker();
+            }
+        }
+
+        /**
+         * Hands the given unit to the worker process, starting the process if necessary.
+         *
+         * @param unit
+         *            is the unit to process.
+         * @return the number of paths reported for the unit.
+         * @throws IOException
+         *             if the worker failed, timed out or returned a malformed response.
+         */
+        private long process(final WorkUnit unit) throws IOException {
+            if (process == null) {
+                process = startWorker();
+                writer = new OutputStreamWriter(process.getOutputStream());
+                reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+                writer.write(gridLine);
+                writer.write('\n');
+            }
+
+            writer.write(unit.toLine());
+            writer.write('\n');
+            writer.flush();
+
+            // a worker that hangs is killed, which ends the read
+            final Process current = process;
+            final AtomicBoolean timedOut = new AtomicBoolean();
+            final ScheduledFuture<?> timeout = watchdog.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    timedOut.set(true);
+                    current.destroy();
+                }
+            }, unitTimeout, TimeUnit.MILLISECONDS);
+            String response;
+            try {
+                response = reader.readLine();
+            } catch (IOException e) {
+                response = null;
+                if (!timedOut.get()) {
+                    throw e;
+                }
+            } finally {
+                timeout.cancel(false);
+            }
+            if (timedOut.get()) {
+                throw new IOException("Worker timed out after " + unitTimeout + " ms while processing " + unit);
+            }
+            if (response == null) {
+                throw new IOException("Worker exited while processing " + unit);
+            }
+
+            final String[] split = response.trim().split(" ");
+            try {
+                if (split.length != 2 || Integer.parseInt(split[0]) != unit.getId()) {
+                    throw new IOException("Unexpected worker response '" + response + "' for " + unit);
+                }
+                return Long.parseLong(split[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed worker response '" + response + "' for " + unit);
+            }
+        }
+
+        /**
+         * Stops the current worker process, if any.
+         */
+        private void stopWorker() {
+            if (process == null) {
+                return;
+            }
+            try {
+                // closing stdin lets a healthy worker exit on its own
+                writer.close();
+            } catch (IOException e) {
+                // the worker has already gone away
+            }
+            process.destroy();
+            process = null;
+            writer = null;
+            reader = null;
+        }
+    }
+
+    /**
+     * Copies a stream to an output stream until the stream is exhausted.
+     *
+     * @author mattt
+     */
+    private static final class StreamDrain implements Runnable {
+
+        private final InputStream in;
+        private final OutputStream out;
+
+        /**
+         * @param in
+         *            is the stream to drain.
+         * @param out
+         *            is the stream to copy to.
+         */
+        StreamDrain(final InputStream in, final OutputStream out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        @Override
+        public void run() {
+            final byte[] buffer = new byte[1024];
+            try {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                out.flush();
+            } catch (IOException e) {
+                // the worker has gone away
+            }
+        }
+    }
+}
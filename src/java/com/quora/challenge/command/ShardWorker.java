@@ -0,0 +1,69 @@
+package com.quora.challenge.command;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.quora.challenge.RoomGraphFactory;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+import com.quora.challenge.graph.ham.HamiltonianPathCounter;
+import com.quora.challenge.graph.ham.HamiltonianPathCounterFactory;
+
+/**
+ * Entry point for a worker process started by a {@link ShardCoordinator}.
+ * <p/>
+ * The worker reads a grid (in the same form accepted by {@link DuctPathCounter}) from the first line of standard input,
+ * then reads one {@link WorkUnit} per line, answering each with a line of the form 'id count' on standard output. The
+ * worker exits once standard input is closed.
+ *
+ * @author mattt
+ */
+public class ShardWorker {
+
+    /**
+     * @param args
+     * @throws IOException
+     *             if an error occurs while reading grid input or work units.
+     */
+    public static void main(String[] args) throws IOException {
+
+        final BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        final PrintStream out = System.out;
+
+        final String input = in.readLine();
+        if (input == null) {
+            return;
+        }
+
+        final Graph<Room> roomGraph = RoomGraphFactory.generateRoomGraph(InputGridUtil.asInputGrid(input));
+        final HamiltonianPathCounter<Room> pathCounter = HamiltonianPathCounterFactory.getInstance();
+
+        final Map<Room.RoomLocation, Room> rooms = Maps.newHashMap();
+        for (final Room room : roomGraph.getGraph().getVerticies()) {
+            rooms.put(room.getLocation(), room);
+        }
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            final WorkUnit unit = WorkUnit.parse(line);
+
+            final List<Room> prefix = Lists.newArrayList();
+            for (final Room.RoomLocation location : unit.getPrefix()) {
+                final Room room = rooms.get(location);
+                if (room == null) {
+                    throw new IllegalArgumentException("Unknown room location " + location + " in " + unit);
+                }
+                prefix.add(room);
+            }
+
+            out.println(unit.getId() + " " + pathCounter.countPaths(roomGraph, prefix));
+            out.flush();
+        }
+    }
+}
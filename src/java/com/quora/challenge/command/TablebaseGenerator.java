@@ -0,0 +1,267 @@
+package com.quora.challenge.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.quora.challenge.PathTablebase;
+import com.quora.challenge.RoomGraphFactory;
+import com.quora.challenge.RoomGraphKeys;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+import com.quora.challenge.grid.GridSession;
+
+/**
+ * Entry point for the tablebase generator, which counts the paths of every small grid and writes them to a table
+ * (see {@link PathTablebase}).
+ * <p/>
+ * The generator enumerates every grid of up to '--max-rows N' rows and '--max-cols N' columns (4 by default) with at
+ * most '--max-holes N' rooms not owned (4 by default), and every placement of the start and goal rooms in it. Grids
+ * are deduplicated by canonical key (see {@link RoomGraphKeys}) before being counted, so each is counted once however
+ * many of its rotations, reflections and placements were enumerated. Grids are counted on '--threads N' threads (one
+ * per processor by default), each grid on a single thread by a frontier sweep (see {@link GridSession}), which is
+ * much faster than a search on the larger grids of a table. The table is written to '--output FILE' once every grid
+ * has been counted; nothing is written if any count fails.
+ *
+ * @author mattt
+ */
+public class TablebaseGenerator {
+
+    private static final int DEFAULT_MAX_SIZE = 4;
+    private static final int DEFAULT_MAX_HOLES = 4;
+
+    /**
+     * @param args
+     * @throws IOException
+     *             if an error occurs while writing the table.
+     * @throws InterruptedException
+     *             if interrupted while counting.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        int maxRows = DEFAULT_MAX_SIZE;
+        int maxCols = DEFAULT_MAX_SIZE;
+        int maxHoles = DEFAULT_MAX_HOLES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File outputFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--max-rows".equals(args[i]) && i + 1 < args.length) {
+                maxRows = Integer.parseInt(args[++i]);
+            } else if ("--max-cols".equals(args[i]) && i + 1 < args.length) {
+                maxCols = Integer.parseInt(args[++i]);
+            } else if ("--max-holes".equals(args[i]) && i + 1 < args.length) {
+                maxHoles = Integer.parseInt(args[++i]);
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--output".equals(args[i]) && i + 1 < args.length) {
+                outputFile = new File(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+        }
+        if (outputFile == null) {
+            throw new IllegalArgumentException("--output FILE is required");
+        }
+
+        long startTime = System.currentTimeMillis();
+        final long[] keys = enumerateGrids(maxRows, maxCols, maxHoles);
+        System.out.println("Enumerated " + keys.length + " distinct grids in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+
+        startTime = System.currentTimeMillis();
+        final long[] counts = countGrids(keys, threads);
+        System.out.println("Counted " + keys.length + " grids in " + (System.currentTimeMillis() - startTime)
+                + " ms");
+
+        final SortedMap<Long, Long> table = Maps.newTreeMap();
+        for (int i = 0; i < keys.length; i++) {
+            table.put(keys[i], counts[i]);
+        }
+        PathTablebase.write(outputFile, table);
+        System.out.println("Wrote " + outputFile);
+    }
+
+    /**
+     * Enumerates the distinct grids up to the given size.
+     *
+     * @param maxRows
+     *            is the maximum number of rows of a grid. Must be >= 1.
+     * @param maxCols
+     *            is the maximum number of columns of a grid. Must be >= 1.
+     * @param maxHoles
+     *            is the maximum number of rooms not owned in a grid. Must be >= 0.
+     * @return the packed keys of the grids (see {@link PathTablebase#encode(String)}), in increasing order.
+     */
+    public static long[] enumerateGrids(final int maxRows, final int maxCols, final int maxHoles) {
+        if (maxRows < 1)
+            throw new IllegalArgumentException("The maximum number of rows must be >= 1");
+        if (maxCols < 1)
+            throw new IllegalArgumentException("The maximum number of columns must be >= 1");
+        if (maxHoles < 0)
+            throw new IllegalArgumentException("The maximum number of holes must be >= 0");
+
+        final Set<Long> keys = Sets.newHashSet();
+        for (int rows = 1; rows <= maxRows; rows++) {
+            for (int cols = 1; cols <= maxCols; cols++) {
+                if (rows * cols <= PathTablebase.MAX_AREA) {
+                    enumerateHoles(rows, cols, new boolean[rows * cols], 0, maxHoles, keys);
+                }
+            }
+        }
+
+        final long[] sorted = new long[keys.size()];
+        int i = 0;
+        for (final Long key : keys) {
+            sorted[i++] = key;
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Counts the paths of the given grids in parallel.
+     *
+     * @param keys
+     *            is the packed keys of the grids.
+     * @param threads
+     *            is the number of threads to count on.
+     * @return the path count of each grid.
+     * @throws InterruptedException
+     *             if interrupted while counting.
+     */
+    public static long[] countGrids(final long[] keys, final int threads) throws InterruptedException {
+        if (threads < 1)
+            throw new IllegalArgumentException("The number of threads must be >= 1");
+
+        final long[] counts = new long[keys.length];
+        final AtomicInteger next = new AtomicInteger();
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Void>> futures = Lists.newArrayListWithCapacity(threads);
+            for (int t = 0; t < threads; t++) {
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        int i;
+                        // a thread stops early once the count is stopped, as when another thread fails
+                        while (!Thread.currentThread().isInterrupted() && (i = next.getAndIncrement()) < keys.length) {
+                            // the rooms of a decoded grid all have a neighbor, so the sweep, which requires every
+                            // owned room on the path, counts the same paths as the room graph
+                            final GridSession session = new GridSession(PathTablebase.decodeGrid(keys[i]));
+                            try {
+                                counts[i] = session.countPaths();
+                            } finally {
+                                // a table counts far too many grids to leave their states to the garbage collector
+                                session.free();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new AssertionError(e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+        // the counts are visible to this thread, as every future has completed
+        return counts;
+    }
+
+    /**
+     * Enumerates the placements of holes (rooms not owned) in a grid from the given position on, and adds the keys of
+     * the resulting grids to the given set.
+     */
+    private static void enumerateHoles(final int rows, final int cols, final boolean[] holes, final int from,
+            final int holesLeft, final Set<Long> keys) {
+        if (!hasEmptyBorder(rows, cols, holes)) {
+            enumeratePlacements(rows, cols, holes, keys);
+        }
+        if (holesLeft == 0) {
+            return;
+        }
+        for (int i = from; i < holes.length; i++) {
+            holes[i] = true;
+            enumerateHoles(rows, cols, holes, i + 1, holesLeft - 1, keys);
+            holes[i] = false;
+        }
+    }
+
+    /**
+     * Enumerates the placements of the start and goal rooms in a grid, and adds the keys of the resulting grids to the
+     * given set.
+     */
+    private static void enumeratePlacements(final int rows, final int cols, final boolean[] holes,
+            final Set<Long> keys) {
+        final List<String> grid = Lists.newArrayListWithCapacity(holes.length);
+        for (final boolean hole : holes) {
+            grid.add(hole ? Room.Type.NOT_OWNED.getRoomId() : Room.Type.OWNED.getRoomId());
+        }
+        // the start room comes first, since the factory reads a start room after the goal room as both
+        for (int start = 0; start < holes.length; start++) {
+            if (holes[start]) {
+                continue;
+            }
+            grid.set(start, Room.Type.START.getRoomId());
+            for (int goal = start + 1; goal < holes.length; goal++) {
+                if (holes[goal]) {
+                    continue;
+                }
+                grid.set(goal, Room.Type.GOAL.getRoomId());
+                final Graph<Room> graph = RoomGraphFactory.generateRoomGraph(rows, cols, grid);
+                final long key = PathTablebase.encode(RoomGraphKeys.canonicalKey(graph));
+                // grids whose start or goal room has no neighbor have no key, nor paths
+                if (key >= 0) {
+                    keys.add(key);
+                }
+                grid.set(goal, Room.Type.OWNED.getRoomId());
+            }
+            grid.set(start, Room.Type.OWNED.getRoomId());
+        }
+    }
+
+    /**
+     * @return true if the first or last row or column of the grid holds no room, in which case the grid is the same as
+     *         a smaller grid with fewer holes, which is enumerated on its own.
+     */
+    private static boolean hasEmptyBorder(final int rows, final int cols, final boolean[] holes) {
+        boolean first = true;
+        boolean last = true;
+        for (int c = 0; c < cols; c++) {
+            first &= holes[c];
+            last &= holes[(rows - 1) * cols + c];
+        }
+        if (first || last) {
+            return true;
+        }
+        first = true;
+        last = true;
+        for (int r = 0; r < rows; r++) {
+            first &= holes[r * cols];
+            last &= holes[r * cols + cols - 1];
+        }
+        return first || last;
+    }
+}
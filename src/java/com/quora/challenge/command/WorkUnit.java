@@ -0,0 +1,127 @@
+package com.quora.challenge.command;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.quora.challenge.domain.Room;
+
+/**
+ * A unit of work handed from a {@link ShardCoordinator} to a {@link ShardWorker}: a path prefix identified by the
+ * locations of its rooms, along with the number of times the unit has been attempted.
+ * <p/>
+ * A unit is serialized as a single line of the form 'id x,y x,y ... x,y'. Rooms are identified by their location since
+ * room instances (and their hash codes) differ between processes.
+ *
+ * @author mattt
+ */
+final class WorkUnit {
+
+    private final int id;
+    private final int attempts;
+    private final List<Room.RoomLocation> prefix;
+
+    /**
+     * @param id
+     *            is the id of this unit, unique within a single coordinated count.
+     * @param attempts
+     *            is the number of times this unit has been attempted.
+     * @param prefix
+     *            is the list of room locations making up the path prefix.
+     */
+    private WorkUnit(final int id, final int attempts, final List<Room.RoomLocation> prefix) {
+        this.id = id;
+        this.attempts = attempts;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Obtains a new unit for the given path prefix.
+     *
+     * @param id
+     *            is the id of the unit.
+     * @param prefix
+     *            is the path prefix, beginning with the start room.
+     * @return a new {@link WorkUnit} for the given prefix.
+     */
+    static WorkUnit forPrefix(final int id, final List<Room> prefix) {
+        final List<Room.RoomLocation> locations = Lists.newArrayList();
+        for (final Room room : prefix) {
+            locations.add(room.getLocation());
+        }
+        return new WorkUnit(id, 0, Collections.unmodifiableList(locations));
+    }
+
+    /**
+     * Parses a unit from the given line (see {@link #toLine()}).
+     *
+     * @param line
+     *            is the line to parse.
+     * @return the parsed {@link WorkUnit}.
+     */
+    static WorkUnit parse(final String line) {
+        final String[] split = line.trim().split(" ");
+        if (split.length < 2) {
+            throw new IllegalArgumentException("Malformed work unit: " + line);
+        }
+
+        final List<Room.RoomLocation> locations = Lists.newArrayList();
+        for (int i = 1; i < split.length; i++) {
+            final String[] coordinates = split[i].split(",");
+            if (coordinates.length != 2) {
+                throw new IllegalArgumentException("Malformed room location '" + split[i] + "' in work unit: " + line);
+            }
+            locations.add(new Room.RoomLocation(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1])));
+        }
+        return new WorkUnit(Integer.parseInt(split[0]), 0, Collections.unmodifiableList(locations));
+    }
+
+    /**
+     * @return a copy of this unit with its attempt count incremented.
+     */
+    WorkUnit retry() {
+        return new WorkUnit(id, attempts + 1, prefix);
+    }
+
+    /**
+     * @return the unit id.
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * @return the number of times this unit has been attempted.
+     */
+    int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return the room locations making up the path prefix.
+     */
+    List<Room.RoomLocation> getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return the single line serialized form of this unit.
+     */
+    String toLine() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(id);
+        for (final Room.RoomLocation location : prefix) {
+            sb.append(' ').append(location.getX()).append(',').append(location.getY());
+        }
+        return sb.toString();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "[Work unit " + toLine() + " (attempts=" + attempts + ")]";
+    }
+}
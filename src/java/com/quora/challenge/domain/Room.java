@@ -5,10 +5,13 @@ import java.util.List;
 
 /**
  * Describes a room.
+ * <p/>
+ * Rooms are ordered by location, row by row, so that the order of the rooms of a grid doesn't depend on the (identity
+ * based) hash codes of their types, and is the same from one run to the next.
  * 
  * @author mattt
  */
-public class Room {
+public class Room implements Comparable<Room> {
 
     private final Type type;
     private final RoomLocation location;
@@ -222,6 +225,22 @@ public class Room {
         return true;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Comparable#compareTo(java.lang.Object)
+     */
+    @Override
+    public int compareTo(final Room other) {
+        int result = location.getX().compareTo(other.location.getX());
+        if (result == 0) {
+            result = location.getY().compareTo(other.location.getY());
+        }
+        if (result == 0) {
+            result = type.compareTo(other.type);
+        }
+        return result;
+    }
+
     /*
      * (non-Javadoc)
      * @see java.lang.Object#toString()
@@ -0,0 +1,102 @@
+package com.quora.challenge.export;
+
+import com.quora.challenge.domain.Room;
+
+/**
+ * A single move between adjacent rooms, encoded in 2 bits in an exported path.
+ * <p/>
+ * Note that a {@link Room.RoomLocation} x position is the row of the room and the y position is the column, so moving
+ * north decrements x and moving east increments y.
+ *
+ * @author mattt
+ */
+public enum Move {
+    NORTH(0, -1, 0),
+    SOUTH(1, 1, 0),
+    EAST(2, 0, 1),
+    WEST(3, 0, -1);
+
+    // indexed by code
+    private static final Move[] MOVES = { NORTH, SOUTH, EAST, WEST };
+
+    private final int code;
+    private final int dx;
+    private final int dy;
+
+    /**
+     * @param code
+     *            is the 2 bit code of the move.
+     * @param dx
+     *            is the change in x (row) position.
+     * @param dy
+     *            is the change in y (column) position.
+     */
+    private Move(final int code, final int dx, final int dy) {
+        this.code = code;
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /**
+     * @return the 2 bit code of the move.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return the change in x (row) position.
+     */
+    public int getDx() {
+        return dx;
+    }
+
+    /**
+     * @return the change in y (column) position.
+     */
+    public int getDy() {
+        return dy;
+    }
+
+    /**
+     * Obtains the move with the given code.
+     *
+     * @param code
+     *            is the 2 bit code of the move.
+     * @return the {@link Move} with the given code.
+     */
+    public static Move fromCode(final int code) {
+        return MOVES[code & 3];
+    }
+
+    /**
+     * Obtains the code of the move between the given adjacent positions.
+     *
+     * @param fromX
+     *            is the x position moved from.
+     * @param fromY
+     *            is the y position moved from.
+     * @param toX
+     *            is the x position moved to.
+     * @param toY
+     *            is the y position moved to.
+     * @return the 2 bit code of the move.
+     */
+    public static int codeOf(final int fromX, final int fromY, final int toX, final int toY) {
+        final int dx = toX - fromX;
+        final int dy = toY - fromY;
+        if (dy == 0) {
+            if (dx == -1)
+                return NORTH.code;
+            if (dx == 1)
+                return SOUTH.code;
+        } else if (dx == 0) {
+            if (dy == 1)
+                return EAST.code;
+            if (dy == -1)
+                return WEST.code;
+        }
+        throw new IllegalArgumentException("Positions (" + fromX + ", " + fromY + ") and (" + toX + ", " + toY
+                + ") are not adjacent");
+    }
+}
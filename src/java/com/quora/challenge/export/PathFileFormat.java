@@ -0,0 +1,52 @@
+package com.quora.challenge.export;
+
+import java.nio.ByteOrder;
+
+/**
+ * Describes the layout of an exported path file.
+ * <p/>
+ * A path file starts with a fixed size header:
+ *
+ * <pre>
+ * int  magic        (0x44435450, 'DCTP')
+ * int  version
+ * int  start x      (row of the start room)
+ * int  start y      (column of the start room)
+ * int  move count   (number of moves in every path)
+ * int  words        (number of longs in every path record)
+ * long path count
+ * </pre>
+ *
+ * followed by one record per path. A record is a fixed number of longs holding the moves of the path from the start
+ * room, 2 bits per move (see {@link Move}), 32 moves per long, least significant bits first. All values are little
+ * endian.
+ *
+ * @author mattt
+ */
+final class PathFileFormat {
+
+    static final int MAGIC = 0x44435450;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int PATH_COUNT_OFFSET = 24;
+    static final int MOVES_PER_WORD = 32;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * suppress default constructor
+     */
+    private PathFileFormat() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Obtains the number of longs needed to hold the given number of moves.
+     *
+     * @param moves
+     *            is the number of moves in a path.
+     * @return the number of longs in a path record.
+     */
+    static int wordsPerPath(final int moves) {
+        return Math.max(1, (moves + MOVES_PER_WORD - 1) / MOVES_PER_WORD);
+    }
+}
@@ -0,0 +1,174 @@
+package com.quora.challenge.export;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.quora.challenge.domain.Room;
+
+/**
+ * Reads a path file written by a {@link RoomPathWriter}. The file is mapped into memory, so any path can be decoded in
+ * constant time without reading the ones before it.
+ * <p/>
+ * Note that this class is not thread safe.
+ *
+ * @author mattt
+ */
+public final class RoomPathReader implements Closeable {
+
+    private final RandomAccessFile file;
+
+    // the records are mapped in segments, since a single mapping is limited to 2GB
+    private final MappedByteBuffer[] segments;
+    private final long pathsPerSegment;
+
+    private final Room.RoomLocation start;
+    private final int moves;
+    private final int words;
+    private final long pathCount;
+
+    /**
+     * @param path
+     *            is the path file to read.
+     * @throws IOException
+     *             if the file could not be read, or is not a path file.
+     */
+    public RoomPathReader(final File path) throws IOException {
+        if (path == null)
+            throw new NullPointerException();
+
+        this.file = new RandomAccessFile(path, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+
+            final ByteBuffer header = ByteBuffer.allocate(PathFileFormat.HEADER_BYTES).order(
+                    PathFileFormat.BYTE_ORDER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Truncated path file header: " + path);
+                }
+            }
+            header.flip();
+
+            if (header.getInt() != PathFileFormat.MAGIC) {
+                throw new IOException("Not a path file: " + path);
+            }
+            final int version = header.getInt();
+            if (version != PathFileFormat.VERSION) {
+                throw new IOException("Unsupported path file version " + version + ": " + path);
+            }
+            final int x = header.getInt();
+            final int y = header.getInt();
+            this.start = new Room.RoomLocation(x, y);
+            this.moves = header.getInt();
+            this.words = header.getInt();
+            this.pathCount = header.getLong();
+
+            final long recordBytes = words * 8L;
+            if (channel.size() < PathFileFormat.HEADER_BYTES + pathCount * recordBytes) {
+                throw new IOException("Truncated path file: " + path);
+            }
+
+            this.pathsPerSegment = Integer.MAX_VALUE / recordBytes;
+            final int segmentCount = (int) ((pathCount + pathsPerSegment - 1) / pathsPerSegment);
+            this.segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                final long first = i * pathsPerSegment;
+                final long paths = Math.min(pathsPerSegment, pathCount - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, PathFileFormat.HEADER_BYTES + first
+                        * recordBytes, paths * recordBytes);
+                segments[i].order(PathFileFormat.BYTE_ORDER);
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of paths in the file.
+     */
+    public long getPathCount() {
+        return pathCount;
+    }
+
+    /**
+     * @return the number of moves in every path.
+     */
+    public int getMoveCount() {
+        return moves;
+    }
+
+    /**
+     * @return the location of the start room all paths begin with.
+     */
+    public Room.RoomLocation getStart() {
+        return start;
+    }
+
+    /**
+     * Decodes the moves of the path with the given index into the given array.
+     *
+     * @param index
+     *            is the index of the path, >= 0 and < {@link #getPathCount()}.
+     * @param codes
+     *            is the array to decode the move codes (see {@link Move#getCode()}) into. Its length must be >=
+     *            {@link #getMoveCount()}.
+     */
+    public void readMoves(final long index, final byte[] codes) {
+        if (index < 0 || index >= pathCount) {
+            throw new IndexOutOfBoundsException("Path index " + index + " out of range [0, " + pathCount + ")");
+        }
+
+        final MappedByteBuffer segment = segments[(int) (index / pathsPerSegment)];
+        final int offset = (int) (index % pathsPerSegment) * words * 8;
+
+        int move = 0;
+        for (int w = 0; w < words && move < moves; w++) {
+            long word = segment.getLong(offset + w * 8);
+            for (int i = 0; i < PathFileFormat.MOVES_PER_WORD && move < moves; i++) {
+                codes[move++] = (byte) (word & 3);
+                word >>>= 2;
+            }
+        }
+    }
+
+    /**
+     * Decodes the path with the given index.
+     *
+     * @param index
+     *            is the index of the path, >= 0 and < {@link #getPathCount()}.
+     * @return the list of room locations making up the path, beginning with the start room.
+     */
+    public List<Room.RoomLocation> getPath(final long index) {
+        final byte[] codes = new byte[moves];
+        readMoves(index, codes);
+
+        final List<Room.RoomLocation> path = Lists.newArrayListWithCapacity(moves + 1);
+        int x = start.getX();
+        int y = start.getY();
+        path.add(start);
+        for (final byte code : codes) {
+            final Move move = Move.fromCode(code);
+            x += move.getDx();
+            y += move.getDy();
+            path.add(new Room.RoomLocation(x, y));
+        }
+        return path;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,206 @@
+package com.quora.challenge.export;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import com.quora.challenge.domain.Room;
+
+/**
+ * Writes enumerated {@link Room} paths to a compact binary file (see {@link PathFileFormat}).
+ * <p/>
+ * Paths are handed to the writer as vertex index sequences (see
+ * {@link com.quora.challenge.graph.ham.PathEnumeration}), encoded as 2 bit moves, and written through a
+ * {@link FileChannel} in large batches from a direct buffer.
+ * <p/>
+ * Note that this class is not thread safe.
+ *
+ * @author mattt
+ */
+public final class RoomPathWriter implements Closeable {
+
+    // the default size of the write buffer, in bytes
+    private static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    // the row and column of each room, by vertex index
+    private final int[] xs;
+    private final int[] ys;
+
+    private final int startIndex;
+    private final int moves;
+    private final int words;
+
+    private long pathCount;
+
+    /**
+     * @param file
+     *            is the file to write to. Any existing file is replaced.
+     * @param vertices
+     *            is the list of rooms that vertex indices refer to.
+     * @param start
+     *            is the start room all paths begin with.
+     * @throws IOException
+     *             if the file could not be opened.
+     */
+    public RoomPathWriter(final File file, final List<Room> vertices, final Room start) throws IOException {
+        this(file, vertices, start, DEFAULT_BUFFER_BYTES);
+    }
+
+    /**
+     * @param file
+     *            is the file to write to. Any existing file is replaced.
+     * @param vertices
+     *            is the list of rooms that vertex indices refer to.
+     * @param start
+     *            is the start room all paths begin with.
+     * @param bufferBytes
+     *            is the size of the write buffer, in bytes. It is rounded up to hold at least one path.
+     * @throws IOException
+     *             if the file could not be opened.
+     */
+    public RoomPathWriter(final File file, final List<Room> vertices, final Room start, final int bufferBytes)
+            throws IOException {
+        if (file == null)
+            throw new NullPointerException();
+
+        this.startIndex = vertices.indexOf(start);
+        if (startIndex < 0) {
+            throw new IllegalArgumentException("The start room " + start + " is not one of the given rooms");
+        }
+
+        this.xs = new int[vertices.size()];
+        this.ys = new int[vertices.size()];
+        for (int i = 0; i < xs.length; i++) {
+            final Room.RoomLocation location = vertices.get(i).getLocation();
+            xs[i] = location.getX();
+            ys[i] = location.getY();
+        }
+
+        this.moves = vertices.size() - 1;
+        this.words = PathFileFormat.wordsPerPath(moves);
+
+        final int recordBytes = words * 8;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferBytes / recordBytes, 1) * recordBytes);
+        this.buffer.order(PathFileFormat.BYTE_ORDER);
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+        this.channel = raf.getChannel();
+
+        final ByteBuffer header = ByteBuffer.allocate(PathFileFormat.HEADER_BYTES).order(PathFileFormat.BYTE_ORDER);
+        header.putInt(PathFileFormat.MAGIC);
+        header.putInt(PathFileFormat.VERSION);
+        header.putInt(xs[startIndex]);
+        header.putInt(ys[startIndex]);
+        header.putInt(moves);
+        header.putInt(words);
+        header.putLong(0);
+        header.flip();
+        writeFully(header);
+    }
+
+    /**
+     * Writes the given path.
+     *
+     * @param path
+     *            is the path to write, as a sequence of vertex indices beginning with the start room and visiting every
+     *            room.
+     * @throws IOException
+     *             if the path could not be written.
+     */
+    public void write(final int[] path) throws IOException {
+        if (path.length != moves + 1 || path[0] != startIndex) {
+            throw new IllegalArgumentException("The path must begin with the start room and visit all "
+                    + xs.length + " rooms");
+        }
+        if (buffer.remaining() < words * 8) {
+            flush();
+        }
+
+        long word = 0;
+        int shift = 0;
+        int written = 0;
+        int from = path[0];
+        for (int i = 1; i < path.length; i++) {
+            final int to = path[i];
+            word |= ((long) Move.codeOf(xs[from], ys[from], xs[to], ys[to])) << shift;
+            from = to;
+            shift += 2;
+            if (shift == 64) {
+                buffer.putLong(word);
+                written++;
+                word = 0;
+                shift = 0;
+            }
+        }
+        for (; written < words; written++) {
+            buffer.putLong(word);
+            word = 0;
+        }
+        pathCount++;
+    }
+
+    /**
+     * @return the number of paths written thus far.
+     */
+    public long getPathCount() {
+        return pathCount;
+    }
+
+    /**
+     * Writes any buffered paths to the file.
+     *
+     * @throws IOException
+     *             if the paths could not be written.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Flushes any buffered paths, records the path count in the header and closes the file.
+     *
+     * @throws IOException
+     *             if the file could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            flush();
+            final ByteBuffer count = ByteBuffer.allocate(8).order(PathFileFormat.BYTE_ORDER);
+            count.putLong(pathCount);
+            count.flip();
+            while (count.hasRemaining()) {
+                channel.write(count, PathFileFormat.PATH_COUNT_OFFSET + count.position());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of the given buffer to the channel.
+     *
+     * @param source
+     *            is the buffer to write.
+     * @throws IOException
+     *             if the bytes could not be written.
+     */
+    private void writeFully(final ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
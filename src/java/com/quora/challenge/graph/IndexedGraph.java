@@ -0,0 +1,208 @@
+package com.quora.challenge.graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A compact, immutable representation of a {@link Graph} in which every vertex is identified by an index, and the
+ * neighbors of each vertex are held in a primitive array. Search engines work against this representation rather than
+ * the {@link AdjacencyList} to avoid hashing and boxing in their inner loops.
+ * <p/>
+ * When the vertex type is {@link Comparable}, vertices are indexed in their natural order and the neighbors of each
+ * vertex are held in index order, so both the index of a vertex and the order in which a search visits its neighbors
+ * are stable from one run (or process) to the next. Otherwise vertices are indexed in the iteration order of the
+ * underlying {@link AdjacencyList}.
+ *
+ * @author mattt
+ * @param <V>
+ *            is the vertex type
+ */
+public final class IndexedGraph<V> {
+
+    private final Graph<V> graph;
+    private final List<V> vertices;
+    private final Map<V, Integer> indices;
+    private final int[][] neighbors;
+    private final int start;
+    private final int goal;
+
+    /**
+     * @param graph
+     *            is the graph this representation was created from.
+     * @param vertices
+     *            is the list of vertices, by index.
+     * @param indices
+     *            maps each vertex to its index.
+     * @param neighbors
+     *            is the array of neighbor indices of each vertex, by index.
+     */
+    private IndexedGraph(final Graph<V> graph, final List<V> vertices, final Map<V, Integer> indices,
+            final int[][] neighbors) {
+        this.graph = graph;
+        this.vertices = vertices;
+        this.indices = indices;
+        this.neighbors = neighbors;
+        this.start = indexOf(graph.getStart());
+        this.goal = indexOf(graph.getGoal());
+    }
+
+    /**
+     * Obtains an indexed representation of the given graph.
+     *
+     * @param <V>
+     *            is the vertex type
+     * @param graph
+     *            is the graph to index. Every edge destination is expected to be a vertex of the graph.
+     * @return an {@link IndexedGraph} for the given graph.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> IndexedGraph<V> create(final Graph<V> graph) {
+        if (graph == null)
+            throw new NullPointerException();
+
+        final AdjacencyList<V> adjacencyList = graph.getGraph();
+        final List<V> vertices = Lists.newArrayList(adjacencyList.getVerticies());
+
+        boolean comparable = true;
+        for (final V v : vertices) {
+            comparable &= v instanceof Comparable;
+        }
+        if (comparable) {
+            Collections.sort((List<Comparable<Object>>) vertices);
+        }
+
+        final Map<V, Integer> indices = Maps.newHashMap();
+        for (int i = 0; i < vertices.size(); i++) {
+            indices.put(vertices.get(i), i);
+        }
+
+        final int[][] neighbors = new int[vertices.size()][];
+        for (int i = 0; i < vertices.size(); i++) {
+            final Collection<V> dests = adjacencyList.getVerticesFromSource(vertices.get(i));
+            final int[] n = new int[dests.size()];
+            int count = 0;
+            for (final V dest : dests) {
+                // a vertex added without edges maps to a null destination
+                if (dest == null) {
+                    continue;
+                }
+                final Integer index = indices.get(dest);
+                if (index == null) {
+                    throw new IllegalArgumentException("Edge destination " + dest + " is not a vertex of the graph");
+                }
+                n[count++] = index;
+            }
+            neighbors[i] = count == n.length ? n : Arrays.copyOf(n, count);
+            if (comparable) {
+                Arrays.sort(neighbors[i]);
+            }
+        }
+        return new IndexedGraph<V>(graph, Collections.unmodifiableList(vertices), indices, neighbors);
+    }
+
+    /**
+     * @return the graph this representation was created from.
+     */
+    public Graph<V> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the number of vertices.
+     */
+    public int vertexCount() {
+        return vertices.size();
+    }
+
+    /**
+     * @return the index of the start vertex, or -1 if the start vertex is not part of the graph.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return the index of the goal vertex, or -1 if the goal vertex is not part of the graph.
+     */
+    public int getGoal() {
+        return goal;
+    }
+
+    /**
+     * Obtains the neighbors of the vertex with the given index. The returned array is shared and must not be modified.
+     *
+     * @param vertex
+     *            is the index of the vertex.
+     * @return the array of neighbor indices.
+     */
+    public int[] getNeighbors(final int vertex) {
+        return neighbors[vertex];
+    }
+
+    /**
+     * @param vertex
+     *            is the index of the vertex.
+     * @return the vertex with the given index.
+     */
+    public V getVertex(final int vertex) {
+        return vertices.get(vertex);
+    }
+
+    /**
+     * @param vertex
+     *            is the vertex to obtain the index for.
+     * @return the index of the given vertex, or -1 if it is not part of this graph.
+     */
+    public int indexOf(final V vertex) {
+        final Integer index = indices.get(vertex);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return an immutable list of the vertices, by index.
+     */
+    public List<V> getVertices() {
+        return vertices;
+    }
+
+    /**
+     * Obtains the vertices of the given index sequence.
+     *
+     * @param path
+     *            is the sequence of vertex indices.
+     * @param length
+     *            is the number of indices of the sequence to convert.
+     * @return the list of vertices of the given sequence.
+     */
+    public List<V> toVertices(final int[] path, final int length) {
+        final List<V> result = Lists.newArrayListWithCapacity(length);
+        for (int i = 0; i < length; i++) {
+            result.add(vertices.get(path[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Obtains the index sequence of the given vertices.
+     *
+     * @param path
+     *            is the list of vertices.
+     * @return the sequence of vertex indices.
+     */
+    public int[] toIndices(final List<V> path) {
+        final int[] result = new int[path.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indexOf(path.get(i));
+            if (result[i] < 0) {
+                throw new IllegalArgumentException("Vertex " + path.get(i) + " is not part of the graph");
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,29 @@
+package com.quora.challenge.graph.ham;
+
+/**
+ * Cancels a path count from another thread (see {@link SearchOptions.Builder#cancellation(CancellationToken)}).
+ * <p/>
+ * The search threads poll the token between slices of work, so a cancelled count stops shortly after
+ * {@link #cancel()} is called, and returns the statistics of the part of the search space explored so far. A token
+ * can't be reset once cancelled. This class is thread safe.
+ *
+ * @author mattt
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    /**
+     * Requests the counts using this token to stop.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if {@link #cancel()} has been called.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -1,18 +1,36 @@
 package com.quora.challenge.graph.ham;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
-import com.google.common.collect.MapMaker;
-import com.google.common.collect.Sets;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.quora.challenge.CountAccumulator;
 import com.quora.challenge.PathStatistics;
-import com.quora.challenge.graph.AdjacencyList;
+import com.quora.challenge.cache.BoundedResultCache;
+import com.quora.challenge.cache.CacheStats;
+import com.quora.challenge.cache.ResultCache;
 import com.quora.challenge.graph.Graph;
+import com.quora.challenge.graph.IndexedGraph;
 import com.quora.challenge.graph.ham.pruning.BiConnectedPruningStrategy;
 import com.quora.challenge.graph.ham.pruning.ConnectedPruningStrategy;
 import com.quora.challenge.graph.ham.pruning.EdgePruningStrategy;
@@ -20,6 +38,10 @@ import com.quora.challenge.graph.ham.pruning.AdmissibleDegreePruningStrategy;
 
 /**
  * Counts the number of hamiltonian paths in a given graph.
+ * <p/>
+ * The search runs against an {@link IndexedGraph} using the iterative {@link PathSearch} engine. To spread the work
+ * across threads, the search space is split into path prefixes (units of work), which the search threads take in turn
+ * until none remain.
  * 
  * @author mattt
  * @param <V>
@@ -27,13 +49,47 @@ import com.quora.challenge.graph.ham.pruning.AdmissibleDegreePruningStrategy;
  */
 public class HamiltonianPathCounter<V> {
 
-    // simple cache mapping a graph to the path count statistics associated with it.
-    private final ConcurrentMap<Graph<V>, PathStatistics<V>> pathCounts = new MapMaker().softValues().expiration(30,
-            TimeUnit.MINUTES).makeMap();
+    /**
+     * The kinds of search a count runs (see {@link PathSearch}).
+     */
+    private enum SearchKind {
+        // paths from the start vertex to the goal vertex
+        GOAL,
+        // paths from a start vertex to any vertex
+        ANY_END,
+        // cycles through a root vertex
+        CYCLE
+    }
+
+    // the number of units of work to split a count into, per search thread
+    private static final int UNITS_PER_THREAD = 16;
+
+    // the number of search nodes a search thread visits between two checks of the limits of a count
+    private static final long SLICE_NODES = 1 << 16;
+
+    // the number of search nodes visited to measure the speed of the search engine before making an estimate
+    private static final long CALIBRATION_NODES = 1 << 15;
+    // the number of times the search engine is run for CALIBRATION_NODES before measuring its speed
+    private static final int CALIBRATION_WARMUPS = 4;
+
+    // the interval at which a caller waiting on another caller's count checks its own limits, in milliseconds
+    private static final long FLIGHT_POLL_INTERVAL = 100;
+
+    // the number of path counts kept by the default result cache
+    private static final long DEFAULT_CACHE_SIZE = 1024;
+
+    // caches the path count statistics associated with a graph key
+    private final ResultCache<Object, PathStatistics<V>> pathCounts;
+
+    // the counts in progress, by graph key, so concurrent callers counting the same graph share a single count
+    private final ConcurrentMap<Object, FutureTask<PathStatistics<V>>> inFlight =
+            new ConcurrentHashMap<Object, FutureTask<PathStatistics<V>>>();
+
+    // maps a graph to its key in the cache (and in flight)
+    private final Function<? super Graph<V>, ?> keyFunction;
 
     private final BiConnectedPruningStrategy<V> biConnectedTester;
 
-    @SuppressWarnings("unused")
     private final ConnectedPruningStrategy<V> connectedTester;
     @SuppressWarnings("unused")
     private final AdmissibleDegreePruningStrategy<V> degreeTester;
@@ -53,11 +109,86 @@ public class HamiltonianPathCounter<V> {
     public HamiltonianPathCounter(BiConnectedPruningStrategy<V> biConnectedTester,
             ConnectedPruningStrategy<V> connectedTester, AdmissibleDegreePruningStrategy<V> degreeTester,
             EdgePruningStrategy<V> edgePruningStrategy) {
+        this(biConnectedTester, connectedTester, degreeTester, edgePruningStrategy, Functions.identity());
+    }
+
+    /**
+     * Creates a path counter with the default result cache (see {@link #newResultCache()}).
+     * 
+     * @param biConnectedTester
+     *            is the {@link BiConnectedPruningStrategy} to use.
+     * @param connectedTester
+     *            is the {@link ConnectedPruningStrategy} to use.
+     * @param degreeTester
+     *            is the {@link AdmissibleDegreePruningStrategy} to use.
+     * @param edgePruningStrategy
+     *            is the {@link EdgePruningStrategy} to use.
+     * @param keyFunction
+     *            maps a graph to its key in the result cache. Graphs with equal keys must have the same number of
+     *            hamiltonian paths; counts of graphs with equal keys are shared.
+     */
+    public HamiltonianPathCounter(BiConnectedPruningStrategy<V> biConnectedTester,
+            ConnectedPruningStrategy<V> connectedTester, AdmissibleDegreePruningStrategy<V> degreeTester,
+            EdgePruningStrategy<V> edgePruningStrategy, Function<? super Graph<V>, ?> keyFunction) {
+        this(biConnectedTester, connectedTester, degreeTester, edgePruningStrategy, keyFunction,
+                HamiltonianPathCounter.<V> newResultCache());
+    }
+
+    /**
+     * @param biConnectedTester
+     *            is the {@link BiConnectedPruningStrategy} to use.
+     * @param connectedTester
+     *            is the {@link ConnectedPruningStrategy} to use.
+     * @param degreeTester
+     *            is the {@link AdmissibleDegreePruningStrategy} to use.
+     * @param edgePruningStrategy
+     *            is the {@link EdgePruningStrategy} to use.
+     * @param keyFunction
+     *            maps a graph to its key in the result cache. Graphs with equal keys must have the same number of
+     *            hamiltonian paths; counts of graphs with equal keys are shared.
+     * @param resultCache
+     *            caches complete path count statistics by graph key.
+     */
+    public HamiltonianPathCounter(BiConnectedPruningStrategy<V> biConnectedTester,
+            ConnectedPruningStrategy<V> connectedTester, AdmissibleDegreePruningStrategy<V> degreeTester,
+            EdgePruningStrategy<V> edgePruningStrategy, Function<? super Graph<V>, ?> keyFunction,
+            ResultCache<Object, PathStatistics<V>> resultCache) {
+        if (keyFunction == null)
+            throw new NullPointerException();
+        if (resultCache == null)
+            throw new NullPointerException();
 
         this.biConnectedTester = biConnectedTester;
         this.connectedTester = connectedTester;
         this.degreeTester = degreeTester;
         this.edgePruningStrategy = edgePruningStrategy;
+        this.keyFunction = keyFunction;
+        this.pathCounts = resultCache;
+    }
+
+    /**
+     * Creates the default result cache of a path counter, which keeps up to a thousand or so path counts, evicting the
+     * counts that were quickest to compute first.
+     * 
+     * @param <V>
+     *            is the vertex type of the path counter.
+     * @return a new {@link ResultCache}.
+     */
+    public static <V> ResultCache<Object, PathStatistics<V>> newResultCache() {
+        return new BoundedResultCache.Builder<Object, PathStatistics<V>>().maximumSize(DEFAULT_CACHE_SIZE).cost(
+                new Function<PathStatistics<V>, Long>() {
+                    @Override
+                    public Long apply(final PathStatistics<V> statistics) {
+                        return statistics.getElapsedTime();
+                    }
+                }).build();
+    }
+
+    /**
+     * @return the statistics of the result cache of this path counter.
+     */
+    public CacheStats getCacheStats() {
+        return pathCounts.getStats();
     }
 
     /**
@@ -68,134 +199,1255 @@ public class HamiltonianPathCounter<V> {
      * @return the {@link PathStatistics} associated with this run.
      */
     public PathStatistics<V> findPaths(final Graph<V> graph) {
+        return findPaths(graph, SearchOptions.defaults());
+    }
+
+    /**
+     * Finds whether the given graph has a hamiltonian path, stopping at the first path found (see
+     * {@link SearchOptions#getPathLimit()}).
+     * 
+     * @param graph
+     *            is the graph to search.
+     * @return true if the graph has a hamiltonian path.
+     */
+    public boolean hasPath(final Graph<V> graph) {
+        return findPaths(graph, new SearchOptions.Builder().pathLimit(1).build()).getPathCount() > 0;
+    }
+
+    /**
+     * Finds the hamiltonian paths in the given graph, using the given options. A count that writes checkpoints (see
+     * {@link SearchOptions#getCheckpointFile()}) snapshots its progress from a separate thread, so the search threads
+     * never wait for a checkpoint to be written. A count resumed from a checkpoint only searches the units of work that
+     * were still pending when the checkpoint was taken. Progress (see {@link SearchOptions#getProgressListener()}) is
+     * sampled from the same background thread as checkpoints, from counters the search threads publish after every
+     * slice of work.
+     * <p/>
+     * A count with a deadline, node budget, path limit or cancellation token (see {@link SearchOptions#isLimited()})
+     * stops as soon as any of them is reached, as does a count whose calling thread is interrupted. The search threads
+     * are stopped before this method returns, and the returned statistics are marked incomplete (see
+     * {@link PathStatistics#isComplete()}): they hold the paths found so far and the fraction of the search space that
+     * was explored. Only complete statistics are cached. A count stopped by its path limit thus holds at least that
+     * many paths, while a complete count holding fewer paths than the limit is exact.
+     * <p/>
+     * Graphs are cached by key (see {@link #HamiltonianPathCounter(BiConnectedPruningStrategy,
+     * ConnectedPruningStrategy, AdmissibleDegreePruningStrategy, EdgePruningStrategy, Function)}), so the statistics
+     * returned may be those of an equivalent graph. A caller asking for a graph whose key is already being counted
+     * waits for that count rather than starting its own; its own deadline and cancellation token still apply to the
+     * wait, but its other options (such as checkpoints and progress) don't. If the count it waits for fails or is
+     * stopped, the caller counts the graph itself. A caller with a path limit (such as {@link #hasPath(Graph)}) neither
+     * waits for another count, which may run far longer than it needs to, nor is waited for, since it may stop before
+     * its count is exact.
+     * 
+     * @param graph
+     *            is the graph to obtain the path count from.
+     * @param options
+     *            is the {@link SearchOptions} of the count.
+     * @return the {@link PathStatistics} associated with this run.
+     */
+    public PathStatistics<V> findPaths(final Graph<V> graph, final SearchOptions options) {
         if (graph == null)
             throw new NullPointerException();
+        if (options == null)
+            throw new NullPointerException();
+
+        final Object key = keyFunction.apply(graph);
+        while (true) {
+            final PathStatistics<V> cached = pathCounts.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            if (options.getPathLimit() != Long.MAX_VALUE) {
+                return performFindPaths(graph, options, key);
+            }
+
+            final FutureTask<PathStatistics<V>> flight = new FutureTask<PathStatistics<V>>(
+                    new Callable<PathStatistics<V>>() {
+                        @Override
+                        public PathStatistics<V> call() {
+                            return performFindPaths(graph, options, key);
+                        }
+                    });
+            final FutureTask<PathStatistics<V>> leader = inFlight.putIfAbsent(key, flight);
+            if (leader == null) {
+                try {
+                    flight.run();
+                } finally {
+                    inFlight.remove(key);
+                }
+                return getFlightResult(flight);
+            }
 
-        if (pathCounts.containsKey(graph)) {
-            return pathCounts.get(graph);
+            final PathStatistics<V> shared = awaitFlight(leader, graph, options);
+            if (shared != null) {
+                return shared;
+            }
+            // the other count failed or was stopped; count again
+        }
+    }
+
+    /**
+     * Finds the hamiltonian paths in the given graph, and caches complete statistics.
+     * 
+     * @param graph
+     *            is the graph to obtain the path count from.
+     * @param options
+     *            is the {@link SearchOptions} of the count.
+     * @param key
+     *            is the key of the graph in the cache.
+     * @return the {@link PathStatistics} associated with this run.
+     */
+    private PathStatistics<V> performFindPaths(final Graph<V> graph, final SearchOptions options, final Object key) {
+        final IndexedGraph<V> indexedGraph = IndexedGraph.create(graph);
+
+        final List<int[]> units;
+        final AtomicLongArray unitCounts;
+        final SearchCheckpoint resumeFrom = options.getResumeFrom();
+        if (resumeFrom != null) {
+            if (!resumeFrom.matches(indexedGraph))
+                throw new IllegalArgumentException("The checkpoint was not taken for the given graph");
+            units = resumeFrom.getUnits();
+            unitCounts = new AtomicLongArray(resumeFrom.getCounts());
+        } else {
+            units = splitUnits(indexedGraph, indexedGraph.getStart(),
+                    Runtime.getRuntime().availableProcessors() * UNITS_PER_THREAD, SearchKind.GOAL);
+            unitCounts = new AtomicLongArray(units.size());
+            for (int u = 0; u < units.size(); u++) {
+                unitCounts.set(u, -1);
+            }
         }
 
-        final AtomicLong pathCount = new AtomicLong(0);
-        final AtomicLong depth = new AtomicLong(0);
+        // one search thread per processor, whose counters are merged once all threads have finished
+        final SearchLimits limits = new SearchLimits(options);
+        final List<SearchWorker> workers = Lists.newArrayList();
+        final AtomicInteger nextUnit = new AtomicInteger(0);
+        for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+            workers.add(new SearchWorker(indexedGraph, units, unitCounts, nextUnit, limits));
+        }
 
+        // checkpoints and progress samples are taken from a single background thread
         final long startTime = System.currentTimeMillis();
-        performPathCount(pathCount, depth, graph);
+        final CheckpointWriter checkpointWriter = options.getCheckpointFile() == null ? null : new CheckpointWriter(
+                options.getCheckpointFile(), indexedGraph, units, unitCounts);
+        final ProgressSampler progressSampler = options.getProgressListener() == null ? null : new ProgressSampler(
+                options.getProgressListener(), workers, unitCounts, startTime);
+        final ScheduledExecutorService backgroundService = checkpointWriter == null && progressSampler == null ? null
+                : Executors.newSingleThreadScheduledExecutor();
+        try {
+            if (checkpointWriter != null) {
+                backgroundService.scheduleWithFixedDelay(checkpointWriter, options.getCheckpointInterval(), options
+                        .getCheckpointInterval(), TimeUnit.MILLISECONDS);
+            }
+            if (progressSampler != null) {
+                backgroundService.scheduleAtFixedRate(progressSampler, options.getProgressInterval(), options
+                        .getProgressInterval(), TimeUnit.MILLISECONDS);
+            }
+            performPathCount(workers, limits);
+        } finally {
+            if (backgroundService != null) {
+                backgroundService.shutdown();
+                awaitTermination(backgroundService, null);
+            }
+            // the final checkpoint and progress sample record the completed (or stopped) count
+            if (checkpointWriter != null) {
+                checkpointWriter.run();
+            }
+            if (progressSampler != null) {
+                progressSampler.run();
+            }
+        }
         final long elapsed = System.currentTimeMillis() - startTime;
 
+        final SearchCounters counters = new SearchCounters();
+        final List<SearchCounters> workerCounters = Lists.newArrayList();
+        for (final SearchWorker worker : workers) {
+            counters.add(worker.counters);
+            workerCounters.add(worker.counters);
+        }
+        final UnitTally tally = new UnitTally(workers, unitCounts);
+        final boolean complete = tally.completedUnits == units.size();
+
         final PathStatistics<V> pathStatistics = new PathStatistics.Builder<V>()
-                .depth(depth.get())
-                .count(pathCount.get())
+                .depth(counters.getExpansions())
+                .count(tally.pathCount.toBigInteger())
+                .counters(counters)
+                .workerCounters(workerCounters)
+                .complete(complete)
+                .exploredFraction(complete ? 1.0 : tally.getExploredFraction())
                 .elapsedTime(elapsed)
                 .graph(graph)
             .build();
-        pathCounts.put(graph, pathStatistics);
+        if (complete) {
+            pathCounts.put(key, pathStatistics);
+        }
         return pathStatistics;
     }
 
     /**
-     * Performs the path count against the given graph.
+     * Obtains the result of a count this thread has run.
      * 
-     * @param pathCount
-     *            is the number of hamiltonian paths that have been found.
-     * @param depth
-     *            is the search depth, excluding pruned searches.
+     * @param flight
+     *            is the completed count.
+     * @return the {@link PathStatistics} of the count.
+     */
+    private PathStatistics<V> getFlightResult(final FutureTask<PathStatistics<V>> flight) {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            // shouldn't happen, the count has completed
+            throw new AssertionError(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new AssertionError(e.getCause());
+        }
+    }
+
+    /**
+     * Waits for a count of the same graph started by another caller. The wait is subject to the deadline and
+     * cancellation token of the given options, and to interruption of the calling thread.
+     * 
+     * @param flight
+     *            is the count of the other caller.
      * @param graph
      *            is the graph to obtain the path count from.
+     * @param options
+     *            is the {@link SearchOptions} of this caller.
+     * @return the complete {@link PathStatistics} of the other count, incomplete statistics if this caller stopped
+     *         waiting, or null if the other count failed or was stopped.
      */
-    private void performPathCount(final AtomicLong pathCount, final AtomicLong depth, final Graph<V> graph) {
+    private PathStatistics<V> awaitFlight(final FutureTask<PathStatistics<V>> flight, final Graph<V> graph,
+            final SearchOptions options) {
+        final CancellationToken cancellation = options.getCancellation();
+        while (true) {
+            try {
+                final PathStatistics<V> statistics = flight.get(FLIGHT_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                return statistics.isComplete() ? statistics : null;
+            } catch (TimeoutException e) {
+                if (System.currentTimeMillis() >= options.getDeadline()
+                        || (cancellation != null && cancellation.isCancelled())) {
+                    return new PathStatistics.Builder<V>().complete(false).exploredFraction(0).graph(graph).build();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new PathStatistics.Builder<V>().complete(false).exploredFraction(0).graph(graph).build();
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+    }
 
-        // get start and goal verticies
-        final V start = graph.getStart();
-        final V goal = graph.getGoal();
+    /**
+     * Enumerates the path prefixes of the given graph, each starting at the start vertex and extending the given number
+     * of steps into the graph. Prefixes that fail the pruning tests along the way are dropped, and prefixes that reach
+     * the goal early are kept only if they form a hamiltonian path. The prefixes partition the search space, so the sum
+     * of {@link #countPaths(Graph, List)} over every prefix equals the path count of the graph.
+     * 
+     * @param graph
+     *            is the graph to enumerate path prefixes for.
+     * @param steps
+     *            is the number of steps (that is, edges) each prefix extends from the start vertex. Must be >= 0.
+     * @return the list of path prefixes, each beginning with the start vertex.
+     */
+    public List<List<V>> findPathPrefixes(final Graph<V> graph, final int steps) {
+        if (graph == null)
+            throw new NullPointerException();
+        if (steps < 0)
+            throw new IllegalArgumentException("The number of prefix steps must be >= 0");
 
-        // get the adjacency list
-        final AdjacencyList<V> adjacencyList = graph.getGraph();
+        final IndexedGraph<V> indexedGraph = IndexedGraph.create(graph);
+        final List<List<V>> prefixes = Lists.newArrayList();
+        for (final int[] prefix : findUnits(indexedGraph, indexedGraph.getStart(), steps, SearchKind.GOAL)) {
+            prefixes.add(indexedGraph.toVertices(prefix, prefix.length));
+        }
+        return prefixes;
+    }
 
-        // construct our start path
-        final HashSet<V> path = Sets.newHashSet();
-        path.add(start);
+    /**
+     * Counts the hamiltonian paths in the given graph that begin with the given path prefix.
+     * 
+     * @param graph
+     *            is the graph to obtain the path count from.
+     * @param prefix
+     *            is the path prefix, beginning with the start vertex of the given graph (see
+     *            {@link #findPathPrefixes(Graph, int)}).
+     * @return the number of hamiltonian paths beginning with the given prefix.
+     */
+    public long countPaths(final Graph<V> graph, final List<V> prefix) {
+        if (graph == null)
+            throw new NullPointerException();
+        if (prefix.isEmpty() || !prefix.get(0).equals(graph.getStart()))
+            throw new IllegalArgumentException("The path prefix must begin with the start vertex");
 
-        // creating one thread pool per method invocation. Alternatively a shared thread pool 
-        // could be passed in when the object is created.
-        final ExecutorService executorService = Executors.newCachedThreadPool();
-        try {
-            for (final V v : adjacencyList.getVerticesFromSource(start)) {
+        final IndexedGraph<V> indexedGraph = IndexedGraph.create(graph);
+        final SearchCounters counters = new SearchCounters();
+        final PathSearch<V> search = new PathSearch<V>(indexedGraph, biConnectedTester, counters);
+        search.start(indexedGraph.toIndices(prefix), prefix.size());
+        search.run(Long.MAX_VALUE);
+        return counters.getPaths();
+    }
+
+    /**
+     * Counts the hamiltonian paths from the start vertex of the given graph by the vertex they end at, ignoring the
+     * goal vertex of the graph. This counts the paths to every possible goal in a single search, which shares the work
+     * on every path prefix between all the goals, rather than searching once per goal.
+     * <p/>
+     * Without a known goal, the search is pruned by connectivity, and by allowing at most one dead end (see
+     * {@link ConnectedPruningStrategy#isTraversable}), which prunes less than the biconnectivity test of a count to a
+     * single goal.
+     * 
+     * @param graph
+     *            is the graph to count paths in.
+     * @return the number of hamiltonian paths ending at each vertex of the graph other than the start vertex, in the
+     *         order of the vertices of the graph.
+     */
+    public Map<V, Long> countPathsByEnd(final Graph<V> graph) {
+        if (graph == null)
+            throw new NullPointerException();
+
+        final IndexedGraph<V> indexedGraph = IndexedGraph.create(graph);
+        final int start = indexedGraph.getStart();
+        final Map<V, Long> counts = Maps.newLinkedHashMap();
+        if (start < 0) {
+            return counts;
+        }
+
+        final long[] endCounts = countEnds(indexedGraph, new int[] { start })[0];
+        for (int v = 0; v < indexedGraph.vertexCount(); v++) {
+            if (v != start) {
+                counts.put(indexedGraph.getVertex(v), endCounts[v]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the hamiltonian paths between every pair of vertices of the given graph, ignoring the start and goal
+     * vertices of the graph.
+     * <p/>
+     * Rather than counting each pair on its own, the paths from each start vertex to every end vertex are counted by a
+     * single any end search (see {@link #countPathsByEnd(Graph)}), and a path read backwards fills in the reverse pair,
+     * so the search runs from as few start vertices as cover every pair. In a bipartite graph, such as a grid of rooms,
+     * a path alternates between the two sides, so the ends of a path are on opposite sides when the sides are the same
+     * size, and both on the larger side when it has one more vertex; only the vertices of one side are searched from.
+     * The searches from all the start vertices are split into units of work that run in parallel.
+     * 
+     * @param graph
+     *            is the graph to count paths in.
+     * @return the {@link PathCountMatrix}.
+     */
+    public PathCountMatrix<V> countPathsByPair(final Graph<V> graph) {
+        if (graph == null)
+            throw new NullPointerException();
+
+        final long startTime = System.currentTimeMillis();
+        final IndexedGraph<V> indexedGraph = IndexedGraph.create(graph);
+        final int n = indexedGraph.vertexCount();
+        final long[][] counts = new long[n][n];
+        if (n == 1) {
+            counts[0][0] = 1;
+        }
+
+        final int[] starts = coveringStarts(indexedGraph);
+        final long[][] endCounts = countEnds(indexedGraph, starts);
+        for (int s = 0; s < starts.length; s++) {
+            for (int v = 0; v < n; v++) {
+                if (v != starts[s]) {
+                    counts[starts[s]][v] = endCounts[s][v];
+                    counts[v][starts[s]] = endCounts[s][v];
+                }
+            }
+        }
+        return new PathCountMatrix<V>(indexedGraph.getVertices(), counts, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Chooses the vertices to search from so that every pair of vertices that may be the ends of a hamiltonian path
+     * is covered by a search from one of them.
+     * 
+     * @param graph
+     *            is the graph to count paths in.
+     * @return the indices of the start vertices, empty if the graph can't have a hamiltonian path between two
+     *         vertices.
+     */
+    private static int[] coveringStarts(final IndexedGraph<?> graph) {
+        final int n = graph.vertexCount();
+        if (n < 2) {
+            return new int[0];
+        }
+
+        // two color the graph from vertex 0, to find whether it is connected and bipartite
+        final int[] colors = new int[n];
+        Arrays.fill(colors, -1);
+        final int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = 0;
+        colors[0] = 0;
+        boolean bipartite = true;
+        while (head < tail) {
+            final int v = queue[head++];
+            for (final int w : graph.getNeighbors(v)) {
+                if (colors[w] < 0) {
+                    colors[w] = 1 - colors[v];
+                    queue[tail++] = w;
+                } else if (colors[w] == colors[v]) {
+                    bipartite = false;
+                }
+            }
+        }
+        if (tail < n) {
+            return new int[0];
+        }
+
+        final List<Integer> starts = Lists.newArrayList();
+        if (bipartite) {
+            int sides = 0;
+            for (final int color : colors) {
+                sides += color;
+            }
+            // the number of vertices of the side with color 1, less that of the side with color 0
+            final int difference = 2 * sides - n;
+            if (Math.abs(difference) > 1) {
+                return new int[0];
+            }
+            final int side = difference > 0 ? 1 : 0;
+            for (int v = 0; v < n; v++) {
+                if (colors[v] == side) {
+                    starts.add(v);
+                }
+            }
+            if (difference != 0) {
+                // both ends are on the larger side, so the pairs of its last vertex are covered by the others
+                starts.remove(starts.size() - 1);
+            }
+        } else {
+            // the pairs of the last vertex are covered by the others
+            for (int v = 0; v < n - 1; v++) {
+                starts.add(v);
+            }
+        }
+
+        final int[] result = new int[starts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = starts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the hamiltonian paths from each of the given start vertices by the vertex they end at, with the searches
+     * from all the start vertices split into units of work that run in parallel.
+     * 
+     * @param graph
+     *            is the graph to count paths in.
+     * @param starts
+     *            holds the indices of the start vertices.
+     * @return the number of paths ending at each vertex, by vertex index, for each start vertex.
+     */
+    private long[][] countEnds(final IndexedGraph<V> graph, final int[] starts) {
+        final int n = graph.vertexCount();
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final int unitsPerStart = starts.length == 0 ? 0 : Math.max(threads, threads * UNITS_PER_THREAD
+                / starts.length);
+
+        // the units of all the searches, and the row of the start vertex each begins with
+        final List<int[]> units = Lists.newArrayList();
+        final int[] rows = new int[n];
+        for (int s = 0; s < starts.length; s++) {
+            rows[starts[s]] = s;
+            units.addAll(splitUnits(graph, starts[s], unitsPerStart, SearchKind.ANY_END));
+        }
+
+        final AtomicInteger nextUnit = new AtomicInteger();
+        final List<long[][]> workerCounts = Lists.newArrayList();
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            final long[][] endCounts = new long[starts.length][];
+            workerCounts.add(endCounts);
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // a search per start vertex, created by the first unit from that vertex
+                    final List<PathSearch<V>> searches = Lists.newArrayList();
+                    for (int s = 0; s < starts.length; s++) {
+                        searches.add(null);
+                    }
+                    int unit;
+                    while ((unit = nextUnit.getAndIncrement()) < units.size()) {
+                        final int[] prefix = units.get(unit);
+                        final int row = rows[prefix[0]];
+                        if (searches.get(row) == null) {
+                            endCounts[row] = new long[n];
+                            searches.set(row, newSearch(graph, SearchKind.ANY_END, prefix[0],
+                                    new SearchCounters(), endCounts[row]));
+                        }
+                        searches.get(row).start(prefix, prefix.length);
+                        searches.get(row).run(Long.MAX_VALUE);
+                    }
+                }
+            });
+        }
+        executorService.shutdown();
+        if (awaitTermination(executorService, null)) {
+            Thread.currentThread().interrupt();
+        }
+
+        final long[][] counts = new long[starts.length][n];
+        for (final long[][] endCounts : workerCounts) {
+            for (int s = 0; s < starts.length; s++) {
+                if (endCounts[s] != null) {
+                    for (int v = 0; v < n; v++) {
+                        counts[s][v] += endCounts[s][v];
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the hamiltonian cycles in the given graph, ignoring its start and goal vertices.
+     * <p/>
+     * Every cycle passes through every vertex, so only the cycles through a single root vertex are searched for, which
+     * leaves out the rotations of each cycle; the root is a vertex of least degree, which has the fewest branches. The
+     * search still finds each cycle in both directions, so the count is halved. Cycles are pruned by the same
+     * biconnectivity test as paths, with the root as the goal the path returns to.
+     * 
+     * @param graph
+     *            is the graph to count cycles in.
+     * @return the {@link PathStatistics} of the count, whose path count is the number of cycles.
+     */
+    public PathStatistics<V> countCycles(final Graph<V> graph) {
+        if (graph == null)
+            throw new NullPointerException();
+
+        final long startTime = System.currentTimeMillis();
+        final IndexedGraph<V> indexedGraph = IndexedGraph.create(graph);
+        final int n = indexedGraph.vertexCount();
+        final List<SearchCounters> workerCounters = Lists.newArrayList();
+
+        // a cycle needs at least three vertices
+        if (n >= 3) {
+            int root = 0;
+            for (int v = 1; v < n; v++) {
+                if (indexedGraph.getNeighbors(v).length < indexedGraph.getNeighbors(root).length) {
+                    root = v;
+                }
+            }
+
+            final int threads = Runtime.getRuntime().availableProcessors();
+            final List<int[]> units = splitUnits(indexedGraph, root, threads * UNITS_PER_THREAD, SearchKind.CYCLE);
+            final AtomicInteger nextUnit = new AtomicInteger();
+            final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                final SearchCounters counters = new SearchCounters();
+                workerCounters.add(counters);
+                final PathSearch<V> search = newSearch(indexedGraph, SearchKind.CYCLE, root, counters, null);
                 executorService.execute(new Runnable() {
                     @Override
                     public void run() {
-                        mainSearch(depth, pathCount, path, adjacencyList, v, goal);
+                        int unit;
+                        while ((unit = nextUnit.getAndIncrement()) < units.size()) {
+                            search.start(units.get(unit), units.get(unit).length);
+                            search.run(Long.MAX_VALUE);
+                        }
                     }
                 });
             }
             executorService.shutdown();
-            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            // shouldn't happen
-            throw new AssertionError(e);
+            if (awaitTermination(executorService, null)) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        final SearchCounters counters = new SearchCounters();
+        for (final SearchCounters worker : workerCounters) {
+            counters.add(worker);
+        }
+        return new PathStatistics.Builder<V>()
+                .depth(counters.getExpansions())
+                .count(counters.getPaths() / 2)
+                .counters(counters)
+                .workerCounters(workerCounters)
+                .complete(true)
+                .exploredFraction(1.0)
+                .elapsedTime(System.currentTimeMillis() - startTime)
+                .graph(graph)
+                .build();
+    }
+
+    /**
+     * Lazily enumerates the hamiltonian paths in the given graph. The search only runs while the consumer asks for the
+     * next path, so it never gets ahead of the consumer, and it stops as soon as the consumer stops asking.
+     * 
+     * @param graph
+     *            is the graph to enumerate paths for.
+     * @return a {@link PathEnumeration} of the hamiltonian paths in the given graph.
+     */
+    public PathEnumeration<V> enumeratePaths(final Graph<V> graph) {
+        if (graph == null)
+            throw new NullPointerException();
+
+        final IndexedGraph<V> indexedGraph = IndexedGraph.create(graph);
+        final PathSearch<V> search = new PathSearch<V>(indexedGraph, biConnectedTester, new SearchCounters());
+        search.start(new int[] { indexedGraph.getStart() }, 1);
+        return new PathEnumeration<V>(indexedGraph, search);
+    }
+
+    /**
+     * Estimates the cost and result of counting the hamiltonian paths in the given graph, without running the count.
+     * The estimate is made from as many random probes down the pruned search tree as fit in the given time budget.
+     * 
+     * @param graph
+     *            is the graph to estimate the path count of.
+     * @param timeBudget
+     *            is the time to spend on the estimate, in milliseconds. Must be >= 0.
+     * @return the {@link SearchEstimate}.
+     */
+    public SearchEstimate estimateSearch(final Graph<V> graph, final long timeBudget) {
+        if (timeBudget < 0)
+            throw new IllegalArgumentException("The time budget must be >= 0");
+        return estimateSearch(graph, Integer.MAX_VALUE, timeBudget, new Random());
+    }
+
+    /**
+     * Estimates the cost and result of counting the hamiltonian paths in the given graph, without running the count.
+     * The estimate is made from the given number of random probes down the pruned search tree.
+     * 
+     * @param graph
+     *            is the graph to estimate the path count of.
+     * @param probes
+     *            is the number of probes to make. Must be >= 1.
+     * @param random
+     *            is the source of randomness of the probes.
+     * @return the {@link SearchEstimate}.
+     */
+    public SearchEstimate estimateSearch(final Graph<V> graph, final int probes, final Random random) {
+        if (probes < 1)
+            throw new IllegalArgumentException("The number of probes must be >= 1");
+        if (random == null)
+            throw new NullPointerException();
+        return estimateSearch(graph, probes, Long.MAX_VALUE, random);
+    }
+
+    /**
+     * Approximates the number of hamiltonian paths in the given graph by sampling random walks on all processors (see
+     * {@link PathApproximation}), for when the order of magnitude of the count is all that matters. Sampling a graph
+     * whose walks never complete a path stops once paths are known to be too rare to approximate to the target error.
+     * 
+     * @param graph
+     *            is the graph to approximate the path count of.
+     * @param targetRelativeError
+     *            is the relative standard error at which to stop sampling. Must be > 0.
+     * @param timeBudget
+     *            is the maximum time to spend sampling, in milliseconds. Must be >= 0.
+     * @return the {@link PathApproximation}.
+     */
+    public PathApproximation approximatePaths(final Graph<V> graph, final double targetRelativeError,
+            final long timeBudget) {
+        if (graph == null)
+            throw new NullPointerException();
+        if (!(targetRelativeError > 0))
+            throw new IllegalArgumentException("The target relative error must be > 0");
+        if (timeBudget < 0)
+            throw new IllegalArgumentException("The time budget must be >= 0");
+
+        final long now = System.currentTimeMillis();
+        final long deadline = Long.MAX_VALUE - timeBudget < now ? Long.MAX_VALUE : now + timeBudget;
+        final PathSampler<V> sampler = new PathSampler<V>(IndexedGraph.create(graph), biConnectedTester,
+                targetRelativeError, deadline);
+        return sampler.sample(Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    /**
+     * Splits the search space of the given graph into path prefixes of the given number of steps (see
+     * {@link #findPathPrefixes(Graph, int)}).
+     * 
+     * @param graph
+     *            is the graph to split.
+     * @param start
+     *            is the index of the vertex the prefixes begin with.
+     * @param steps
+     *            is the number of steps each prefix extends from the start vertex.
+     * @param kind
+     *            is the kind of search to split.
+     * @return the list of prefixes, as vertex indices.
+     */
+    private List<int[]> findUnits(final IndexedGraph<V> graph, final int start, final int steps,
+            final SearchKind kind) {
+        final List<int[]> units = Lists.newArrayList();
+        if (start < 0) {
+            return units;
         }
+
+        final PathSearch<V> search = newSearch(graph, kind, start, new SearchCounters(),
+                kind == SearchKind.ANY_END ? new long[graph.vertexCount()] : null);
+        search.setPrefixLength(steps + 1);
+        search.setVisitor(new PathSearch.Visitor() {
+            @Override
+            public boolean visit(final int[] path, final int length) {
+                final int[] unit = new int[length];
+                System.arraycopy(path, 0, unit, 0, length);
+                units.add(unit);
+                return true;
+            }
+        });
+        search.start(new int[] { start }, 1);
+        search.run(Long.MAX_VALUE);
+        return units;
     }
 
     /**
-     * Searches for hamiltonian paths, extended a new path to search for each neighbor of v.
+     * Creates a search of the given graph.
      * 
-     * @param pathCount
-     *            is the number of hamiltonian paths that have been found thus far.
-     * @param depth
-     *            is the search depth, excluding pruned searches.
-     * @param path
-     *            is the current path.
      * @param graph
      *            is the graph to search.
-     * @param vertex
-     *            is the current vertex.
-     * @param goal
-     *            is the goal vertex.
+     * @param kind
+     *            is the kind of search.
+     * @param start
+     *            is the index of the vertex the prefixes of the search begin with.
+     * @param counters
+     *            is the {@link SearchCounters} to update.
+     * @param endCounts
+     *            is the array to count paths by end vertex in, for an any end search; ignored otherwise.
+     * @return the {@link PathSearch}.
+     */
+    private PathSearch<V> newSearch(final IndexedGraph<V> graph, final SearchKind kind, final int start,
+            final SearchCounters counters, final long[] endCounts) {
+        switch (kind) {
+        case ANY_END:
+            return new PathSearch<V>(graph, connectedTester, counters, endCounts);
+        case CYCLE:
+            return new PathSearch<V>(graph, biConnectedTester, counters, start);
+        default:
+            return new PathSearch<V>(graph, biConnectedTester, counters);
+        }
+    }
+
+    /**
+     * Splits the search space of the given graph into at least the given number of units of work, where possible.
+     * 
+     * @param graph
+     *            is the graph to split.
+     * @param start
+     *            is the index of the vertex the units begin with.
+     * @param minimumUnits
+     *            is the number of units to aim for.
+     * @param kind
+     *            is the kind of search to split.
+     * @return the list of units, as path prefixes of vertex indices.
+     */
+    private List<int[]> splitUnits(final IndexedGraph<V> graph, final int start, final int minimumUnits,
+            final SearchKind kind) {
+        List<int[]> units = findUnits(graph, start, 0, kind);
+        for (int steps = 1; steps < graph.vertexCount() && units.size() < minimumUnits; steps++) {
+            final List<int[]> next = findUnits(graph, start, steps, kind);
+            // once every prefix has reached its end, longer prefixes won't split the search any further
+            boolean complete = true;
+            for (final int[] unit : next) {
+                complete &= unit.length <= steps;
+            }
+            units = next;
+            if (complete) {
+                break;
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Estimates the cost and result of counting the hamiltonian paths in the given graph. The search engine is first
+     * run for {@link #CALIBRATION_NODES} search nodes, in case the search is small enough to count its paths exactly.
+     * Random probes are then made until either limit is reached, after which the search engine is warmed up and run
+     * for another {@link #CALIBRATION_NODES} search nodes to measure its speed on the given graph.
+     * 
+     * @param graph
+     *            is the graph to estimate the path count of.
+     * @param maxProbes
+     *            is the maximum number of probes to make.
+     * @param timeBudget
+     *            is the time to spend on the estimate, in milliseconds.
+     * @param random
+     *            is the source of randomness of the probes.
+     * @return the {@link SearchEstimate}.
+     */
+    private SearchEstimate estimateSearch(final Graph<V> graph, final int maxProbes, final long timeBudget,
+            final Random random) {
+        if (graph == null)
+            throw new NullPointerException();
+
+        final long startTime = System.currentTimeMillis();
+        final long deadline = Long.MAX_VALUE - timeBudget < startTime ? Long.MAX_VALUE : startTime + timeBudget;
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final IndexedGraph<V> indexedGraph = IndexedGraph.create(graph);
+        if (indexedGraph.getStart() < 0) {
+            return new SearchEstimate(0, 0, 0, 0, 0, 1, threads);
+        }
+
+        final SearchCounters counters = new SearchCounters();
+        final PathSearch<V> search = new PathSearch<V>(indexedGraph, biConnectedTester, counters);
+        search.start(new int[] { indexedGraph.getStart() }, 1);
+        final long calibrationStart = System.nanoTime();
+        if (search.run(CALIBRATION_NODES)) {
+            final double nodesPerMilli = counters.nodes * 1e6 / Math.max(1, System.nanoTime() - calibrationStart);
+            return new SearchEstimate(0, counters.nodes, 0, counters.paths, 0, nodesPerMilli, threads);
+        }
+        double nodesPerMilli = counters.nodes * 1e6 / Math.max(1, System.nanoTime() - calibrationStart);
+
+        final PathSearch<V> probe = new PathSearch<V>(indexedGraph, biConnectedTester, new SearchCounters());
+        final double[] estimates = new double[2];
+        double nodesSum = 0;
+        double nodesSquares = 0;
+        double pathsSum = 0;
+        double pathsSquares = 0;
+        int probes = 0;
+        // at least two probes are needed for a standard error
+        while (probes < maxProbes && (probes < 2 || System.currentTimeMillis() < deadline)) {
+            probe.probe(random, estimates);
+            nodesSum += estimates[0];
+            nodesSquares += estimates[0] * estimates[0];
+            pathsSum += estimates[1];
+            pathsSquares += estimates[1] * estimates[1];
+            probes++;
+        }
+
+        // the speed of the search is measured once it has been warmed up (just in time compiled)
+        for (int i = 0; i <= CALIBRATION_WARMUPS; i++) {
+            final long nodes = counters.nodes;
+            final long sliceStart = System.nanoTime();
+            final boolean exhausted = search.run(CALIBRATION_NODES);
+            if (counters.nodes > nodes) {
+                nodesPerMilli = (counters.nodes - nodes) * 1e6 / Math.max(1, System.nanoTime() - sliceStart);
+            }
+            if (exhausted) {
+                // the search turned out to be small enough to count exactly after all
+                return new SearchEstimate(0, counters.nodes, 0, counters.paths, 0, nodesPerMilli, threads);
+            }
+        }
+
+        return new SearchEstimate(probes, nodesSum / probes, standardError(nodesSum, nodesSquares, probes), pathsSum
+                / probes, standardError(pathsSum, pathsSquares, probes), nodesPerMilli, threads);
+    }
+
+    /**
+     * @param sum
+     *            is the sum of a sample.
+     * @param squares
+     *            is the sum of the squares of the sample.
+     * @param n
+     *            is the size of the sample.
+     * @return the standard error of the mean of the sample.
+     */
+    private static double standardError(final double sum, final double squares, final int n) {
+        if (n < 2) {
+            return 0;
+        }
+        final double variance = Math.max(0, (squares - sum * sum / n) / (n - 1));
+        return Math.sqrt(variance / n);
+    }
+
+    /**
+     * Performs the path count, running each of the given workers on its own thread. If the calling thread is
+     * interrupted, the count is stopped as if it had been cancelled, and the interrupt status is restored once the
+     * workers have stopped.
+     * 
+     * @param workers
+     *            is the list of {@link SearchWorker}s to run.
+     * @param limits
+     *            is the {@link SearchLimits} of the count.
+     */
+    private void performPathCount(final List<SearchWorker> workers, final SearchLimits limits) {
+        // creating one thread pool per method invocation. Alternatively a shared thread pool 
+        // could be passed in when the object is created.
+        final ExecutorService executorService = Executors.newFixedThreadPool(workers.size());
+        for (final SearchWorker worker : workers) {
+            executorService.execute(worker);
+        }
+        executorService.shutdown();
+        if (awaitTermination(executorService, limits)) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the given executor service to terminate, even if the calling thread is interrupted.
+     * 
+     * @param executorService
+     *            is the {@link ExecutorService}, which must have been shut down.
+     * @param limits
+     *            is the {@link SearchLimits} to stop if the calling thread is interrupted, or null.
+     * @return true if the calling thread was interrupted while waiting.
      */
-    private void mainSearch(final AtomicLong depth, final AtomicLong pathCount, final Set<V> path,
-            final AdjacencyList<V> graph, final V vertex, final V goal) {
+    private static boolean awaitTermination(final ExecutorService executorService, final SearchLimits limits) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS)) {
+                    return interrupted;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                if (limits != null) {
+                    limits.stop();
+                }
+            }
+        }
+    }
+
+    /**
+     * Searches units of work until none remain, or the count is stopped. Each unit is searched in slices of at most
+     * {@link #SLICE_NODES} search nodes, and the limits of the count are checked between slices.
+     * 
+     * @author mattt
+     */
+    private final class SearchWorker implements Runnable {
+
+        private final IndexedGraph<V> graph;
+        private final List<int[]> units;
+        private final AtomicLongArray unitCounts;
+        private final AtomicInteger nextUnit;
+        private final SearchLimits limits;
+
+        private final SearchCounters counters = new SearchCounters();
+
+        // published after every slice of work, so they can be sampled without locking the counters
+        private volatile long publishedNodes;
+        // the paths found in, and the explored fraction of, the unit being searched (or the unit searched when the
+        // count stopped)
+        private volatile long unitPaths;
+        private volatile double unitFraction;
+
+        /**
+         * @param graph
+         *            is the graph to search.
+         * @param units
+         *            is the list of units of work, as path prefixes of vertex indices.
+         * @param unitCounts
+         *            holds the path count of each unit, or -1 for a pending unit. The count of a unit is set once the
+         *            unit has been completed.
+         * @param nextUnit
+         *            is the index of the next unit to search, shared by all workers.
+         * @param limits
+         *            is the {@link SearchLimits} of the count, shared by all workers.
+         */
+        SearchWorker(final IndexedGraph<V> graph, final List<int[]> units, final AtomicLongArray unitCounts,
+                final AtomicInteger nextUnit, final SearchLimits limits) {
+            this.graph = graph;
+            this.units = units;
+            this.unitCounts = unitCounts;
+            this.nextUnit = nextUnit;
+            this.limits = limits;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            final PathSearch<V> search = new PathSearch<V>(graph, biConnectedTester, counters);
+            search.setStopToken(limits.getStopToken());
+            if (limits.hasPathLimit()) {
+                search.setWarnsdorffOrder(true);
+                search.setVisitor(new PathSearch.Visitor() {
+                    @Override
+                    public boolean visit(final int[] path, final int length) {
+                        limits.addPath();
+                        return !limits.isStopped();
+                    }
+                });
+            }
+            for (int u = nextUnit.getAndIncrement(); u < units.size() && !limits.isStopped(); u = nextUnit
+                    .getAndIncrement()) {
+                if (unitCounts.get(u) >= 0) {
+                    // completed before the count was resumed
+                    continue;
+                }
+                final int[] unit = units.get(u);
+                final long paths = counters.paths;
+                search.start(unit, unit.length);
+
+                boolean exhausted;
+                do {
+                    final long nodes = counters.nodes;
+                    exhausted = search.run(limits.nextSlice());
+                    limits.consume(counters.nodes - nodes);
+                    publishedNodes = counters.nodes;
+                    if (!exhausted) {
+                        unitPaths = counters.paths - paths;
+                        unitFraction = search.getExploredFraction();
+                    }
+                } while (!exhausted && !limits.isStopped());
+
+                if (!exhausted) {
+                    // the unit stays pending; its partial results only count towards the statistics of this run
+                    return;
+                }
+                unitPaths = 0;
+                unitFraction = 0;
+                unitCounts.set(u, counters.paths - paths);
+            }
+        }
+    }
+
+    /**
+     * The deadline, node budget and cancellation token of a count, checked by the search threads between slices of
+     * work, and its path limit, checked whenever a path is found. Once any limit has been reached, the count stays
+     * stopped; the search threads check the stop token before every search node, so they stop without finishing their
+     * slice.
+     * 
+     * @author mattt
+     */
+    private static final class SearchLimits {
+
+        private final long deadline;
+        private final long nodeBudget;
+        private final long pathLimit;
+        private final CancellationToken cancellation;
+
+        // the number of search nodes visited by all threads, only maintained for a count with a node budget
+        private final AtomicLong nodes = new AtomicLong();
+        // the number of paths found by all threads, only maintained for a count with a path limit
+        private final AtomicLong paths = new AtomicLong();
+        private final CancellationToken stopToken = new CancellationToken();
+
+        /**
+         * @param options
+         *            is the {@link SearchOptions} of the count.
+         */
+        SearchLimits(final SearchOptions options) {
+            this.deadline = options.getDeadline();
+            this.nodeBudget = options.getNodeBudget();
+            this.pathLimit = options.getPathLimit();
+            this.cancellation = options.getCancellation();
+        }
+
+        /**
+         * @return the token cancelled once the count is stopped.
+         */
+        CancellationToken getStopToken() {
+            return stopToken;
+        }
+
+        /**
+         * @return true if the count has a path limit.
+         */
+        boolean hasPathLimit() {
+            return pathLimit != Long.MAX_VALUE;
+        }
+
+        /**
+         * Accounts for a path found, and stops the count if the path limit has been reached.
+         */
+        void addPath() {
+            if (paths.incrementAndGet() >= pathLimit) {
+                stopToken.cancel();
+            }
+        }
 
-        // if we've visited it, return
-        if (path.contains(vertex)) {
-            return;
+        /**
+         * @return the maximum number of search nodes to visit in the next slice of work.
+         */
+        long nextSlice() {
+            if (nodeBudget == Long.MAX_VALUE) {
+                return SLICE_NODES;
+            }
+            return Math.max(1, Math.min(SLICE_NODES, nodeBudget - nodes.get()));
         }
 
-        // extended the current path
-        final Set<V> currentPath = Sets.newHashSet(path);
-        currentPath.add(vertex);
+        /**
+         * Accounts for a slice of work, and stops the count if any limit has been reached.
+         * 
+         * @param sliceNodes
+         *            is the number of search nodes visited during the slice.
+         */
+        void consume(final long sliceNodes) {
+            if (nodeBudget != Long.MAX_VALUE && nodes.addAndGet(sliceNodes) >= nodeBudget) {
+                stopToken.cancel();
+            }
+            if (deadline != Long.MAX_VALUE && System.currentTimeMillis() >= deadline) {
+                stopToken.cancel();
+            }
+            if (cancellation != null && cancellation.isCancelled()) {
+                stopToken.cancel();
+            }
+        }
+
+        /**
+         * Stops the count.
+         */
+        void stop() {
+            stopToken.cancel();
+        }
 
-        // the current vertex is the goal (may or may not be a hamiltonian path)
-        if (vertex.equals(goal)) {
-            // if we're at the goal and we've explored all verticies then we
-            // have found a hamiltonian path
-            if (graph.vertexCount() == currentPath.size()) {
-                pathCount.incrementAndGet();
+        /**
+         * @return true if the count has been stopped.
+         */
+        boolean isStopped() {
+            return stopToken.isCancelled();
+        }
+    }
+
+    /**
+     * Tallies the units of a count, and the partial results of the units being searched, without locking. While the
+     * count is running, a tally is only approximate: a unit completing during the tally may be missed.
+     * 
+     * @author mattt
+     */
+    private final class UnitTally {
+
+        private final int totalUnits;
+        private int completedUnits;
+        private double exploredUnits;
+        private final CountAccumulator pathCount = new CountAccumulator();
+
+        /**
+         * @param workers
+         *            is the list of {@link SearchWorker}s of the count.
+         * @param unitCounts
+         *            holds the path count of each unit, or -1 for a pending unit.
+         */
+        UnitTally(final List<SearchWorker> workers, final AtomicLongArray unitCounts) {
+            this.totalUnits = unitCounts.length();
+            for (final SearchWorker worker : workers) {
+                pathCount.add(worker.unitPaths);
+                exploredUnits += worker.unitFraction;
+            }
+            for (int u = 0; u < totalUnits; u++) {
+                final long count = unitCounts.get(u);
+                if (count >= 0) {
+                    // each unit is counted in a long; the total is accumulated without overflowing
+                    pathCount.add(count);
+                    completedUnits++;
+                }
             }
-            return;
+            exploredUnits += completedUnits;
         }
 
-        /* 
-         * // Use this adjacency list in in the subsequent pruning tests to test edge removal 
-         *  final AdjacencyList<V> pruneGraph = edgePruningStrategy.removeNonDegree2NeighborEdges(graph, path, vertex, goal);
+        /**
+         * @return the estimated fraction of the search space explored, assuming every unit is of the same size.
          */
+        double getExploredFraction() {
+            return totalUnits == 0 ? 1.0 : Math.min(1.0, exploredUnits / totalUnits);
+        }
+    }
+
+    /**
+     * Periodically samples the progress of a count, and reports it to a {@link ProgressListener}.
+     * 
+     * @author mattt
+     */
+    private final class ProgressSampler implements Runnable {
+
+        private final ProgressListener listener;
+        private final List<SearchWorker> workers;
+        private final AtomicLongArray unitCounts;
+        private final long startTime;
+
+        // the explored fraction of a resumed count when it was resumed, which doesn't count towards its rate
+        private final double initialFraction;
+
+        private long lastNodes;
+        private long lastTime;
+
+        /**
+         * @param listener
+         *            is the {@link ProgressListener} to report to.
+         * @param workers
+         *            is the list of {@link SearchWorker}s of the count.
+         * @param unitCounts
+         *            holds the path count of each unit, or -1 for a pending unit.
+         * @param startTime
+         *            is the time at which the count started, in milliseconds.
+         */
+        ProgressSampler(final ProgressListener listener, final List<SearchWorker> workers,
+                final AtomicLongArray unitCounts, final long startTime) {
+            this.listener = listener;
+            this.workers = workers;
+            this.unitCounts = unitCounts;
+            this.startTime = startTime;
+            this.initialFraction = new UnitTally(workers, unitCounts).getExploredFraction();
+            this.lastTime = startTime;
+        }
 
         /*
-         * // Valid degree check
-         * if (!degreeTester.hasValidDegrees(path, pruneGraph, vertex, goal)) { return; }
+         * (non-Javadoc)
+         * @see java.lang.Runnable#run()
          */
+        @Override
+        public void run() {
+            final long now = System.currentTimeMillis();
+            long nodes = 0;
+            for (final SearchWorker worker : workers) {
+                nodes += worker.publishedNodes;
+            }
+            final UnitTally tally = new UnitTally(workers, unitCounts);
+            final double fraction = tally.getExploredFraction();
 
-        // Biconnectivity check
-        if (!biConnectedTester.isBiConnected(graph, vertex, path, goal)) {
-            return;
+            final long elapsed = now - startTime;
+            final double nodesPerSecond = now > lastTime ? (nodes - lastNodes) * 1000.0 / (now - lastTime) : 0;
+            // extrapolate the rate at which the search space has been explored so far
+            long remaining = -1;
+            if (fraction >= 1.0) {
+                remaining = 0;
+            } else if (fraction > initialFraction && elapsed > 0) {
+                remaining = (long) ((1.0 - fraction) * elapsed / (fraction - initialFraction));
+            }
+            lastNodes = nodes;
+            lastTime = now;
+
+            listener.progress(new SearchProgress(elapsed, nodes, nodesPerSecond, tally.completedUnits,
+                    tally.totalUnits, tally.pathCount.toBigInteger(), fraction, remaining));
         }
+    }
+
+    /**
+     * Periodically writes a {@link SearchCheckpoint} of a count in progress. Snapshots are taken from the unit counts
+     * without blocking the search threads.
+     * 
+     * @author mattt
+     */
+    private static final class CheckpointWriter implements Runnable {
+
+        private final File file;
+        private final IndexedGraph<?> graph;
+        private final List<int[]> units;
+        private final AtomicLongArray unitCounts;
 
-        /* 
-         * // Connectivity check
-         * if (!connectedTester.isConnected(path, graph, vertex)) { return; }
+        /**
+         * @param file
+         *            is the file to write checkpoints to.
+         * @param graph
+         *            is the graph being counted.
+         * @param units
+         *            is the list of units of the count.
+         * @param unitCounts
+         *            holds the path count of each unit, or -1 for a pending unit.
          */
+        CheckpointWriter(final File file, final IndexedGraph<?> graph, final List<int[]> units,
+                final AtomicLongArray unitCounts) {
+            this.file = file;
+            this.graph = graph;
+            this.units = units;
+            this.unitCounts = unitCounts;
+        }
 
-        depth.incrementAndGet();
-        for (final V w : graph.getVerticesFromSource(vertex)) {
-            mainSearch(depth, pathCount, currentPath, graph, w, goal);
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            try {
+                SearchCheckpoint.snapshot(graph, units, unitCounts).write(file);
+            } catch (IOException e) {
+                // a failed checkpoint shouldn't fail the count; the next one may well succeed
+                System.err.println("Unable to write checkpoint " + file + ": " + e.getMessage());
+            }
         }
     }
 }
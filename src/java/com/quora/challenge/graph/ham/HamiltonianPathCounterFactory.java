@@ -1,5 +1,9 @@
 package com.quora.challenge.graph.ham;
 
+import com.google.common.base.Function;
+import com.quora.challenge.PathStatistics;
+import com.quora.challenge.cache.ResultCache;
+import com.quora.challenge.graph.Graph;
 import com.quora.challenge.graph.ham.pruning.BiConnectedPruningStrategy;
 import com.quora.challenge.graph.ham.pruning.ConnectedPruningStrategy;
 import com.quora.challenge.graph.ham.pruning.EdgePruningStrategy;
@@ -37,4 +41,47 @@ public final class HamiltonianPathCounterFactory<V> {
         );
     }
 
+    /**
+     * Obtains a path counter instance that caches counts by the given key, so that counts of graphs with equal keys
+     * are shared.
+     * 
+     * @param <V>
+     *            is the vertex type associated with this path counter.
+     * @param keyFunction
+     *            maps a graph to its key. Graphs with equal keys must have the same number of hamiltonian paths.
+     * @return a {@link HamiltonianPathCounter} instance.
+     */
+    public static <V> HamiltonianPathCounter<V> getInstance(final Function<? super Graph<V>, ?> keyFunction) {
+        return new HamiltonianPathCounter<V>(
+                new BiConnectedPruningStrategy<V>(), 
+                new ConnectedPruningStrategy<V>(),
+                new AdmissibleDegreePruningStrategy<V>(), 
+                new EdgePruningStrategy<V>(),
+                keyFunction
+        );
+    }
+
+    /**
+     * Obtains a path counter instance that caches counts by the given key in the given cache.
+     * 
+     * @param <V>
+     *            is the vertex type associated with this path counter.
+     * @param keyFunction
+     *            maps a graph to its key. Graphs with equal keys must have the same number of hamiltonian paths.
+     * @param resultCache
+     *            caches complete path count statistics by graph key.
+     * @return a {@link HamiltonianPathCounter} instance.
+     */
+    public static <V> HamiltonianPathCounter<V> getInstance(final Function<? super Graph<V>, ?> keyFunction,
+            final ResultCache<Object, PathStatistics<V>> resultCache) {
+        return new HamiltonianPathCounter<V>(
+                new BiConnectedPruningStrategy<V>(), 
+                new ConnectedPruningStrategy<V>(),
+                new AdmissibleDegreePruningStrategy<V>(), 
+                new EdgePruningStrategy<V>(),
+                keyFunction,
+                resultCache
+        );
+    }
+
 }
@@ -0,0 +1,119 @@
+package com.quora.challenge.graph.ham;
+
+/**
+ * An approximate count of the hamiltonian paths in a graph, made by sequential importance sampling (see
+ * {@link HamiltonianPathCounter#approximatePaths(com.quora.challenge.graph.Graph, double, long)}).
+ * <p/>
+ * Each sample is a random self-avoiding walk from the start vertex, weighted by the product of the number of choices
+ * it had at every step; the weight of a walk that completes a hamiltonian path is an unbiased estimate of the number of
+ * paths, and the weight of any other walk is 0. The count is the mean weight over all samples, and its confidence
+ * interval is based on the standard error of the mean.
+ *
+ * @author mattt
+ */
+public final class PathApproximation {
+
+    // the 97.5th percentile of the standard normal distribution
+    private static final double Z_95 = 1.96;
+
+    private final long samples;
+    private final double mean;
+    private final double variance;
+    private final boolean converged;
+    private final long elapsedTime;
+
+    /**
+     * @param samples
+     *            is the number of walks sampled.
+     * @param mean
+     *            is the mean weight of the walks.
+     * @param variance
+     *            is the sample variance of the weights of the walks.
+     * @param converged
+     *            is true if the target relative error was reached.
+     * @param elapsedTime
+     *            is the time spent sampling, in milliseconds.
+     */
+    PathApproximation(final long samples, final double mean, final double variance, final boolean converged,
+            final long elapsedTime) {
+        this.samples = samples;
+        this.mean = mean;
+        this.variance = variance;
+        this.converged = converged;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * @return the number of walks sampled.
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the estimated number of hamiltonian paths.
+     */
+    public double getCount() {
+        return mean;
+    }
+
+    /**
+     * @return the sample variance of the weights of the walks.
+     */
+    public double getVariance() {
+        return variance;
+    }
+
+    /**
+     * @return the standard error of the estimated number of hamiltonian paths.
+     */
+    public double getStandardError() {
+        return samples == 0 ? Double.POSITIVE_INFINITY : Math.sqrt(variance / samples);
+    }
+
+    /**
+     * @return the standard error relative to the estimated number of paths, or infinity if no path has been sampled.
+     */
+    public double getRelativeError() {
+        return mean > 0 ? getStandardError() / mean : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the lower bound of the 95% confidence interval of the number of paths.
+     */
+    public double getLow() {
+        return Math.max(0, mean - Z_95 * getStandardError());
+    }
+
+    /**
+     * @return the upper bound of the 95% confidence interval of the number of paths.
+     */
+    public double getHigh() {
+        return mean + Z_95 * getStandardError();
+    }
+
+    /**
+     * @return true if sampling stopped because the target relative error was reached, false if it ran out of time.
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * @return the time spent sampling, in milliseconds.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("[count=%.4g (%.4g - %.4g), relative error=%.3g, samples=%d, %s in %d ms]", mean,
+                getLow(), getHigh(), getRelativeError(), samples, converged ? "converged" : "not converged",
+                elapsedTime);
+    }
+}
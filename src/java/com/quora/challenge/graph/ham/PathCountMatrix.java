@@ -0,0 +1,118 @@
+package com.quora.challenge.graph.ham;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * The number of hamiltonian paths between every pair of vertices of a graph (see
+ * {@link HamiltonianPathCounter#countPathsByPair(com.quora.challenge.graph.Graph)}). A path read backwards is a path
+ * between the same pair of vertices, so the matrix is symmetric, and its diagonal is 0 (except in a graph of a single
+ * vertex).
+ *
+ * @author mattt
+ * @param <V>
+ *            is the vertex type of the graph.
+ */
+public final class PathCountMatrix<V> {
+
+    private final List<V> vertices;
+    private final Map<V, Integer> indices;
+    private final long[][] counts;
+    private final long elapsedTime;
+
+    /**
+     * @param vertices
+     *            is the list of vertices, by index.
+     * @param counts
+     *            is the number of paths between each pair of vertices, by index.
+     * @param elapsedTime
+     *            is the time spent counting, in milliseconds.
+     */
+    PathCountMatrix(final List<V> vertices, final long[][] counts, final long elapsedTime) {
+        this.vertices = vertices;
+        this.counts = counts;
+        this.elapsedTime = elapsedTime;
+        this.indices = Maps.newHashMap();
+        for (int i = 0; i < vertices.size(); i++) {
+            indices.put(vertices.get(i), i);
+        }
+    }
+
+    /**
+     * @return the vertices of the graph, in the order of the rows and columns of the matrix.
+     */
+    public List<V> getVertices() {
+        return vertices;
+    }
+
+    /**
+     * @param from
+     *            is the index of a vertex (see {@link #getVertices()}).
+     * @param to
+     *            is the index of a vertex.
+     * @return the number of hamiltonian paths between the two vertices.
+     */
+    public long getCount(final int from, final int to) {
+        return counts[from][to];
+    }
+
+    /**
+     * @param from
+     *            is a vertex of the graph.
+     * @param to
+     *            is a vertex of the graph.
+     * @return the number of hamiltonian paths between the two vertices.
+     * @throws IllegalArgumentException
+     *             if either vertex isn't a vertex of the graph.
+     */
+    public long getCount(final V from, final V to) {
+        return counts[indexOf(from)][indexOf(to)];
+    }
+
+    /**
+     * @return the number of hamiltonian paths in the graph, each counted once whichever end it is read from.
+     */
+    public long getTotal() {
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            for (int j = i + 1; j < counts.length; j++) {
+                total += counts[i][j];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return the time spent counting, in milliseconds.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            sb.append(vertices.get(i));
+            for (int j = 0; j < counts.length; j++) {
+                sb.append('\t').append(counts[i][j]);
+            }
+            sb.append('\n');
+        }
+        sb.append("[total=").append(getTotal()).append(", ").append(elapsedTime).append(" ms]");
+        return sb.toString();
+    }
+
+    private int indexOf(final V vertex) {
+        final Integer index = indices.get(vertex);
+        if (index == null)
+            throw new IllegalArgumentException(vertex + " is not a vertex of the graph");
+        return index;
+    }
+}
@@ -0,0 +1,736 @@
+package com.quora.challenge.graph.ham;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.quora.challenge.RoomGraphFactory;
+import com.quora.challenge.command.InputGrid;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+import com.quora.challenge.graph.IndexedGraph;
+
+/**
+ * A zero-suppressed decision diagram (ZDD) of the hamiltonian paths of a graph from its start vertex to its goal
+ * vertex, each path as the set of edges it uses. Once built, the diagram counts, enumerates and filters the paths
+ * without searching the graph again.
+ * <p/>
+ * The diagram is built by Knuth's Simpath algorithm, which decides the edges of the graph one at a time, in the order
+ * of their vertices, and merges partial edge sets that can be completed in the same ways. Two partial sets can be
+ * completed in the same ways when they agree on the 'mate' of every vertex of the frontier (the vertices with both
+ * decided and undecided edges): whether the vertex is untouched, the end of a path segment (and if so, the other end
+ * of that segment), or covered. The start and goal vertices begin as the two ends of a virtual segment, so a
+ * hamiltonian path is a set of edges closing that segment into a cycle through every vertex. For a grid, the frontier
+ * is about one row of rooms, so the diagram grows with the number of segment patterns along a row rather than with the
+ * number of paths.
+ * <p/>
+ * A node of the diagram decides one edge: its low child holds the sets without the edge, and its high child the sets
+ * with it. Edges skipped between a node and its child are not in any set below (zero suppression). The diagram is
+ * reduced: no node has the empty family as its high child, and no two nodes are alike, so every node other than the
+ * empty terminal holds at least one path. This class is immutable, so it may be used by any number of threads.
+ *
+ * @author mattt
+ * @param <V>
+ *            is the vertex type
+ */
+public final class PathDiagram<V> implements Iterable<List<V>> {
+
+    // the terminal nodes: the empty family, and the family holding only the empty set
+    private static final int EMPTY = 0;
+    private static final int UNIT = 1;
+
+    // the mate of a covered vertex
+    private static final int COVERED = -1;
+
+    // the size of a node, in bytes: its level and two children
+    private static final int NODE_SIZE = 12;
+
+    private final IndexedGraph<V> graph;
+    // the edges, by level
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+
+    // the nodes, children first; the terminals are at level edgeFrom.length
+    private final int[] levels;
+    private final int[] lows;
+    private final int[] highs;
+    private final int root;
+
+    // the number of nodes before reduction
+    private final long builtNodes;
+    private final long elapsedTime;
+
+    // the number of sets in the family of each node, computed on demand
+    private volatile BigInteger[] counts;
+
+    /**
+     * @param graph
+     *            is the graph of the paths.
+     * @param edgeFrom
+     *            is the lower vertex index of each edge, by level.
+     * @param edgeTo
+     *            is the higher vertex index of each edge, by level.
+     * @param reduced
+     *            is the reduced diagram.
+     * @param builtNodes
+     *            is the number of nodes before reduction.
+     * @param elapsedTime
+     *            is the time spent building the diagram, in milliseconds.
+     */
+    private PathDiagram(final IndexedGraph<V> graph, final int[] edgeFrom, final int[] edgeTo, final Nodes reduced,
+            final long builtNodes, final long elapsedTime) {
+        this.graph = graph;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.levels = reduced.levels;
+        this.lows = reduced.lows;
+        this.highs = reduced.highs;
+        this.root = reduced.root;
+        this.builtNodes = builtNodes;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * Builds the diagram of the hamiltonian paths of a grid of rooms.
+     *
+     * @param grid
+     *            is the grid.
+     * @return the {@link PathDiagram} of the paths of the room graph of the grid (see {@link RoomGraphFactory}).
+     */
+    public static PathDiagram<Room> build(final InputGrid grid) {
+        return build(RoomGraphFactory.generateRoomGraph(grid));
+    }
+
+    /**
+     * Builds the diagram of the hamiltonian paths of the given graph, from its start vertex to its goal vertex.
+     *
+     * @param <V>
+     *            is the vertex type
+     * @param graph
+     *            is the graph. Edges are expected in both directions, as in a room graph.
+     * @return the {@link PathDiagram}.
+     */
+    public static <V> PathDiagram<V> build(final Graph<V> graph) {
+        if (graph == null)
+            throw new NullPointerException();
+
+        final long startTime = System.currentTimeMillis();
+        final IndexedGraph<V> indexedGraph = IndexedGraph.create(graph);
+        final int n = indexedGraph.vertexCount();
+
+        // the edges, ordered by their lower vertex, then their higher vertex
+        final List<int[]> edges = Lists.newArrayList();
+        for (int v = 0; v < n; v++) {
+            final int[] neighbors = indexedGraph.getNeighbors(v).clone();
+            Arrays.sort(neighbors);
+            for (final int w : neighbors) {
+                if (v < w) {
+                    edges.add(new int[] { v, w });
+                }
+            }
+        }
+        final int[] edgeFrom = new int[edges.size()];
+        final int[] edgeTo = new int[edges.size()];
+        for (int i = 0; i < edgeFrom.length; i++) {
+            edgeFrom[i] = edges.get(i)[0];
+            edgeTo[i] = edges.get(i)[1];
+        }
+
+        final Nodes nodes = new Builder(n, indexedGraph.getStart(), indexedGraph.getGoal(), edgeFrom, edgeTo).build();
+        return new PathDiagram<V>(indexedGraph, edgeFrom, edgeTo, nodes.reduce(), nodes.size,
+                System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * @return the number of paths.
+     */
+    public BigInteger count() {
+        return getCounts()[root];
+    }
+
+    /**
+     * Filters out the paths using the edge between the given vertices. The diagram of the remaining paths is derived
+     * from this one, without searching the graph again.
+     *
+     * @param from
+     *            is a vertex of the edge.
+     * @param to
+     *            is the other vertex of the edge.
+     * @return the {@link PathDiagram} of the paths of this diagram that don't use the edge.
+     * @throws IllegalArgumentException
+     *             if the vertices aren't joined by an edge.
+     */
+    public PathDiagram<V> forbid(final V from, final V to) {
+        final int level = levelOf(from, to);
+
+        final Nodes nodes = new Nodes(edgeFrom.length, levels.length);
+        nodes.size = levels.length;
+        for (int node = 0; node < levels.length; node++) {
+            nodes.levels[node] = levels[node];
+            nodes.lows[node] = lows[node];
+            // the sets using the edge are dropped
+            nodes.highs[node] = levels[node] == level ? EMPTY : highs[node];
+        }
+        nodes.root = root;
+        return new PathDiagram<V>(graph, edgeFrom, edgeTo, nodes.reduce(), levels.length, elapsedTime);
+    }
+
+    /**
+     * Lazily enumerates the paths, each as the list of its vertices from the start vertex to the goal vertex.
+     *
+     * @see java.lang.Iterable#iterator()
+     */
+    @Override
+    public Iterator<List<V>> iterator() {
+        return new PathIterator();
+    }
+
+    /**
+     * @return the number of nodes of the diagram, including the two terminal nodes.
+     */
+    public int getNodeCount() {
+        return levels.length;
+    }
+
+    /**
+     * @return the number of nodes of the diagram before it was reduced.
+     */
+    public long getBuiltNodeCount() {
+        return builtNodes;
+    }
+
+    /**
+     * @return the number of edges of the graph, which is the number of levels of the diagram.
+     */
+    public int getEdgeCount() {
+        return edgeFrom.length;
+    }
+
+    /**
+     * @return the memory held by the nodes of the diagram, in bytes.
+     */
+    public long getMemoryUsage() {
+        return (long) levels.length * NODE_SIZE;
+    }
+
+    /**
+     * @return the time spent building the diagram, in milliseconds.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "[count=" + count() + ", nodes=" + getNodeCount() + " (" + builtNodes + " built), edges="
+                + getEdgeCount() + ", memory=" + getMemoryUsage() + " bytes, " + elapsedTime + " ms]";
+    }
+
+    /**
+     * @return the number of sets in the family of each node.
+     */
+    BigInteger[] getCounts() {
+        BigInteger[] result = counts;
+        if (result == null) {
+            // children come before their parents
+            result = new BigInteger[levels.length];
+            result[EMPTY] = BigInteger.ZERO;
+            result[UNIT] = BigInteger.ONE;
+            for (int node = UNIT + 1; node < levels.length; node++) {
+                result[node] = result[lows[node]].add(result[highs[node]]);
+            }
+            counts = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the root node of the diagram.
+     */
+    int getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the low child of the given node.
+     */
+    int getLow(final int node) {
+        return lows[node];
+    }
+
+    /**
+     * @return the high child of the given node.
+     */
+    int getHigh(final int node) {
+        return highs[node];
+    }
+
+    /**
+     * @return the level of the given node, which is the index of the edge it decides.
+     */
+    int getLevel(final int node) {
+        return levels[node];
+    }
+
+    /**
+     * Turns a set of edges into the path using them.
+     *
+     * @param used
+     *            marks the edges of the path, by level.
+     * @return the vertices of the path, from the start vertex to the goal vertex.
+     */
+    List<V> toPath(final boolean[] used) {
+        final int n = graph.vertexCount();
+        // each vertex has at most two edges on the path
+        final int[][] ends = new int[n][2];
+        final int[] degrees = new int[n];
+        for (int level = 0; level < used.length; level++) {
+            if (used[level]) {
+                ends[edgeFrom[level]][degrees[edgeFrom[level]]++] = edgeTo[level];
+                ends[edgeTo[level]][degrees[edgeTo[level]]++] = edgeFrom[level];
+            }
+        }
+
+        final int[] path = new int[n];
+        int previous = -1;
+        int vertex = graph.getStart();
+        for (int i = 0; i < n; i++) {
+            path[i] = vertex;
+            final int next = ends[vertex][0] != previous || degrees[vertex] == 1 ? ends[vertex][0] : ends[vertex][1];
+            previous = vertex;
+            vertex = next;
+        }
+        return graph.toVertices(path, n);
+    }
+
+    /**
+     * @return the level of the edge between the given vertices.
+     */
+    private int levelOf(final V from, final V to) {
+        final int v = graph.indexOf(from);
+        final int w = graph.indexOf(to);
+        for (int level = 0; level < edgeFrom.length; level++) {
+            if ((edgeFrom[level] == v && edgeTo[level] == w) || (edgeFrom[level] == w && edgeTo[level] == v)) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("No edge between " + from + " and " + to);
+    }
+
+    /**
+     * Enumerates the sets of the diagram depth first, trying the low child of each node before its high child. Since
+     * every node other than the empty terminal holds a set, every descent ends at the unit terminal.
+     *
+     * @author mattt
+     */
+    private final class PathIterator implements Iterator<List<V>> {
+
+        // the nodes on the way down to the current set, and whether the high child of each was taken
+        private final int[] stack = new int[edgeFrom.length];
+        private final boolean[] taken = new boolean[edgeFrom.length];
+        private int size;
+        private boolean hasNext;
+
+        PathIterator() {
+            hasNext = root != EMPTY;
+            if (hasNext) {
+                descend(root);
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.Iterator#next()
+         */
+        @Override
+        public List<V> next() {
+            if (!hasNext)
+                throw new NoSuchElementException();
+
+            final boolean[] used = new boolean[edgeFrom.length];
+            for (int i = 0; i < size; i++) {
+                if (taken[i]) {
+                    used[levels[stack[i]]] = true;
+                }
+            }
+            advance();
+            return toPath(used);
+        }
+
+        /**
+         * Unsupported, as the diagram is immutable.
+         *
+         * @see java.util.Iterator#remove()
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Descends from the given node to the unit terminal, taking low children where possible.
+         */
+        private void descend(final int from) {
+            int node = from;
+            while (node != UNIT) {
+                stack[size] = node;
+                taken[size] = lows[node] == EMPTY;
+                size++;
+                node = taken[size - 1] ? highs[node] : lows[node];
+            }
+        }
+
+        /**
+         * Moves to the next set: backtracks to the deepest node whose low child was taken, and takes its high child
+         * instead.
+         */
+        private void advance() {
+            while (size > 0) {
+                size--;
+                if (!taken[size]) {
+                    taken[size] = true;
+                    size++;
+                    descend(highs[stack[size - 1]]);
+                    return;
+                }
+            }
+            hasNext = false;
+        }
+    }
+
+    /**
+     * The nodes of a diagram, in growable arrays.
+     *
+     * @author mattt
+     */
+    private static final class Nodes {
+
+        private final int terminalLevel;
+        private int[] levels;
+        private int[] lows;
+        private int[] highs;
+        private int size;
+        private int root;
+
+        /**
+         * @param terminalLevel
+         *            is the level of the terminal nodes, which is the number of edges.
+         * @param capacity
+         *            is the initial capacity, in nodes.
+         */
+        Nodes(final int terminalLevel, final int capacity) {
+            this.terminalLevel = terminalLevel;
+            this.levels = new int[Math.max(capacity, 2)];
+            this.lows = new int[levels.length];
+            this.highs = new int[levels.length];
+            levels[EMPTY] = terminalLevel;
+            levels[UNIT] = terminalLevel;
+            size = 2;
+        }
+
+        /**
+         * Adds a node.
+         *
+         * @return the new node.
+         */
+        int add(final int level, final int low, final int high) {
+            if (size == levels.length) {
+                final int capacity = size + (size >> 1);
+                levels = Arrays.copyOf(levels, capacity);
+                lows = Arrays.copyOf(lows, capacity);
+                highs = Arrays.copyOf(highs, capacity);
+            }
+            levels[size] = level;
+            lows[size] = low;
+            highs[size] = high;
+            return size++;
+        }
+
+        /**
+         * Reduces the nodes: a node whose high child is the empty family is replaced by its low child, and alike nodes
+         * are merged. Nodes are visited level by level from the bottom, so children are reduced before their parents.
+         *
+         * @return the reduced nodes, children first.
+         */
+        Nodes reduce() {
+            // bucket the nodes by level
+            final int[] starts = new int[terminalLevel + 2];
+            for (int node = UNIT + 1; node < size; node++) {
+                starts[levels[node] + 1]++;
+            }
+            for (int level = 0; level <= terminalLevel; level++) {
+                starts[level + 1] += starts[level];
+            }
+            final int[] order = new int[size - 2];
+            final int[] next = Arrays.copyOf(starts, starts.length);
+            for (int node = UNIT + 1; node < size; node++) {
+                order[next[levels[node]]++] = node;
+            }
+
+            final Nodes reduced = new Nodes(terminalLevel, size);
+            final int[] mapped = new int[size];
+            mapped[EMPTY] = EMPTY;
+            mapped[UNIT] = UNIT;
+            final Map<Long, Integer> unique = Maps.newHashMap();
+            for (int level = terminalLevel - 1; level >= 0; level--) {
+                unique.clear();
+                for (int i = starts[level]; i < starts[level + 1]; i++) {
+                    final int node = order[i];
+                    final int low = mapped[lows[node]];
+                    final int high = mapped[highs[node]];
+                    if (high == EMPTY) {
+                        mapped[node] = low;
+                        continue;
+                    }
+                    final Long key = (long) low << 32 | high;
+                    final Integer existing = unique.get(key);
+                    if (existing != null) {
+                        mapped[node] = existing;
+                    } else {
+                        mapped[node] = reduced.add(level, low, high);
+                        unique.put(key, mapped[node]);
+                    }
+                }
+            }
+            reduced.levels = Arrays.copyOf(reduced.levels, reduced.size);
+            reduced.lows = Arrays.copyOf(reduced.lows, reduced.size);
+            reduced.highs = Arrays.copyOf(reduced.highs, reduced.size);
+            reduced.root = mapped[root];
+            return reduced;
+        }
+    }
+
+    /**
+     * Builds the nodes of a diagram top down, level by level, by the Simpath algorithm.
+     *
+     * @author mattt
+     */
+    private static final class Builder {
+
+        private final int n;
+        private final int start;
+        private final int goal;
+        private final int[] edgeFrom;
+        private final int[] edgeTo;
+
+        // the levels of the first and last edges of each vertex
+        private final int[] first;
+        private final int[] last;
+        // the frontier before each level: the vertices whose mates are held by the states of that level
+        private final int[][] frontiers;
+
+        // the mate of each vertex of the frontier, while a transition is being computed
+        private final int[] mates;
+
+        Builder(final int n, final int start, final int goal, final int[] edgeFrom, final int[] edgeTo) {
+            this.n = n;
+            this.start = start;
+            this.goal = goal;
+            this.edgeFrom = edgeFrom;
+            this.edgeTo = edgeTo;
+            this.mates = new int[n];
+
+            this.first = new int[n];
+            this.last = new int[n];
+            Arrays.fill(first, -1);
+            for (int level = 0; level < edgeFrom.length; level++) {
+                for (final int v : new int[] { edgeFrom[level], edgeTo[level] }) {
+                    if (first[v] < 0) {
+                        first[v] = level;
+                    }
+                    last[v] = level;
+                }
+            }
+
+            // the start and goal vertices are on the frontier from the first level, as the ends of the virtual segment
+            this.frontiers = new int[edgeFrom.length][];
+            for (int level = 0; level < edgeFrom.length; level++) {
+                final List<Integer> frontier = Lists.newArrayList();
+                for (int v = 0; v < n; v++) {
+                    final boolean endpoint = v == start || v == goal;
+                    if ((endpoint || first[v] <= level) && level <= last[v]) {
+                        frontier.add(v);
+                    }
+                }
+                frontiers[level] = new int[frontier.size()];
+                for (int i = 0; i < frontiers[level].length; i++) {
+                    frontiers[level][i] = frontier.get(i);
+                }
+            }
+        }
+
+        /**
+         * @return the nodes, top down.
+         */
+        Nodes build() {
+            final Nodes nodes = new Nodes(edgeFrom.length, 1024);
+            if (start < 0 || goal < 0 || start == goal || edgeFrom.length == 0) {
+                // a single vertex is a path of no edges
+                nodes.root = n == 1 && start == 0 && goal == 0 ? UNIT : EMPTY;
+                return nodes;
+            }
+            for (int v = 0; v < n; v++) {
+                if (first[v] < 0) {
+                    // an isolated vertex can't be on a path
+                    nodes.root = EMPTY;
+                    return nodes;
+                }
+            }
+
+            // the states of the current level, and the node of each
+            Map<State, Integer> current = Maps.newLinkedHashMap();
+            final int[] initial = new int[frontiers[0].length];
+            for (int i = 0; i < initial.length; i++) {
+                final int v = frontiers[0][i];
+                initial[i] = v == start ? goal : v == goal ? start : v;
+            }
+            final State rootState = new State(initial);
+            nodes.root = nodes.add(0, EMPTY, EMPTY);
+            current.put(rootState, nodes.root);
+
+            for (int level = 0; level < edgeFrom.length; level++) {
+                final Map<State, Integer> next = Maps.newLinkedHashMap();
+                for (final Map.Entry<State, Integer> entry : current.entrySet()) {
+                    // adding a child may grow the arrays, so the children are found before they are stored
+                    final int node = entry.getValue();
+                    final int low = child(nodes, next, level, entry.getKey(), false);
+                    final int high = child(nodes, next, level, entry.getKey(), true);
+                    nodes.lows[node] = low;
+                    nodes.highs[node] = high;
+                }
+                current = next;
+            }
+            return nodes;
+        }
+
+        /**
+         * Finds the child of a node, adding it to the next level if it is new.
+         *
+         * @return the child node.
+         */
+        private int child(final Nodes nodes, final Map<State, Integer> next, final int level, final State state,
+                final boolean take) {
+            final int[] frontier = frontiers[level];
+            for (int i = 0; i < frontier.length; i++) {
+                mates[frontier[i]] = state.mates[i];
+            }
+
+            final int u = edgeFrom[level];
+            final int v = edgeTo[level];
+            if (take) {
+                final int mu = mates[u];
+                final int mv = mates[v];
+                if (mu == COVERED || mv == COVERED) {
+                    return EMPTY;
+                }
+                if (mu == v) {
+                    // the edge closes the segment into a cycle, which must cover every vertex
+                    return closes(level, u, v) ? UNIT : EMPTY;
+                }
+                mates[mu] = mv;
+                mates[mv] = mu;
+                if (mu != u) {
+                    mates[u] = COVERED;
+                }
+                if (mv != v) {
+                    mates[v] = COVERED;
+                }
+            }
+
+            // a vertex leaving the frontier must be covered
+            for (final int w : frontier) {
+                if (last[w] == level && mates[w] != COVERED) {
+                    return EMPTY;
+                }
+            }
+            if (level + 1 == edgeFrom.length) {
+                return EMPTY;
+            }
+
+            final int[] nextFrontier = frontiers[level + 1];
+            final int[] nextMates = new int[nextFrontier.length];
+            for (int i = 0; i < nextFrontier.length; i++) {
+                final int w = nextFrontier[i];
+                // a vertex entering the frontier is untouched
+                nextMates[i] = first[w] == level + 1 && w != start && w != goal ? w : mates[w];
+            }
+            final State nextState = new State(nextMates);
+            final Integer existing = next.get(nextState);
+            if (existing != null) {
+                return existing;
+            }
+            final int child = nodes.add(level + 1, EMPTY, EMPTY);
+            next.put(nextState, child);
+            return child;
+        }
+
+        /**
+         * @return true if closing the segment between the given vertices at the given level covers every vertex.
+         */
+        private boolean closes(final int level, final int u, final int v) {
+            for (final int w : frontiers[level]) {
+                if (w != u && w != v && mates[w] != COVERED) {
+                    return false;
+                }
+            }
+            for (int w = 0; w < n; w++) {
+                if (first[w] > level) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The mates of the vertices of a frontier.
+     *
+     * @author mattt
+     */
+    private static final class State {
+
+        private final int[] mates;
+        private final int hash;
+
+        State(final int[] mates) {
+            this.mates = mates;
+            this.hash = Arrays.hashCode(mates);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof State && Arrays.equals(mates, ((State) obj).mates);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.quora.challenge.graph.ham;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.quora.challenge.graph.IndexedGraph;
+
+/**
+ * A lazy enumeration of the hamiltonian paths in a graph (see {@link HamiltonianPathCounter#enumeratePaths}).
+ * <p/>
+ * Each path is returned as a compact sequence of vertex indices, from the start vertex to the goal vertex. A vertex
+ * index refers to the position of the vertex in {@link #getVertices()}. The underlying search is suspended after every
+ * path and only resumed when the consumer asks for the next one, so no more than one path is ever held in memory, and
+ * the search stops as soon as the consumer stops asking. Closing the enumeration releases the search.
+ * <p/>
+ * Note that this class is not thread safe; it is expected to be consumed by a single thread.
+ *
+ * @author mattt
+ * @param <V>
+ *            is the vertex type
+ */
+public final class PathEnumeration<V> implements Iterator<int[]>, Closeable {
+
+    private final IndexedGraph<V> graph;
+    private PathSearch<V> search;
+
+    private int[] next;
+
+    /**
+     * @param graph
+     *            is the graph being enumerated.
+     * @param search
+     *            is the started search to enumerate the paths of.
+     */
+    PathEnumeration(final IndexedGraph<V> graph, final PathSearch<V> search) {
+        this.graph = graph;
+        this.search = search;
+        search.setVisitor(new PathSearch.Visitor() {
+            @Override
+            public boolean visit(final int[] path, final int length) {
+                next = new int[length];
+                System.arraycopy(path, 0, next, 0, length);
+                // suspend the search until the consumer asks for another path
+                return false;
+            }
+        });
+    }
+
+    /**
+     * @return the list of verticies that path indices refer to.
+     */
+    public List<V> getVertices() {
+        return graph.getVertices();
+    }
+
+    /**
+     * Obtains the verticies of the given path.
+     *
+     * @param path
+     *            is a path returned by this enumeration.
+     * @return the list of verticies making up the given path.
+     */
+    public List<V> toVertices(final int[] path) {
+        return graph.toVertices(path, path.length);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#hasNext()
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null && search != null) {
+            if (search.run(Long.MAX_VALUE) && next == null) {
+                search = null;
+            }
+        }
+        return next != null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#next()
+     */
+    @Override
+    public int[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final int[] path = next;
+        next = null;
+        return path;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#remove()
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops the enumeration. No further paths will be returned.
+     */
+    @Override
+    public void close() {
+        search = null;
+        next = null;
+    }
+}
@@ -0,0 +1,168 @@
+package com.quora.challenge.graph.ham;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.quora.challenge.graph.IndexedGraph;
+import com.quora.challenge.graph.ham.pruning.BiConnectedPruningStrategy;
+
+/**
+ * Approximates the number of hamiltonian paths in a graph by sequential importance sampling (see
+ * {@link PathApproximation}). Walks are sampled with {@link PathSearch#probe(Random, double[])}, so they are pruned by
+ * the same tests as the exact search.
+ * <p/>
+ * Each sampling thread samples walks in batches, and merges the mean and variance of each batch into the totals
+ * (Chan's parallel variance algorithm), which is the only point at which threads synchronize. Sampling stops once the
+ * relative standard error of the totals reaches the target, or the deadline passes. If no walk has completed a path,
+ * sampling also stops once the rate at which walks complete paths is below the square of the target error with 95%
+ * confidence (by the rule of three, once 3 / samples is below it); the approximation is then 0, and not converged.
+ *
+ * @author mattt
+ * @param <V>
+ *            is the vertex type
+ */
+final class PathSampler<V> {
+
+    // the number of walks a thread samples between two merges into the totals
+    private static final int BATCH_SIZE = 256;
+    // the number of walks to sample before trusting the standard error, since walk weights are heavy tailed
+    private static final long MIN_SAMPLES = 1000;
+    // the rule of three: if no walk has completed a path, the rate of walks completing one is below this over the
+    // number of walks, with 95% confidence
+    private static final double RULE_OF_THREE = 3;
+
+    private final IndexedGraph<V> graph;
+    private final BiConnectedPruningStrategy<V> biConnectedTester;
+    private final double targetRelativeError;
+    private final long deadline;
+
+    // the totals, guarded by this
+    private long samples;
+    private double mean;
+    private double m2; // the sum of squared differences from the mean
+    private boolean converged;
+
+    private volatile boolean done;
+
+    /**
+     * @param graph
+     *            is the graph to sample walks in.
+     * @param biConnectedTester
+     *            is the {@link BiConnectedPruningStrategy} to prune walks with.
+     * @param targetRelativeError
+     *            is the relative standard error at which to stop sampling.
+     * @param deadline
+     *            is the time at which to stop sampling, in milliseconds since the epoch.
+     */
+    PathSampler(final IndexedGraph<V> graph, final BiConnectedPruningStrategy<V> biConnectedTester,
+            final double targetRelativeError, final long deadline) {
+        this.graph = graph;
+        this.biConnectedTester = biConnectedTester;
+        this.targetRelativeError = targetRelativeError;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Samples walks until the target relative error is reached or the deadline passes. If the calling thread is
+     * interrupted, sampling stops early, and the interrupt status is restored.
+     *
+     * @param threads
+     *            is the number of threads to sample on.
+     * @param seed
+     *            is the seed of the random walks.
+     * @return the {@link PathApproximation}.
+     */
+    PathApproximation sample(final int threads, final long seed) {
+        final long startTime = System.currentTimeMillis();
+        if (graph.getStart() < 0) {
+            return new PathApproximation(0, 0, 0, true, 0);
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            final Random random = new Random(seed + i * 0x9E3779B97F4A7C15L);
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    sampleBatches(random);
+                }
+            });
+        }
+        executorService.shutdown();
+
+        boolean interrupted = false;
+        while (!executorService.isTerminated()) {
+            try {
+                executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                done = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        final long elapsed = System.currentTimeMillis() - startTime;
+        synchronized (this) {
+            return new PathApproximation(samples, mean, samples > 1 ? m2 / (samples - 1) : 0, converged, elapsed);
+        }
+    }
+
+    /**
+     * Samples batches of walks until sampling is done.
+     *
+     * @param random
+     *            is the source of randomness of this thread.
+     */
+    private void sampleBatches(final Random random) {
+        final PathSearch<V> search = new PathSearch<V>(graph, biConnectedTester, new SearchCounters());
+        final double[] estimates = new double[2];
+        while (!done) {
+            // Welford's algorithm over the batch
+            double batchMean = 0;
+            double batchM2 = 0;
+            for (int i = 1; i <= BATCH_SIZE; i++) {
+                search.probe(random, estimates);
+                final double delta = estimates[1] - batchMean;
+                batchMean += delta / i;
+                batchM2 += delta * (estimates[1] - batchMean);
+            }
+            merge(BATCH_SIZE, batchMean, batchM2);
+        }
+    }
+
+    /**
+     * Merges a batch of walks into the totals, and decides whether sampling is done.
+     *
+     * @param n
+     *            is the number of walks of the batch.
+     * @param batchMean
+     *            is the mean weight of the walks of the batch.
+     * @param batchM2
+     *            is the sum of squared differences from the mean of the batch.
+     */
+    private synchronized void merge(final long n, final double batchMean, final double batchM2) {
+        final long total = samples + n;
+        final double delta = batchMean - mean;
+        mean += delta * n / total;
+        m2 += batchM2 + delta * delta * samples * n / total;
+        samples = total;
+
+        if (samples >= MIN_SAMPLES && mean > 0) {
+            final double relativeError = Math.sqrt(m2 / (samples - 1) / samples) / mean;
+            if (relativeError <= targetRelativeError) {
+                converged = true;
+                done = true;
+            }
+        } else if (samples >= MIN_SAMPLES && RULE_OF_THREE / samples < targetRelativeError * targetRelativeError) {
+            // no walk has completed a path, and paths are too rare to approximate to the target error
+            done = true;
+        }
+        if (System.currentTimeMillis() >= deadline) {
+            done = true;
+        }
+    }
+}
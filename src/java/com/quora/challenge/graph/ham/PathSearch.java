@@ -0,0 +1,637 @@
+package com.quora.challenge.graph.ham;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+import com.quora.challenge.graph.IndexedGraph;
+import com.quora.challenge.graph.ham.pruning.BiConnectedPruningStrategy;
+import com.quora.challenge.graph.ham.pruning.ConnectedPruningStrategy;
+
+/**
+ * An iterative depth first search for hamiltonian paths in an {@link IndexedGraph}.
+ * <p/>
+ * Rather than recursing once per vertex on the path, the search keeps its own stack of frames in primitive arrays: the
+ * vertex at each depth of the path, and a cursor to the next neighbor of that vertex to be explored. Since the whole
+ * state of the search lives in those arrays, a search can be suspended (see {@link #run(long)}) and resumed, split into
+ * independent prefixes (see {@link #split()}), or captured and restored (see {@link #getFrames()}).
+ * <p/>
+ * A search explores the completions of a single path prefix (see {@link #start(int[], int)}), which is a unit of work
+ * for the path counter. A search normally looks for paths ending at the goal vertex; an any end search (see
+ * {@link #PathSearch(IndexedGraph, ConnectedPruningStrategy, SearchCounters, long[])}) ignores the goal, and counts the
+ * hamiltonian paths from the start vertex by the vertex they end at; and a cycle search (see
+ * {@link #PathSearch(IndexedGraph, BiConnectedPruningStrategy, SearchCounters, int)}) looks for paths that return to
+ * the vertex they started from. Note that this class is not thread safe.
+ *
+ * @author mattt
+ * @param <V>
+ *            is the vertex type
+ */
+final class PathSearch<V> {
+
+    /**
+     * Receives the hamiltonian paths (or, for a prefix search, the path prefixes) found by a search.
+     *
+     * @author mattt
+     */
+    interface Visitor {
+
+        /**
+         * Visits a path.
+         *
+         * @param path
+         *            holds the vertex indices of the path. The array is owned by the search and is only valid for the
+         *            duration of the call.
+         * @param length
+         *            is the number of vertices of the path.
+         * @return true to continue the search, false to suspend it right after this path.
+         */
+        boolean visit(int[] path, int length);
+    }
+
+    private final IndexedGraph<V> graph;
+    private final int vertexCount;
+    private final int goal;
+
+    private final BiConnectedPruningStrategy<V> biConnectedTester;
+    private final BiConnectedPruningStrategy.Workspace workspace;
+    private final SearchCounters counters;
+
+    // for an any end search, the pruning strategy and the number of paths ending at each vertex; null otherwise
+    private final ConnectedPruningStrategy<V> connectedTester;
+    private final ConnectedPruningStrategy.Workspace connectedWorkspace;
+    private final long[] endCounts;
+
+    // for a cycle search, the vertex every cycle starts and ends at; -1 otherwise
+    private final int cycleRoot;
+
+    // the frame stack: the vertex at each depth of the path, and the next neighbor of it to explore
+    private final int[] path;
+    private final int[] cursors;
+    private final boolean[] onPath;
+    private int length;
+
+    // the number of frames belonging to the prefix, which are never popped
+    private int base;
+    // the last vertex of the prefix, until it has been entered
+    private int pending = -1;
+
+    // if > 0, paths are reported to the visitor once they reach this length, rather than being extended further
+    private int prefixLength;
+    private Visitor visitor;
+    private boolean suspended;
+
+    // if set, the search stops (as if suspended) once the token is cancelled
+    private CancellationToken stopToken;
+
+    // if not null, the order in which the neighbors of each frame are explored (see setWarnsdorffOrder)
+    private int[][] orders;
+    private int[] exits;
+
+    /**
+     * @param graph
+     *            is the graph to search.
+     * @param biConnectedTester
+     *            is the {@link BiConnectedPruningStrategy} to prune the search with.
+     * @param counters
+     *            is the {@link SearchCounters} to update.
+     */
+    PathSearch(final IndexedGraph<V> graph, final BiConnectedPruningStrategy<V> biConnectedTester,
+            final SearchCounters counters) {
+        this.graph = graph;
+        this.vertexCount = graph.vertexCount();
+        this.goal = graph.getGoal();
+        this.biConnectedTester = biConnectedTester;
+        this.workspace = new BiConnectedPruningStrategy.Workspace(vertexCount);
+        this.counters = counters;
+        this.connectedTester = null;
+        this.connectedWorkspace = null;
+        this.endCounts = null;
+        this.cycleRoot = -1;
+        this.path = new int[vertexCount];
+        this.cursors = new int[vertexCount];
+        this.onPath = new boolean[vertexCount];
+    }
+
+    /**
+     * Creates an any end search, which ignores the goal vertex of the graph, and counts the hamiltonian paths from the
+     * start vertex by the vertex they end at. Paths are pruned by {@link ConnectedPruningStrategy#isTraversable} rather
+     * than by the biconnectivity test, which needs a goal.
+     * 
+     * @param graph
+     *            is the graph to search.
+     * @param connectedTester
+     *            is the {@link ConnectedPruningStrategy} to prune the search with.
+     * @param counters
+     *            is the {@link SearchCounters} to update.
+     * @param endCounts
+     *            is the array to add the number of paths ending at each vertex to, by vertex index.
+     */
+    PathSearch(final IndexedGraph<V> graph, final ConnectedPruningStrategy<V> connectedTester,
+            final SearchCounters counters, final long[] endCounts) {
+        this.graph = graph;
+        this.vertexCount = graph.vertexCount();
+        this.goal = -1;
+        this.biConnectedTester = null;
+        this.workspace = null;
+        this.counters = counters;
+        this.connectedTester = connectedTester;
+        this.connectedWorkspace = new ConnectedPruningStrategy.Workspace(vertexCount);
+        this.endCounts = endCounts;
+        this.cycleRoot = -1;
+        this.path = new int[vertexCount];
+        this.cursors = new int[vertexCount];
+        this.onPath = new boolean[vertexCount];
+    }
+
+    /**
+     * Creates a cycle search, which ignores the start and goal vertices of the graph, and looks for hamiltonian cycles
+     * through the given root vertex: paths from the root covering the graph whose last vertex is a neighbor of the
+     * root. Each cycle is found twice, once in each direction.
+     * <p/>
+     * A path from the root can only be closed into a cycle if the vertices off the path, together with its last vertex
+     * and the root, have a hamiltonian path from the last vertex to the root, so paths are pruned by the
+     * biconnectivity test with the root as the goal.
+     * 
+     * @param graph
+     *            is the graph to search.
+     * @param biConnectedTester
+     *            is the {@link BiConnectedPruningStrategy} to prune the search with.
+     * @param counters
+     *            is the {@link SearchCounters} to update.
+     * @param cycleRoot
+     *            is the index of the vertex the prefixes of the search begin with.
+     */
+    PathSearch(final IndexedGraph<V> graph, final BiConnectedPruningStrategy<V> biConnectedTester,
+            final SearchCounters counters, final int cycleRoot) {
+        this.graph = graph;
+        this.vertexCount = graph.vertexCount();
+        this.goal = -1;
+        this.biConnectedTester = biConnectedTester;
+        this.workspace = new BiConnectedPruningStrategy.Workspace(vertexCount);
+        this.counters = counters;
+        this.connectedTester = null;
+        this.connectedWorkspace = null;
+        this.endCounts = null;
+        this.cycleRoot = cycleRoot;
+        this.path = new int[vertexCount];
+        this.cursors = new int[vertexCount];
+        this.onPath = new boolean[vertexCount];
+    }
+
+    /**
+     * Sets the visitor to report paths to.
+     *
+     * @param visitor
+     *            is the {@link Visitor} to report paths to, or null to only count them.
+     */
+    void setVisitor(final Visitor visitor) {
+        this.visitor = visitor;
+    }
+
+    /**
+     * Makes this a prefix search: rather than extending paths to the goal, paths are reported to the visitor once they
+     * reach the given length. The last vertex of a reported prefix has not been tested by the pruning strategies. A
+     * path that reaches the goal sooner is reported only if it is a hamiltonian path.
+     *
+     * @param prefixLength
+     *            is the number of vertices of the prefixes to report, or 0 to search for complete paths.
+     */
+    void setPrefixLength(final int prefixLength) {
+        this.prefixLength = prefixLength;
+    }
+
+    /**
+     * Sets a token that stops the search, checked before every search node. A stopped search returns from
+     * {@link #run(long)} as if it had been suspended, and resumes if run again once the token is no longer cancelled.
+     *
+     * @param stopToken
+     *            is the {@link CancellationToken} that stops the search, or null to only stop at the end of the node
+     *            budget of a run.
+     */
+    void setStopToken(final CancellationToken stopToken) {
+        this.stopToken = stopToken;
+    }
+
+    /**
+     * Sets whether the neighbors of each frame are explored in Warnsdorff's order: fewest exits first, where the exits
+     * of a neighbor are its own neighbors off the path, rather than in index order. A vertex with few exits is the
+     * likeliest to become a dead end, so visiting it early finds the first paths sooner, though it doesn't shrink the
+     * search as a whole. Must be set before the search is started.
+     *
+     * @param warnsdorffOrder
+     *            is true to explore neighbors in Warnsdorff's order.
+     */
+    void setWarnsdorffOrder(final boolean warnsdorffOrder) {
+        if (!warnsdorffOrder) {
+            orders = null;
+            exits = null;
+            return;
+        }
+        int maxDegree = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            maxDegree = Math.max(maxDegree, graph.getNeighbors(v).length);
+        }
+        orders = new int[vertexCount][maxDegree];
+        exits = new int[maxDegree];
+    }
+
+    /**
+     * Starts a new search for the completions of the given path prefix, discarding the state of any previous search.
+     *
+     * @param prefix
+     *            holds the vertex indices of the prefix, beginning with the start vertex.
+     * @param prefixLength
+     *            is the number of vertices of the prefix. Must be >= 1.
+     */
+    void start(final int[] prefix, final int prefixLength) {
+        if (prefixLength <= 0) {
+            throw new IllegalArgumentException("The path prefix must contain at least one vertex");
+        }
+
+        for (int i = 0; i < length; i++) {
+            onPath[path[i]] = false;
+        }
+        length = 0;
+        for (int i = 0; i < prefixLength - 1; i++) {
+            push(prefix[i]);
+        }
+        base = length;
+        pending = prefix[prefixLength - 1];
+        suspended = false;
+    }
+
+    /**
+     * Runs the search until it is exhausted, the visitor suspends it, or the given number of search nodes have been
+     * visited. A search that has not been exhausted resumes where it left off on the next call.
+     *
+     * @param nodeBudget
+     *            is the maximum number of search nodes to visit during this call.
+     * @return true if the search has been exhausted, false if it was suspended.
+     */
+    boolean run(final long nodeBudget) {
+        final long limit = Long.MAX_VALUE - nodeBudget < counters.nodes ? Long.MAX_VALUE : counters.nodes
+                + nodeBudget;
+
+        if (pending >= 0) {
+            final int vertex = pending;
+            pending = -1;
+            enter(vertex);
+        }
+
+        while (length > base) {
+            if (suspended) {
+                suspended = false;
+                return false;
+            }
+            if (counters.nodes >= limit || (stopToken != null && stopToken.isCancelled())) {
+                return false;
+            }
+
+            final int top = length - 1;
+            final int[] neighbors = neighbors(top);
+            final int cursor = cursors[top];
+            if (cursor < graph.getNeighbors(path[top]).length) {
+                cursors[top] = cursor + 1;
+                final int w = neighbors[cursor];
+                if (!onPath[w]) {
+                    enter(w);
+                }
+            } else {
+                // every neighbor has been explored; backtrack
+                onPath[path[top]] = false;
+                length = top;
+            }
+        }
+        suspended = false;
+        return true;
+    }
+
+    /**
+     * Splits off the unexplored part of this search closest to the prefix: every unexplored neighbor of the shallowest
+     * frame that still has one is returned as a new prefix, and will no longer be explored by this search.
+     *
+     * @return the list of prefixes split off, empty if there is nothing left to split.
+     */
+    List<int[]> split() {
+        final List<int[]> prefixes = Lists.newArrayList();
+        for (int frame = base; frame < length && prefixes.isEmpty(); frame++) {
+            final int[] neighbors = neighbors(frame);
+            final int degree = graph.getNeighbors(path[frame]).length;
+            for (int c = cursors[frame]; c < degree; c++) {
+                // vertices deeper than this frame are on the path, but not on the path of the split prefix
+                if (indexOf(neighbors[c], frame + 1) < 0) {
+                    final int[] prefix = Arrays.copyOf(path, frame + 2);
+                    prefix[frame + 1] = neighbors[c];
+                    prefixes.add(prefix);
+                }
+            }
+            if (!prefixes.isEmpty()) {
+                cursors[frame] = degree;
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * @return the number of vertices on the current path.
+     */
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * Estimates the fraction of the completions of the prefix that this search has explored, assuming that every
+     * neighbor of a frame leads to a subtree of the same size.
+     *
+     * @return a fraction between 0 (nothing explored yet) and 1 (the search has been exhausted).
+     */
+    double getExploredFraction() {
+        if (pending >= 0) {
+            return 0;
+        }
+        double fraction = 0;
+        double weight = 1;
+        for (int frame = base; frame < length; frame++) {
+            final int degree = graph.getNeighbors(path[frame]).length;
+            // the neighbors before the cursor have been explored, except the one leading to the next frame
+            final int explored = frame == length - 1 ? cursors[frame] : cursors[frame] - 1;
+            fraction += weight * explored / degree;
+            weight /= degree;
+        }
+        return length > base ? fraction : 1;
+    }
+
+    /**
+     * Captures the frames of a search that has been run at least once. Together with the length of the prefix the
+     * search was started with, the frames are enough to restore the search (see {@link #restore(int[], int[], int)}).
+     *
+     * @return an array of two arrays: the vertex indices of the current path, and the neighbor cursor of each frame.
+     */
+    int[][] getFrames() {
+        return new int[][] { Arrays.copyOf(path, length), Arrays.copyOf(cursors, length) };
+    }
+
+    /**
+     * Restores a search from frames captured with {@link #getFrames()}.
+     *
+     * @param framePath
+     *            holds the vertex indices of the captured path.
+     * @param frameCursors
+     *            holds the neighbor cursor of each captured frame.
+     * @param prefixLength
+     *            is the length of the prefix the captured search was started with.
+     */
+    void restore(final int[] framePath, final int[] frameCursors, final int prefixLength) {
+        if (framePath.length < prefixLength - 1) {
+            throw new IllegalArgumentException("The frames do not cover the prefix of the search");
+        }
+
+        for (int i = 0; i < length; i++) {
+            onPath[path[i]] = false;
+        }
+        length = 0;
+        for (int i = 0; i < framePath.length; i++) {
+            push(framePath[i]);
+            cursors[i] = frameCursors[i];
+        }
+        base = prefixLength - 1;
+        pending = -1;
+        suspended = false;
+    }
+
+    /**
+     * Runs a single random probe down the search tree from the start vertex of the graph (Knuth's estimator). At every
+     * expanded node, each neighbor not on the path is a node of the search tree; the probe continues to one of the
+     * neighbors that would be expanded, chosen uniformly, and weighs the nodes below it by the product of the number of
+     * choices made so far. Averaged over many probes, the weighted counts are unbiased estimates of the size of the
+     * search tree and of the number of hamiltonian paths. The state of any previous search is discarded.
+     *
+     * @param random
+     *            is the source of randomness of the probe.
+     * @param estimates
+     *            is the array to store the estimates of the probe in: the number of search nodes at index 0, and the
+     *            number of hamiltonian paths at index 1.
+     */
+    void probe(final Random random, final double[] estimates) {
+        start(new int[] { graph.getStart() }, 1);
+        pending = -1;
+        estimates[0] = 1;
+        estimates[1] = 0;
+
+        final int root = graph.getStart();
+        if (root == goal) {
+            estimates[1] = vertexCount == 1 ? 1 : 0;
+            return;
+        }
+        if (!isExpandable(root)) {
+            return;
+        }
+        push(root);
+
+        final int[] choices = new int[vertexCount];
+        double weight = 1;
+        while (true) {
+            final int[] neighbors = graph.getNeighbors(path[length - 1]);
+            int children = 0;
+            int expandable = 0;
+            for (final int w : neighbors) {
+                if (onPath[w]) {
+                    continue;
+                }
+                children++;
+                if (w == goal) {
+                    if (length + 1 == vertexCount) {
+                        estimates[1] += weight;
+                    }
+                } else if (isExpandable(w)) {
+                    choices[expandable++] = w;
+                }
+            }
+            counters.nodes += children;
+            estimates[0] += weight * children;
+            if (expandable == 0) {
+                return;
+            }
+            weight *= expandable;
+            push(choices[random.nextInt(expandable)]);
+        }
+    }
+
+    /**
+     * @param vertex
+     *            is the index of a vertex that is not on the path.
+     * @return true if extending the path by the given vertex would expand it into its neighbors, that is, the vertex
+     *         is not the goal and the path is not pruned.
+     */
+    private boolean isExpandable(final int vertex) {
+        if (endCounts != null) {
+            return connectedTester.isTraversable(graph, vertex, onPath, vertexCount - length, connectedWorkspace);
+        }
+        if (cycleRoot >= 0) {
+            if (vertex == cycleRoot) {
+                // a graph with a hamiltonian cycle is biconnected outright
+                return biConnectedTester.isBiConnected(graph, vertex, onPath, vertexCount, cycleRoot, workspace);
+            }
+            // the root is off the path for the test, as the goal the path returns to
+            onPath[cycleRoot] = false;
+            final boolean expandable = biConnectedTester.isBiConnected(graph, vertex, onPath, vertexCount - length + 1,
+                    cycleRoot, workspace);
+            onPath[cycleRoot] = true;
+            return expandable;
+        }
+        return vertex != goal
+                && biConnectedTester.isBiConnected(graph, vertex, onPath, vertexCount - length, goal, workspace);
+    }
+
+    /**
+     * Extends the path by the given vertex: counts the node, reports the path if it is complete, and otherwise pushes a
+     * new frame for the vertex unless it is pruned.
+     *
+     * @param vertex
+     *            is the index of the vertex to extend the path by. It must not be on the path.
+     */
+    private void enter(final int vertex) {
+        counters.nodes++;
+
+        // the current vertex is the goal (may or may not be a hamiltonian path)
+        if (vertex == goal) {
+            counters.leaves++;
+            if (length + 1 == vertexCount) {
+                counters.paths++;
+                report(vertex);
+            }
+            return;
+        }
+
+        // any end search: every path covering the graph is a hamiltonian path
+        if (endCounts != null && length + 1 == vertexCount) {
+            counters.leaves++;
+            counters.paths++;
+            endCounts[vertex]++;
+            report(vertex);
+            return;
+        }
+
+        // cycle search: a path covering the graph is closed into a cycle by an edge back to the root
+        if (cycleRoot >= 0 && length + 1 == vertexCount) {
+            counters.leaves++;
+            if (isNeighbor(vertex, cycleRoot)) {
+                counters.paths++;
+                report(vertex);
+            }
+            return;
+        }
+
+        if (length + 1 == prefixLength) {
+            report(vertex);
+            return;
+        }
+
+        // Biconnectivity check
+        if (!isExpandable(vertex)) {
+            counters.prunes++;
+            return;
+        }
+
+        counters.expansions++;
+        push(vertex);
+    }
+
+    /**
+     * @return true if the two vertices are neighbors.
+     */
+    private boolean isNeighbor(final int v, final int w) {
+        for (final int n : graph.getNeighbors(v)) {
+            if (n == w) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reports the current path, extended by the given vertex, to the visitor.
+     *
+     * @param vertex
+     *            is the last vertex of the path.
+     */
+    private void report(final int vertex) {
+        if (visitor != null) {
+            path[length] = vertex;
+            if (!visitor.visit(path, length + 1)) {
+                suspended = true;
+            }
+        }
+    }
+
+    /**
+     * @param vertex
+     *            is the index of a vertex.
+     * @param depth
+     *            is the number of vertices of the path to search.
+     * @return the depth of the given vertex within the first vertices of the path, or -1 if it is not among them.
+     */
+    private int indexOf(final int vertex, final int depth) {
+        for (int i = 0; i < depth; i++) {
+            if (path[i] == vertex) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Pushes a new frame for the given vertex.
+     *
+     * @param vertex
+     *            is the index of the vertex.
+     */
+    private void push(final int vertex) {
+        path[length] = vertex;
+        cursors[length] = 0;
+        onPath[vertex] = true;
+        if (orders != null) {
+            order(length);
+        }
+        length++;
+    }
+
+    /**
+     * @return the neighbors of the vertex of the given frame, in the order they are explored. Only the first
+     *         {@link IndexedGraph#getNeighbors(int)}<code>.length</code> elements are neighbors.
+     */
+    private int[] neighbors(final int frame) {
+        return orders == null ? graph.getNeighbors(path[frame]) : orders[frame];
+    }
+
+    /**
+     * Orders the neighbors of the vertex of the given frame by their number of exits, fewest first (by insertion sort,
+     * as a vertex has few neighbors). Neighbors on the path come last.
+     */
+    private void order(final int frame) {
+        final int[] neighbors = graph.getNeighbors(path[frame]);
+        final int[] order = orders[frame];
+        for (int i = 0; i < neighbors.length; i++) {
+            final int w = neighbors[i];
+            int count = Integer.MAX_VALUE;
+            if (!onPath[w]) {
+                count = 0;
+                for (final int x : graph.getNeighbors(w)) {
+                    if (!onPath[x]) {
+                        count++;
+                    }
+                }
+            }
+            int j = i;
+            while (j > 0 && exits[j - 1] > count) {
+                order[j] = order[j - 1];
+                exits[j] = exits[j - 1];
+                j--;
+            }
+            order[j] = w;
+            exits[j] = count;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.quora.challenge.graph.ham;
+
+/**
+ * Receives the progress of a path count (see {@link SearchOptions.Builder#progress(ProgressListener, long)}).
+ * <p/>
+ * Progress is sampled from a separate thread, so the search threads never wait for a listener. A listener should
+ * return quickly though, since it delays the next sample (and any checkpoint) while it runs.
+ *
+ * @author mattt
+ */
+public interface ProgressListener {
+
+    /**
+     * Receives a progress sample. The last sample of a count is taken once the search threads have stopped.
+     *
+     * @param progress
+     *            is the {@link SearchProgress} of the count.
+     */
+    void progress(SearchProgress progress);
+}
@@ -0,0 +1,263 @@
+package com.quora.challenge.graph.ham;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.collect.Lists;
+import com.quora.challenge.CountAccumulator;
+import com.quora.challenge.graph.IndexedGraph;
+
+/**
+ * A snapshot of a path count in progress: the units of work (path prefixes) the search space was split into, and the
+ * path count of every unit that has been completed. A count resumed from a checkpoint only searches the pending units.
+ * <p/>
+ * Units are stored as vertex indices of the {@link IndexedGraph} of the counted graph, which are only stable from one
+ * run to the next for {@link Comparable} vertices. A checkpoint also holds a fingerprint of the graph, so it can't be
+ * resumed against a different graph.
+ * <p/>
+ * The file format is line based: a header line 'checkpoint VERSION FINGERPRINT', followed by one line per unit holding
+ * its path count (or '-' if the unit is pending) and the vertex indices of its prefix.
+ *
+ * @author mattt
+ */
+public final class SearchCheckpoint {
+
+    private static final String HEADER = "checkpoint";
+    private static final int VERSION = 1;
+    private static final String PENDING = "-";
+    private static final String CHARSET = "US-ASCII";
+
+    private final long fingerprint;
+    private final List<int[]> units;
+    private final long[] counts;
+
+    /**
+     * @param fingerprint
+     *            is the fingerprint of the counted graph.
+     * @param units
+     *            is the list of units, as path prefixes of vertex indices.
+     * @param counts
+     *            is the path count of each unit, or -1 for a pending unit.
+     */
+    private SearchCheckpoint(final long fingerprint, final List<int[]> units, final long[] counts) {
+        this.fingerprint = fingerprint;
+        this.units = Collections.unmodifiableList(units);
+        this.counts = counts;
+    }
+
+    /**
+     * Takes a snapshot of a count in progress.
+     *
+     * @param graph
+     *            is the graph being counted.
+     * @param units
+     *            is the list of units of the count.
+     * @param unitCounts
+     *            holds the path count of each unit, or -1 for a pending unit.
+     * @return the {@link SearchCheckpoint}.
+     */
+    static SearchCheckpoint snapshot(final IndexedGraph<?> graph, final List<int[]> units,
+            final AtomicLongArray unitCounts) {
+        final long[] counts = new long[units.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = unitCounts.get(i);
+        }
+        return new SearchCheckpoint(fingerprint(graph), units, counts);
+    }
+
+    /**
+     * Reads a checkpoint from the given file.
+     *
+     * @param file
+     *            is the file to read the checkpoint from.
+     * @return the {@link SearchCheckpoint}.
+     * @throws IOException
+     *             if the file can't be read or is not a checkpoint.
+     */
+    public static SearchCheckpoint read(final File file) throws IOException {
+        if (file == null)
+            throw new NullPointerException();
+
+        final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+        try {
+            final String[] header = split(in.readLine());
+            if (header.length != 3 || !HEADER.equals(header[0])) {
+                throw new IOException(file + " is not a checkpoint");
+            }
+            if (Integer.parseInt(header[1]) != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + header[1]);
+            }
+            final long fingerprint = Long.parseLong(header[2], 16);
+
+            final List<int[]> units = Lists.newArrayList();
+            final List<Long> counts = Lists.newArrayList();
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                final String[] fields = split(line);
+                if (fields.length < 2) {
+                    throw new IOException("Malformed checkpoint unit: " + line);
+                }
+                counts.add(PENDING.equals(fields[0]) ? -1 : Long.parseLong(fields[0]));
+                final int[] unit = new int[fields.length - 1];
+                for (int i = 0; i < unit.length; i++) {
+                    unit[i] = Integer.parseInt(fields[i + 1]);
+                }
+                units.add(unit);
+            }
+
+            final long[] unitCounts = new long[counts.size()];
+            for (int i = 0; i < unitCounts.length; i++) {
+                unitCounts[i] = counts.get(i);
+            }
+            return new SearchCheckpoint(fingerprint, units, unitCounts);
+        } catch (NumberFormatException e) {
+            final IOException ioe = new IOException("Malformed checkpoint " + file);
+            ioe.initCause(e);
+            throw ioe;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes this checkpoint to the given file. The checkpoint is written to a temporary file first, which then
+     * replaces the given file, so a crash while writing never leaves a truncated checkpoint behind.
+     *
+     * @param file
+     *            is the file to write the checkpoint to.
+     * @throws IOException
+     *             if the checkpoint can't be written.
+     */
+    void write(final File file) throws IOException {
+        final File temp = new File(file.getPath() + ".tmp");
+        final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), CHARSET));
+        try {
+            out.write(HEADER + " " + VERSION + " " + Long.toHexString(fingerprint) + "\n");
+            final StringBuilder line = new StringBuilder();
+            for (int u = 0; u < counts.length; u++) {
+                line.setLength(0);
+                line.append(counts[u] < 0 ? PENDING : Long.toString(counts[u]));
+                for (final int vertex : units.get(u)) {
+                    line.append(' ').append(vertex);
+                }
+                out.write(line.append('\n').toString());
+            }
+        } finally {
+            out.close();
+        }
+        // renaming over an existing file fails on some platforms
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    /**
+     * @param graph
+     *            is the graph being counted.
+     * @return true if this checkpoint was taken for the given graph.
+     */
+    boolean matches(final IndexedGraph<?> graph) {
+        return fingerprint == fingerprint(graph);
+    }
+
+    /**
+     * @return the list of units, as path prefixes of vertex indices.
+     */
+    List<int[]> getUnits() {
+        return units;
+    }
+
+    /**
+     * @return a copy of the path count of each unit, or -1 for a pending unit.
+     */
+    long[] getCounts() {
+        return counts.clone();
+    }
+
+    /**
+     * @return the number of units the count was split into.
+     */
+    public int getUnitCount() {
+        return units.size();
+    }
+
+    /**
+     * @return the number of units that have been completed.
+     */
+    public int getCompletedUnitCount() {
+        int completed = 0;
+        for (final long count : counts) {
+            if (count >= 0) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * @return the number of paths found in the completed units.
+     */
+    public BigInteger getPartialCount() {
+        final CountAccumulator total = new CountAccumulator();
+        for (final long count : counts) {
+            if (count > 0) {
+                total.add(count);
+            }
+        }
+        return total.toBigInteger();
+    }
+
+    /**
+     * Obtains a fingerprint of the structure of the given graph: its start and goal vertices, and the neighbors of
+     * every vertex, by index.
+     *
+     * @param graph
+     *            is the graph to fingerprint.
+     * @return the fingerprint.
+     */
+    static long fingerprint(final IndexedGraph<?> graph) {
+        // FNV-1a, one int at a time
+        long hash = 0xcbf29ce484222325L;
+        final int n = graph.vertexCount();
+        hash = (hash ^ n) * 0x100000001b3L;
+        hash = (hash ^ graph.getStart()) * 0x100000001b3L;
+        hash = (hash ^ graph.getGoal()) * 0x100000001b3L;
+        for (int v = 0; v < n; v++) {
+            final int[] neighbors = graph.getNeighbors(v);
+            hash = (hash ^ neighbors.length) * 0x100000001b3L;
+            for (final int w : neighbors) {
+                hash = (hash ^ w) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @param line
+     *            is the line to split, possibly null.
+     * @return the whitespace separated fields of the given line.
+     */
+    private static String[] split(final String line) {
+        return line == null ? new String[0] : line.trim().split("\\s+");
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "[completed units=" + getCompletedUnitCount() + "/" + getUnitCount() + ", partial count="
+                + getPartialCount() + "]";
+    }
+}
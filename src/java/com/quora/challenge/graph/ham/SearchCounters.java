@@ -0,0 +1,87 @@
+package com.quora.challenge.graph.ham;
+
+/**
+ * Search node statistics gathered by a single search task.
+ * <p/>
+ * Each task owns its counters and updates them with plain (unshared) writes from the search loop; the counters of all
+ * tasks are merged once the tasks have finished. Note that this class is not thread safe.
+ *
+ * @author mattt
+ */
+public final class SearchCounters {
+
+    // package-private so the search loop can update them without a call
+    long nodes;
+    long expansions;
+    long prunes;
+    long leaves;
+    long paths;
+
+    /**
+     * @return the number of search nodes visited, that is, the number of times the path was extended by a vertex.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of search nodes expanded into their neighbors, excluding pruned searches.
+     */
+    public long getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * @return the number of search nodes cut off by a pruning test.
+     */
+    public long getPrunes() {
+        return prunes;
+    }
+
+    /**
+     * @return the number of search nodes that reached the goal vertex, whether or not they completed a path.
+     */
+    public long getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * @return the number of hamiltonian paths found.
+     */
+    public long getPaths() {
+        return paths;
+    }
+
+    /**
+     * Adds the given counters to these counters.
+     *
+     * @param counters
+     *            is the {@link SearchCounters} to add.
+     */
+    public void add(final SearchCounters counters) {
+        this.nodes += counters.nodes;
+        this.expansions += counters.expansions;
+        this.prunes += counters.prunes;
+        this.leaves += counters.leaves;
+        this.paths += counters.paths;
+    }
+
+    /**
+     * @return a copy of these counters.
+     */
+    public SearchCounters copy() {
+        final SearchCounters copy = new SearchCounters();
+        copy.add(this);
+        return copy;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "[nodes=" + nodes + ", expansions=" + expansions + ", prunes=" + prunes + ", leaves=" + leaves
+                + ", paths=" + paths + "]";
+    }
+}
@@ -0,0 +1,151 @@
+package com.quora.challenge.graph.ham;
+
+/**
+ * An estimate of the cost and result of a path count, made without running it (see
+ * {@link HamiltonianPathCounter#estimateSearch(com.quora.challenge.graph.Graph, long)}).
+ * <p/>
+ * The size of the search tree and the number of paths are estimated from random probes down the pruned search tree
+ * (Knuth's estimator), and the running time from the rate at which the search engine visits nodes on the graph at
+ * hand. Each range is a 95% confidence interval, based on the standard error of the probes. The distribution of the
+ * probes is typically heavy tailed, so the ranges are only indicative when few probes were made. An estimate made of
+ * a search small enough to be run to completion while calibrating is exact.
+ *
+ * @author mattt
+ */
+public final class SearchEstimate {
+
+    // the 97.5th percentile of the standard normal distribution
+    private static final double Z_95 = 1.96;
+
+    private final int probes;
+    private final double nodes;
+    private final double nodesError;
+    private final double paths;
+    private final double pathsError;
+    private final double nodesPerMilli;
+    private final int threads;
+
+    /**
+     * @param probes
+     *            is the number of probes the estimate was made from, or 0 for an exact estimate.
+     * @param nodes
+     *            is the estimated number of search nodes.
+     * @param nodesError
+     *            is the standard error of the estimated number of search nodes.
+     * @param paths
+     *            is the estimated number of hamiltonian paths.
+     * @param pathsError
+     *            is the standard error of the estimated number of hamiltonian paths.
+     * @param nodesPerMilli
+     *            is the number of search nodes a search thread visits per millisecond.
+     * @param threads
+     *            is the number of search threads a count runs on.
+     */
+    SearchEstimate(final int probes, final double nodes, final double nodesError, final double paths,
+            final double pathsError, final double nodesPerMilli, final int threads) {
+        this.probes = probes;
+        this.nodes = nodes;
+        this.nodesError = nodesError;
+        this.paths = paths;
+        this.pathsError = pathsError;
+        this.nodesPerMilli = nodesPerMilli;
+        this.threads = threads;
+    }
+
+    /**
+     * @return the number of probes the estimate was made from, or 0 if the estimate is exact.
+     */
+    public int getProbes() {
+        return probes;
+    }
+
+    /**
+     * @return true if the search was run to completion while calibrating, so the estimate is exact.
+     */
+    public boolean isExact() {
+        return probes == 0;
+    }
+
+    /**
+     * @return the estimated number of search nodes.
+     */
+    public double getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the lower bound of the estimated number of search nodes.
+     */
+    public double getNodesLow() {
+        return Math.max(1, nodes - Z_95 * nodesError);
+    }
+
+    /**
+     * @return the upper bound of the estimated number of search nodes.
+     */
+    public double getNodesHigh() {
+        return nodes + Z_95 * nodesError;
+    }
+
+    /**
+     * @return the estimated number of hamiltonian paths.
+     */
+    public double getPaths() {
+        return paths;
+    }
+
+    /**
+     * @return the lower bound of the estimated number of hamiltonian paths.
+     */
+    public double getPathsLow() {
+        return Math.max(0, paths - Z_95 * pathsError);
+    }
+
+    /**
+     * @return the upper bound of the estimated number of hamiltonian paths.
+     */
+    public double getPathsHigh() {
+        return paths + Z_95 * pathsError;
+    }
+
+    /**
+     * @return the estimated running time of the count, in milliseconds.
+     */
+    public long getTime() {
+        return toTime(nodes);
+    }
+
+    /**
+     * @return the lower bound of the estimated running time of the count, in milliseconds.
+     */
+    public long getTimeLow() {
+        return toTime(getNodesLow());
+    }
+
+    /**
+     * @return the upper bound of the estimated running time of the count, in milliseconds.
+     */
+    public long getTimeHigh() {
+        return toTime(getNodesHigh());
+    }
+
+    /**
+     * @param searchNodes
+     *            is a number of search nodes.
+     * @return the time it takes to visit the given number of search nodes, in milliseconds.
+     */
+    private long toTime(final double searchNodes) {
+        return (long) Math.ceil(searchNodes / (nodesPerMilli * threads));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("[probes=%d, nodes=%.3g (%.3g - %.3g), paths=%.3g (%.3g - %.3g), time=%d ms (%d - %d)]",
+                probes, nodes, getNodesLow(), getNodesHigh(), paths, getPathsLow(), getPathsHigh(), getTime(),
+                getTimeLow(), getTimeHigh());
+    }
+}
@@ -0,0 +1,211 @@
+package com.quora.challenge.graph.ham;
+
+import java.io.File;
+
+/**
+ * Holds the options of a path count (see {@link HamiltonianPathCounter#findPaths(com.quora.challenge.graph.Graph,
+ * SearchOptions)}).
+ *
+ * @author mattt
+ */
+public final class SearchOptions {
+
+    public static class Builder {
+
+        private File checkpointFile;
+        private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL; // in milliseconds
+        private SearchCheckpoint resumeFrom;
+        private long deadline = Long.MAX_VALUE; // in milliseconds since the epoch
+        private long nodeBudget = Long.MAX_VALUE;
+        private long pathLimit = Long.MAX_VALUE;
+        private CancellationToken cancellation;
+        private ProgressListener progressListener;
+        private long progressInterval; // in milliseconds
+
+        public final SearchOptions build() {
+            return new SearchOptions(this);
+        }
+
+        public final Builder checkpoint(final File checkpointFile) {
+            if (checkpointFile == null)
+                throw new NullPointerException();
+            this.checkpointFile = checkpointFile;
+            return this;
+        }
+
+        public final Builder checkpointInterval(final long checkpointInterval) {
+            if (checkpointInterval < 1)
+                throw new IllegalArgumentException("The checkpoint interval must be >= 1");
+            this.checkpointInterval = checkpointInterval;
+            return this;
+        }
+
+        public final Builder resumeFrom(final SearchCheckpoint resumeFrom) {
+            if (resumeFrom == null)
+                throw new NullPointerException();
+            this.resumeFrom = resumeFrom;
+            return this;
+        }
+
+        public final Builder deadline(final long deadline) {
+            this.deadline = deadline;
+            return this;
+        }
+
+        public final Builder timeout(final long timeout) {
+            if (timeout < 0)
+                throw new IllegalArgumentException("The timeout must be >= 0");
+            final long now = System.currentTimeMillis();
+            this.deadline = Long.MAX_VALUE - timeout < now ? Long.MAX_VALUE : now + timeout;
+            return this;
+        }
+
+        public final Builder nodeBudget(final long nodeBudget) {
+            if (nodeBudget < 1)
+                throw new IllegalArgumentException("The node budget must be >= 1");
+            this.nodeBudget = nodeBudget;
+            return this;
+        }
+
+        public final Builder pathLimit(final long pathLimit) {
+            if (pathLimit < 1)
+                throw new IllegalArgumentException("The path limit must be >= 1");
+            this.pathLimit = pathLimit;
+            return this;
+        }
+
+        public final Builder cancellation(final CancellationToken cancellation) {
+            if (cancellation == null)
+                throw new NullPointerException();
+            this.cancellation = cancellation;
+            return this;
+        }
+
+        public final Builder progress(final ProgressListener progressListener, final long progressInterval) {
+            if (progressListener == null)
+                throw new NullPointerException();
+            if (progressInterval < 1)
+                throw new IllegalArgumentException("The progress interval must be >= 1");
+            this.progressListener = progressListener;
+            this.progressInterval = progressInterval;
+            return this;
+        }
+    }
+
+    // the default interval between two checkpoints, in milliseconds
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 60 * 1000;
+
+    private static final SearchOptions DEFAULTS = new Builder().build();
+
+    private final File checkpointFile;
+    private final long checkpointInterval;
+    private final SearchCheckpoint resumeFrom;
+    private final long deadline;
+    private final long nodeBudget;
+    private final long pathLimit;
+    private final CancellationToken cancellation;
+    private final ProgressListener progressListener;
+    private final long progressInterval;
+
+    /**
+     * @param builder
+     *            is the {@link Builder} holding the options.
+     */
+    private SearchOptions(final Builder builder) {
+        this.checkpointFile = builder.checkpointFile;
+        this.checkpointInterval = builder.checkpointInterval;
+        this.resumeFrom = builder.resumeFrom;
+        this.deadline = builder.deadline;
+        this.nodeBudget = builder.nodeBudget;
+        this.pathLimit = builder.pathLimit;
+        this.cancellation = builder.cancellation;
+        this.progressListener = builder.progressListener;
+        this.progressInterval = builder.progressInterval;
+    }
+
+    /**
+     * @return the default options: no checkpoints are written, the count starts from scratch and runs until the whole
+     *         search space has been explored.
+     */
+    public static SearchOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @return the file to periodically write a {@link SearchCheckpoint} to, or null if no checkpoints are written.
+     */
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * @return the interval between two checkpoints, in milliseconds.
+     */
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * @return the {@link SearchCheckpoint} to resume the count from, or null to start from scratch.
+     */
+    public SearchCheckpoint getResumeFrom() {
+        return resumeFrom;
+    }
+
+    /**
+     * @return the time (in milliseconds since the epoch) at which the count is stopped, or {@link Long#MAX_VALUE} if
+     *         the count has no deadline.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @return the number of search nodes after which the count is stopped, or {@link Long#MAX_VALUE} if the count has
+     *         no node budget. The budget is shared by all search threads, and is enforced between slices of work, so a
+     *         count may slightly overrun it.
+     */
+    public long getNodeBudget() {
+        return nodeBudget;
+    }
+
+    /**
+     * @return the number of paths after which the count is stopped, or {@link Long#MAX_VALUE} if the count has no path
+     *         limit. A count with a limit of 1 is an existence check. Search threads stop as soon as the paths found by
+     *         all of them reach the limit, and explore the neighbors of each vertex fewest exits first, to find paths
+     *         sooner (see {@link PathSearch#setWarnsdorffOrder(boolean)}). A stopped count may slightly overrun the
+     *         limit.
+     */
+    public long getPathLimit() {
+        return pathLimit;
+    }
+
+    /**
+     * @return the {@link CancellationToken} to stop the count with, or null if the count can't be cancelled.
+     */
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * @return the {@link ProgressListener} to report the progress of the count to, or null if progress isn't reported.
+     */
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * @return the interval between two progress samples, in milliseconds.
+     */
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    /**
+     * @return true if the count may be stopped before the whole search space has been explored.
+     */
+    public boolean isLimited() {
+        return deadline != Long.MAX_VALUE || nodeBudget != Long.MAX_VALUE || pathLimit != Long.MAX_VALUE
+                || cancellation != null;
+    }
+}
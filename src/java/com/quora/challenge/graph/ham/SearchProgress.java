@@ -0,0 +1,129 @@
+package com.quora.challenge.graph.ham;
+
+import java.math.BigInteger;
+
+/**
+ * A sample of the progress of a path count (see {@link ProgressListener}).
+ *
+ * @author mattt
+ */
+public final class SearchProgress {
+
+    private final long elapsedTime;
+    private final long nodes;
+    private final double nodesPerSecond;
+    private final int completedUnits;
+    private final int totalUnits;
+    private final BigInteger partialCount;
+    private final double exploredFraction;
+    private final long estimatedTimeRemaining;
+
+    /**
+     * @param elapsedTime
+     *            is the time since the count started, in milliseconds.
+     * @param nodes
+     *            is the number of search nodes visited so far.
+     * @param nodesPerSecond
+     *            is the number of search nodes visited per second since the previous sample.
+     * @param completedUnits
+     *            is the number of units of work completed.
+     * @param totalUnits
+     *            is the number of units of work the count was split into.
+     * @param partialCount
+     *            is the number of paths found so far.
+     * @param exploredFraction
+     *            is the estimated fraction of the search space explored.
+     * @param estimatedTimeRemaining
+     *            is the estimated time until the count completes, in milliseconds, or -1 if unknown.
+     */
+    SearchProgress(final long elapsedTime, final long nodes, final double nodesPerSecond, final int completedUnits,
+            final int totalUnits, final BigInteger partialCount, final double exploredFraction,
+            final long estimatedTimeRemaining) {
+        this.elapsedTime = elapsedTime;
+        this.nodes = nodes;
+        this.nodesPerSecond = nodesPerSecond;
+        this.completedUnits = completedUnits;
+        this.totalUnits = totalUnits;
+        this.partialCount = partialCount;
+        this.exploredFraction = exploredFraction;
+        this.estimatedTimeRemaining = estimatedTimeRemaining;
+    }
+
+    /**
+     * @return the time since the count started, in milliseconds.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * @return the number of search nodes visited so far by this run (excluding any run the count was resumed from).
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of search nodes visited per second since the previous sample.
+     */
+    public double getNodesPerSecond() {
+        return nodesPerSecond;
+    }
+
+    /**
+     * @return the number of units of work (top level subtrees of the search) completed.
+     */
+    public int getCompletedUnits() {
+        return completedUnits;
+    }
+
+    /**
+     * @return the number of units of work the count was split into.
+     */
+    public int getTotalUnits() {
+        return totalUnits;
+    }
+
+    /**
+     * @return the number of paths found so far.
+     */
+    public BigInteger getPartialCount() {
+        return partialCount;
+    }
+
+    /**
+     * @return the estimated fraction of the search space explored, between 0 and 1.
+     */
+    public double getExploredFraction() {
+        return exploredFraction;
+    }
+
+    /**
+     * @return the estimated time until the count completes, in milliseconds, or -1 if it can't be estimated yet. The
+     *         estimate assumes the search space is explored at the rate observed so far.
+     */
+    public long getEstimatedTimeRemaining() {
+        return estimatedTimeRemaining;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("%.2f%% explored, %d/%d units, %s paths, %d nodes (%.0f/s), elapsed %s, remaining %s",
+                exploredFraction * 100, completedUnits, totalUnits, partialCount, nodes, nodesPerSecond,
+                formatTime(elapsedTime), estimatedTimeRemaining < 0 ? "unknown" : formatTime(estimatedTimeRemaining));
+    }
+
+    /**
+     * @param millis
+     *            is a duration, in milliseconds.
+     * @return the given duration formatted as hours, minutes and seconds.
+     */
+    private static String formatTime(final long millis) {
+        final long seconds = millis / 1000;
+        return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+}
@@ -0,0 +1,142 @@
+package com.quora.challenge.graph.ham;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Draws hamiltonian paths uniformly at random from a {@link PathDiagram}.
+ * <p/>
+ * The number of paths below each node of the diagram is computed once (see {@link PathDiagram#count()}). A sample then
+ * walks down from the root, taking the high child of each node with probability the number of paths below the high
+ * child over the number below the node, which picks each path with probability exactly 1 over the number of paths. A
+ * walk visits one node per edge decided, so each sample takes time linear in the number of edges of the graph. Counts
+ * are compared as <code>long</code>s when the number of paths fits, and as {@link BigInteger}s otherwise.
+ * <p/>
+ * Note that this class is not thread safe, as samples share a random number generator; use one sampler per thread.
+ *
+ * @author mattt
+ * @param <V>
+ *            is the vertex type
+ */
+public final class UniformPathSampler<V> {
+
+    private final PathDiagram<V> diagram;
+    private final Random random;
+
+    // the number of paths below each node, or null if the number of paths doesn't fit in a long
+    private final long[] counts;
+    private final BigInteger[] bigCounts;
+
+    /**
+     * @param diagram
+     *            is the diagram of the paths to sample.
+     * @param seed
+     *            is the seed of the samples; samplers with the same seed draw the same paths.
+     */
+    public UniformPathSampler(final PathDiagram<V> diagram, final long seed) {
+        if (diagram == null)
+            throw new NullPointerException();
+
+        this.diagram = diagram;
+        this.random = new Random(seed);
+        this.bigCounts = diagram.getCounts();
+        if (bigCounts[diagram.getRoot()].bitLength() < Long.SIZE - 1) {
+            counts = new long[bigCounts.length];
+            for (int node = 0; node < counts.length; node++) {
+                counts[node] = bigCounts[node].longValue();
+            }
+        } else {
+            counts = null;
+        }
+    }
+
+    /**
+     * @return the number of paths samples are drawn from.
+     */
+    public BigInteger getPathCount() {
+        return bigCounts[diagram.getRoot()];
+    }
+
+    /**
+     * Draws a path.
+     *
+     * @return the vertices of the path, from the start vertex to the goal vertex.
+     * @throws IllegalStateException
+     *             if there are no paths to draw.
+     */
+    public List<V> next() {
+        final int root = diagram.getRoot();
+        if (bigCounts[root].signum() == 0)
+            throw new IllegalStateException("There are no paths to sample");
+
+        final boolean[] used = new boolean[diagram.getEdgeCount()];
+        if (counts != null) {
+            walk(root, nextLong(counts[root]), used);
+        } else {
+            walk(root, nextBigInteger(bigCounts[root]), used);
+        }
+        return diagram.toPath(used);
+    }
+
+    /**
+     * Walks down to the path of the given rank below the given node, low paths first.
+     */
+    private void walk(final int from, final long rank, final boolean[] used) {
+        int node = from;
+        long r = rank;
+        while (diagram.getLevel(node) < used.length) {
+            final int low = diagram.getLow(node);
+            if (r < counts[low]) {
+                node = low;
+            } else {
+                r -= counts[low];
+                used[diagram.getLevel(node)] = true;
+                node = diagram.getHigh(node);
+            }
+        }
+    }
+
+    /**
+     * Walks down to the path of the given rank below the given node, low paths first.
+     */
+    private void walk(final int from, final BigInteger rank, final boolean[] used) {
+        int node = from;
+        BigInteger r = rank;
+        while (diagram.getLevel(node) < used.length) {
+            final int low = diagram.getLow(node);
+            if (r.compareTo(bigCounts[low]) < 0) {
+                node = low;
+            } else {
+                r = r.subtract(bigCounts[low]);
+                used[diagram.getLevel(node)] = true;
+                node = diagram.getHigh(node);
+            }
+        }
+    }
+
+    /**
+     * @return a uniformly distributed value between 0 (inclusive) and the given bound (exclusive).
+     */
+    private long nextLong(final long bound) {
+        // rejects the values of the last, incomplete multiple of the bound
+        long bits;
+        long value;
+        do {
+            bits = random.nextLong() >>> 1;
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+        return value;
+    }
+
+    /**
+     * @return a uniformly distributed value between 0 (inclusive) and the given bound (exclusive).
+     */
+    private BigInteger nextBigInteger(final BigInteger bound) {
+        BigInteger value;
+        do {
+            value = new BigInteger(bound.bitLength(), random);
+        } while (value.compareTo(bound) >= 0);
+        return value;
+    }
+}
@@ -1,5 +1,6 @@
 package com.quora.challenge.graph.ham.pruning;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -7,6 +8,7 @@ import java.util.Set;
 
 import com.google.common.collect.Sets;
 import com.quora.challenge.graph.AdjacencyList;
+import com.quora.challenge.graph.IndexedGraph;
 
 /**
  * A pruning strategy that tests the biconnectivity of a graph (that is, it is a connected graph with no articulation
@@ -61,6 +63,114 @@ public class BiConnectedPruningStrategy<V> {
         return articulationVerticies.isEmpty() ? true : false;
     }
 
+    /**
+     * Performs the same test as {@link #isBiConnected(AdjacencyList, Object, Set, Object)} against an
+     * {@link IndexedGraph}, using an explicit stack held in the given {@link Workspace} rather than recursion, so the
+     * depth of the graph is not limited by the size of the thread stack.
+     * 
+     * </p>
+     * 
+     * Unlike the {@link AdjacencyList} variant, this test also fails if any vertex outside the current path can not be
+     * reached from v, since such a graph is not connected (and so not biconnected).
+     * 
+     * @param graph
+     *            is the graph to test biconnectivity for.
+     * @param v
+     *            is the index of the current vertex.
+     * @param currentPath
+     *            marks the vertices of the current path (that is, the previously explored verticies), by index. These
+     *            verticies will be excluded from the biconnectivity test. v must not be marked.
+     * @param remaining
+     *            is the number of verticies not marked in the current path, including v.
+     * @param goal
+     *            is the index of the goal vertex.
+     * @param workspace
+     *            is the {@link Workspace} to run the test in. A workspace may only be used by one thread at a time.
+     * @return true if the graph is biconnected (in other words no articulation points exist), false otherwise.
+     */
+    public boolean isBiConnected(final IndexedGraph<V> graph, final int v, final boolean[] currentPath,
+            final int remaining, final int goal, final Workspace workspace) {
+
+        assert !currentPath[v];
+
+        final int[] depths = workspace.depths;
+        final int[] lows = workspace.lows;
+        final int[] children = workspace.children;
+        final int[] stack = workspace.stack;
+        final int[] cursors = workspace.cursors;
+        final int stamp = workspace.nextStamp();
+        final int[] stamps = workspace.stamps;
+
+        // Hopcroft and Tarjan's depth first search, with the recursion unrolled onto the workspace stack. A vertex's
+        // neighbors are followed by one extra "cycle neighbor" (see PruningUtil.addCycleNeighbor), which links the
+        // root to the goal and the goal to the root.
+        int size = 0;
+        int visited = 1;
+        stamps[v] = stamp;
+        depths[v] = 1;
+        lows[v] = 1;
+        children[v] = 0;
+        stack[size] = v;
+        cursors[size] = 0;
+        size++;
+
+        while (size > 0) {
+            final int vertex = stack[size - 1];
+            final int[] neighbors = graph.getNeighbors(vertex);
+            final int cursor = cursors[size - 1]++;
+
+            if (cursor <= neighbors.length) {
+                final int n;
+                if (cursor < neighbors.length) {
+                    n = neighbors[cursor];
+                } else if (vertex == v) {
+                    n = goal;
+                } else if (vertex == goal) {
+                    n = v;
+                } else {
+                    continue;
+                }
+                if (n < 0 || currentPath[n]) {
+                    continue;
+                }
+
+                if (stamps[n] != stamp) {
+                    // descend into n
+                    children[vertex]++;
+                    stamps[n] = stamp;
+                    depths[n] = depths[vertex] + 1;
+                    lows[n] = depths[n];
+                    children[n] = 0;
+                    stack[size] = n;
+                    cursors[size] = 0;
+                    size++;
+                    visited++;
+                } else if (depths[n] < lows[vertex]) {
+                    lows[vertex] = depths[n];
+                }
+            } else {
+                // all of vertex's neighbors are explored; return to its parent
+                size--;
+                if (size == 0) {
+                    break;
+                }
+                final int parent = stack[size - 1];
+                if (depths[parent] == 1) {
+                    // a root is a cutpoint if it has more than one child
+                    if (children[parent] >= 2) {
+                        return false;
+                    }
+                } else if (lows[vertex] >= depths[parent]) {
+                    return false;
+                }
+                if (lows[vertex] < lows[parent]) {
+                    lows[parent] = lows[vertex];
+                }
+            }
+        }
+        return visited == remaining;
+    }
+
     /**
      * Performs a depth first search, first visiting v, then visiting any neighbors of v. If an articulation vertex is
      * found, it is added to the given list of articulation verticies.
@@ -204,4 +314,48 @@ public class BiConnectedPruningStrategy<V> {
             return low;
         }
     }
+
+    /**
+     * Scratch space for {@link BiConnectedPruningStrategy#isBiConnected(IndexedGraph, int, boolean[], int, int,
+     * Workspace)}, sized for a graph with a given number of vertices. Reusing a workspace avoids allocating in the
+     * search loop. Note that this class is not thread safe.
+     * 
+     * @author mattt
+     */
+    public static final class Workspace {
+
+        private final int[] depths;
+        private final int[] lows;
+        private final int[] children;
+        private final int[] stack;
+        private final int[] cursors;
+
+        // marks the vertices visited by the current test, saving a clear of the arrays above for every test
+        private final int[] stamps;
+        private int stamp;
+
+        /**
+         * @param vertexCount
+         *            is the number of vertices of the graphs this workspace is used for.
+         */
+        public Workspace(final int vertexCount) {
+            this.depths = new int[vertexCount];
+            this.lows = new int[vertexCount];
+            this.children = new int[vertexCount];
+            this.stack = new int[vertexCount];
+            this.cursors = new int[vertexCount];
+            this.stamps = new int[vertexCount];
+        }
+
+        /**
+         * @return a stamp that no vertex is currently marked with.
+         */
+        private int nextStamp() {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+    }
 }
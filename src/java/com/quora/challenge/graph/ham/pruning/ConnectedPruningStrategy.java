@@ -1,5 +1,6 @@
 package com.quora.challenge.graph.ham.pruning;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -9,6 +10,7 @@ import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.quora.challenge.graph.AdjacencyList;
+import com.quora.challenge.graph.IndexedGraph;
 
 /**
  * A pruning strategy that tests the connectivity of a graph. </p> For more information see: <a
@@ -140,6 +142,99 @@ public class ConnectedPruningStrategy<V> {
         return true;
     }
 
+    /**
+     * Determines whether a path ending at v could still be extended into a hamiltonian path of the given
+     * {@link IndexedGraph}, ending anywhere: every vertex outside the current path must be reachable from v, and at
+     * most one vertex other than v may be a dead end (that is, have fewer than two neighbors outside the current
+     * path), since a dead end can only be visited last.
+     * 
+     * </p>
+     * 
+     * Unlike the biconnectivity test (see {@link BiConnectedPruningStrategy}), this test doesn't rely on the path
+     * ending at a known goal vertex.
+     * 
+     * @param graph
+     *            is the graph to test.
+     * @param v
+     *            is the index of the current vertex.
+     * @param currentPath
+     *            marks the vertices of the current path, by index. v must not be marked.
+     * @param remaining
+     *            is the number of verticies not marked in the current path, including v.
+     * @param workspace
+     *            is the {@link Workspace} to run the test in. A workspace may only be used by one thread at a time.
+     * @return true if the path can still be extended into a hamiltonian path, as far as this test can tell.
+     */
+    public boolean isTraversable(final IndexedGraph<V> graph, final int v, final boolean[] currentPath,
+            final int remaining, final Workspace workspace) {
+
+        assert !currentPath[v];
+
+        final int[] queue = workspace.queue;
+        final int[] stamps = workspace.stamps;
+        final int stamp = workspace.nextStamp();
+
+        // a breadth first search from v, counting the dead ends along the way
+        int head = 0;
+        int tail = 0;
+        int deadEnds = 0;
+        stamps[v] = stamp;
+        queue[tail++] = v;
+        while (head < tail) {
+            final int vertex = queue[head++];
+            int degree = 0;
+            for (final int n : graph.getNeighbors(vertex)) {
+                if (currentPath[n]) {
+                    continue;
+                }
+                degree++;
+                if (stamps[n] != stamp) {
+                    stamps[n] = stamp;
+                    queue[tail++] = n;
+                }
+            }
+            if (vertex != v && degree < 2 && ++deadEnds > 1) {
+                return false;
+            }
+        }
+        return tail == remaining;
+    }
+
+    /**
+     * Scratch space for {@link ConnectedPruningStrategy#isTraversable(IndexedGraph, int, boolean[], int, Workspace)},
+     * sized for a graph with a given number of vertices. Note that this class is not thread safe.
+     * 
+     * @author mattt
+     */
+    public static final class Workspace {
+
+        private final int[] queue;
+
+        // marks the vertices visited by the current test, saving a clear of the array for every test
+        private final int[] stamps;
+        private int stamp;
+
+        /**
+         * @param vertexCount
+         *            is the number of vertices of the graphs this workspace is used for.
+         */
+        public Workspace(final int vertexCount) {
+            this.queue = new int[vertexCount];
+            this.stamps = new int[vertexCount];
+        }
+
+        /**
+         * @return a stamp that no vertex is currently marked with.
+         */
+        private int nextStamp() {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+    }
+
     /**
      * Associates a list of neighbors of a given vertex with the paths (that is, the set of verticies) accessible from
      * that neighbor. 
@@ -0,0 +1,552 @@
+package com.quora.challenge.grid;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import com.quora.challenge.collect.LongLongMap;
+import com.quora.challenge.collect.OffHeapLongLongMap;
+
+/**
+ * Counts hamiltonian paths in a grid by dynamic programming over a frontier (the 'plug' or broken profile method),
+ * which takes time linear in the number of cells, times the number of frontier states, rather than in the number of
+ * paths.
+ * <p/>
+ * The grid is swept line by line, and each line cell by cell. The frontier between the cells swept and those not yet
+ * swept crosses one edge per position of a line, plus the edge between the last cell swept and the next; a state
+ * records, for each of these edges, whether the path uses it and, if so, how the path segment through it is connected:
+ * <ul>
+ * <li>{@link #NONE}: the edge is unused.</li>
+ * <li>{@link #OPEN} and {@link #CLOSE}: the edge is one end of a segment whose other end is also on the frontier; the
+ * two ends of a segment pair up like parentheses, since segments in a plane don't cross.</li>
+ * <li>{@link #END}: the edge is one end of a segment whose other end is an endpoint (the start or goal room).</li>
+ * </ul>
+ * Each state maps to the number of ways the swept cells can be covered to give that state. A state is packed into a
+ * <code>long</code>, two bits per edge, so a line holds at most {@link #MAX_WIDTH} cells. States are held in
+ * {@link OffHeapLongLongMap}s, outside the heap, as wide grids have millions of them. Once the segments from both
+ * endpoints join, every room has been covered; the state becomes {@link #COMPLETE}, which only survives rooms not
+ * owned.
+ * <p/>
+ * A counter of cycles (see {@link #FrontierCounter(int, boolean)}) treats endpoints as rooms, and closes a segment
+ * into a cycle only when no other segment is open, since a cycle that leaves any room uncovered can't be extended to
+ * cover it; once closed, the state is {@link #COMPLETE} as for a path. Each cycle is counted once, as a set of edges.
+ * <p/>
+ * A counter with several threads (see {@link #FrontierCounter(int, boolean, int)}) expands the states of a cell in
+ * parallel once they are numerous enough to be worth it: each thread takes slices of the states, and adds the states
+ * following them to a table shared by all threads (see {@link ShardedStateTable}), whose shards are the slices of the
+ * next cell. Such a counter adds the states of every cell to a sharded table, even those it expands on a single
+ * thread, so the states before every cell, and every line, are split into slices for the threads to take. The
+ * threads belong to an executor the caller passes to each sweep, so a caller sweeping many lines starts them only once.
+ * <p/>
+ * A counter with a modulus (see {@link #FrontierCounter(int, boolean, int, int, long)}) counts modulo that prime (see
+ * {@link Moduli}) instead, so counts never overflow; counters with different moduli count the same grid in lanes whose
+ * residues give the exact count.
+ * <p/>
+ * This class is stateless, so a single instance may be used by any number of threads.
+ *
+ * @author mattt
+ */
+final class FrontierCounter {
+
+    /**
+     * A cell holding no room (a room not owned).
+     */
+    static final byte HOLE = 0;
+    /**
+     * A room the path passes through.
+     */
+    static final byte ROOM = 1;
+    /**
+     * A room the path starts or ends at (the start or goal room).
+     */
+    static final byte ENDPOINT = 2;
+
+    /**
+     * The largest number of cells in a line.
+     */
+    static final int MAX_WIDTH = 31;
+
+    /**
+     * The state of a complete path.
+     */
+    static final long COMPLETE = -1L;
+
+    /**
+     * The least number of states of a cell expanded in parallel.
+     */
+    static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+    // the number of shards of a table of states, per thread
+    private static final int SHARDS_PER_THREAD = 16;
+
+    // the values of an edge in a state
+    private static final int NONE = 0;
+    private static final int OPEN = 1;
+    private static final int CLOSE = 2;
+    private static final int END = 3;
+
+    private final int width;
+    private final boolean cycles;
+    private final int threads;
+    private final int parallelThreshold;
+    // the number of shards of a table of states, a power of 2
+    private final int shardCount;
+    // the modulus of counts, or 0 to count exactly
+    private final long modulus;
+
+    /**
+     * Creates a counter of paths.
+     *
+     * @param width
+     *            is the number of cells in a line.
+     */
+    FrontierCounter(final int width) {
+        this(width, false);
+    }
+
+    /**
+     * @param width
+     *            is the number of cells in a line.
+     * @param cycles
+     *            is true to count hamiltonian cycles, rather than paths between the endpoints.
+     */
+    FrontierCounter(final int width, final boolean cycles) {
+        this(width, cycles, 1);
+    }
+
+    /**
+     * @param width
+     *            is the number of cells in a line.
+     * @param cycles
+     *            is true to count hamiltonian cycles, rather than paths between the endpoints.
+     * @param threads
+     *            is the number of threads to expand states on.
+     */
+    FrontierCounter(final int width, final boolean cycles, final int threads) {
+        this(width, cycles, threads, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param width
+     *            is the number of cells in a line.
+     * @param cycles
+     *            is true to count hamiltonian cycles, rather than paths between the endpoints.
+     * @param threads
+     *            is the number of threads to expand states on.
+     * @param parallelThreshold
+     *            is the least number of states of a cell expanded in parallel.
+     */
+    FrontierCounter(final int width, final boolean cycles, final int threads, final int parallelThreshold) {
+        this(width, cycles, threads, parallelThreshold, 0);
+    }
+
+    /**
+     * @param width
+     *            is the number of cells in a line.
+     * @param cycles
+     *            is true to count hamiltonian cycles, rather than paths between the endpoints.
+     * @param threads
+     *            is the number of threads to expand states on.
+     * @param parallelThreshold
+     *            is the least number of states of a cell expanded in parallel.
+     * @param modulus
+     *            is the prime to count modulo (see {@link Moduli}), below 2^62, or 0 to count exactly.
+     */
+    FrontierCounter(final int width, final boolean cycles, final int threads, final int parallelThreshold,
+            final long modulus) {
+        if (width < 1 || width > MAX_WIDTH)
+            throw new IllegalArgumentException("The width must be between 1 and " + MAX_WIDTH);
+        if (threads < 1)
+            throw new IllegalArgumentException("The number of threads must be >= 1");
+        this.width = width;
+        this.cycles = cycles;
+        this.threads = threads;
+        this.parallelThreshold = parallelThreshold;
+        this.shardCount = Integer.highestOneBit(threads * SHARDS_PER_THREAD - 1) << 1;
+        if (modulus < 0 || modulus == 1 || modulus >= 1L << 62)
+            throw new IllegalArgumentException("The modulus must be 0, or a prime below 2^62");
+        this.modulus = modulus;
+    }
+
+    /**
+     * @return the state before the first line is swept, in a single slice.
+     */
+    static List<LongLongMap> initialStates() {
+        final LongLongMap states = new OffHeapLongLongMap();
+        states.put(0L, 1L);
+        return Collections.singletonList(states);
+    }
+
+    /**
+     * Sweeps a line.
+     *
+     * @param states
+     *            is the number of ways to reach each state before the line, in slices holding distinct states. Left
+     *            unchanged.
+     * @param line
+     *            is the cells of the line.
+     * @param nextLine
+     *            is the cells of the next line, or null for the last line.
+     * @param executorService
+     *            runs the threads of this counter, or is null to sweep on the calling thread alone.
+     * @return the number of ways to reach each state after the line, in slices holding distinct states.
+     * @throws ArithmeticException
+     *             if a count overflows a <code>long</code>.
+     */
+    List<LongLongMap> sweep(final List<LongLongMap> states, final byte[] line, final byte[] nextLine,
+            final ExecutorService executorService) {
+        // the states of the current cell, in slices; the last step shifts them for the next line
+        List<LongLongMap> current = states;
+        for (int pos = 0; pos <= width; pos++) {
+            final List<LongLongMap> next;
+            if (executorService == null) {
+                final LongLongMap map = new OffHeapLongLongMap(size(current));
+                transferSlices(current, line, nextLine, pos, new MapStateTable(map, modulus));
+                next = Collections.singletonList(map);
+            } else {
+                final ShardedStateTable table = new ShardedStateTable(shardCount, modulus);
+                if (size(current) < parallelThreshold) {
+                    transferSlices(current, line, nextLine, pos, table);
+                } else {
+                    transferAll(executorService, current, line, nextLine, pos, table);
+                }
+                next = table.getShards();
+            }
+            // the states of the cells within the line are only needed by the next cell
+            if (current != states) {
+                free(current);
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Adds the states following the given states, past the cell at the given position, on the calling thread.
+     *
+     * @throws ArithmeticException
+     *             if a count overflows a <code>long</code>.
+     */
+    private void transferSlices(final List<LongLongMap> slices, final byte[] line, final byte[] nextLine,
+            final int pos, final StateTable next) {
+        for (final LongLongMap slice : slices) {
+            for (final LongLongMap.Cursor cursor = slice.cursor(); cursor.next();) {
+                step(cursor.key(), cursor.value(), line, nextLine, pos, next);
+            }
+        }
+    }
+
+    /**
+     * Adds the states following the given states, past the cell at the given position, on every thread. Each thread
+     * claims slices in turn.
+     *
+     * @throws ArithmeticException
+     *             if a count overflows a <code>long</code>.
+     */
+    private void transferAll(final ExecutorService executorService, final List<LongLongMap> slices,
+            final byte[] line, final byte[] nextLine, final int pos, final StateTable next) {
+        final AtomicInteger nextSlice = new AtomicInteger();
+        final List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(threads);
+        for (int t = 0; t < threads; t++) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    int slice;
+                    while ((slice = nextSlice.getAndIncrement()) < slices.size()) {
+                        for (final LongLongMap.Cursor cursor = slices.get(slice).cursor(); cursor.next();) {
+                            step(cursor.key(), cursor.value(), line, nextLine, pos, next);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (final Future<Void> future : executorService.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sweeping", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new AssertionError(e.getCause());
+        }
+    }
+
+    /**
+     * @param states
+     *            is the number of ways to reach each state after the last line, in slices holding distinct states.
+     * @return the number of complete paths (or cycles), or its residue for a counter with a modulus.
+     */
+    static long completeCount(final List<LongLongMap> states) {
+        for (final LongLongMap slice : states) {
+            if (slice.containsKey(COMPLETE)) {
+                return slice.get(COMPLETE, 0);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds the states following the given state, past the cell at the given position, or the state shifted for the
+     * next line past the last cell.
+     *
+     * @throws ArithmeticException
+     *             if a count overflows a <code>long</code>.
+     */
+    private void step(final long state, final long count, final byte[] line, final byte[] nextLine, final int pos,
+            final StateTable next) {
+        if (pos < width) {
+            transfer(state, count, line, nextLine, pos, next);
+        } else {
+            // the edge past the last cell of the line is always unused, so shifting makes room for the edge before
+            // the first cell of the next line
+            next.add(state == COMPLETE ? COMPLETE : state << 2, count);
+        }
+    }
+
+    /**
+     * Adds the states following the given state, past the cell at the given position.
+     */
+    private void transfer(final long state, final long count, final byte[] line, final byte[] nextLine,
+            final int pos, final StateTable next) {
+        // a counter of cycles treats endpoints as rooms
+        final byte cell = cycles && line[pos] == ENDPOINT ? ROOM : line[pos];
+        if (state == COMPLETE) {
+            if (cell == HOLE) {
+                next.add(COMPLETE, count);
+            }
+            return;
+        }
+
+        // the edge into the cell from the previous cell of the line, and from the previous line
+        final int before = get(state, pos);
+        final int above = get(state, pos + 1);
+        final long base = set(set(state, pos, NONE), pos + 1, NONE);
+        // whether the path may leave the cell for the next line, and for the next cell of the line
+        final boolean below = nextLine != null && nextLine[pos] != HOLE;
+        final boolean after = pos + 1 < width && line[pos + 1] != HOLE;
+
+        if (cell == HOLE) {
+            if (before == NONE && above == NONE) {
+                next.add(state, count);
+            }
+        } else if (cell == ROOM) {
+            if (before == NONE && above == NONE) {
+                // a new segment
+                if (below && after) {
+                    next.add(set(set(base, pos, OPEN), pos + 1, CLOSE), count);
+                }
+            } else if (before == NONE || above == NONE) {
+                // the segment passes through
+                final int value = before | above;
+                if (below) {
+                    next.add(set(base, pos, value), count);
+                }
+                if (after) {
+                    next.add(set(base, pos + 1, value), count);
+                }
+            } else {
+                join(base, count, pos, before, above, next);
+            }
+        } else {
+            if (before == NONE && above == NONE) {
+                // a segment from the endpoint
+                if (below) {
+                    next.add(set(base, pos, END), count);
+                }
+                if (after) {
+                    next.add(set(base, pos + 1, END), count);
+                }
+            } else if (before == NONE || above == NONE) {
+                // a segment ends at the endpoint
+                final int value = before | above;
+                if (value == END) {
+                    if (base == 0) {
+                        next.add(COMPLETE, count);
+                    }
+                } else {
+                    next.add(set(base, partner(base, pos, value), END), count);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the state following the join of two segment ends in a room.
+     */
+    private void join(final long base, final long count, final int pos, final int before, final int above,
+            final StateTable next) {
+        if (before == OPEN && above == CLOSE) {
+            // both ends of the same segment; a cycle, which is only counted by a counter of cycles once it is the last
+            // segment
+            if (cycles && base == 0) {
+                next.add(COMPLETE, count);
+            }
+            return;
+        }
+        if (before == END && above == END) {
+            // the segments from both endpoints
+            if (base == 0) {
+                next.add(COMPLETE, count);
+            }
+            return;
+        }
+
+        if (before == CLOSE && above == OPEN) {
+            next.add(base, count);
+        } else if (before == OPEN && above == OPEN) {
+            next.add(set(base, partner(base, pos + 1, OPEN), OPEN), count);
+        } else if (before == CLOSE && above == CLOSE) {
+            next.add(set(base, partner(base, pos, CLOSE), CLOSE), count);
+        } else if (before == END) {
+            next.add(set(base, partner(base, pos + 1, above), END), count);
+        } else {
+            next.add(set(base, partner(base, pos, before), END), count);
+        }
+    }
+
+    /**
+     * Finds the other end of a segment.
+     *
+     * @param state
+     *            is the state, in which the edges at the cell being swept are unused.
+     * @param pos
+     *            is the position of the end, either of the edges at the cell being swept.
+     * @param value
+     *            is the value of the end, {@link #OPEN} or {@link #CLOSE}.
+     * @return the position of the other end.
+     */
+    private int partner(final long state, final int pos, final int value) {
+        int depth = 0;
+        if (value == OPEN) {
+            for (int p = pos + 1; p <= width; p++) {
+                final int v = get(state, p);
+                if (v == OPEN) {
+                    depth++;
+                } else if (v == CLOSE && depth-- == 0) {
+                    return p;
+                }
+            }
+        } else {
+            for (int p = pos - 1; p >= 0; p--) {
+                final int v = get(state, p);
+                if (v == CLOSE) {
+                    depth++;
+                } else if (v == OPEN && depth-- == 0) {
+                    return p;
+                }
+            }
+        }
+        throw new IllegalStateException("Unmatched segment end at " + pos + " in state " + Long.toHexString(state));
+    }
+
+    private static int get(final long state, final int pos) {
+        return (int) (state >>> (pos << 1)) & 3;
+    }
+
+    private static long set(final long state, final int pos, final int value) {
+        return state & ~(3L << (pos << 1)) | (long) value << (pos << 1);
+    }
+
+    /**
+     * Frees the memory of the given slices (see {@link LongLongMap#free()}).
+     *
+     * @param slices
+     *            is the slices, which must not be used afterwards.
+     */
+    static void free(final List<LongLongMap> slices) {
+        for (final LongLongMap slice : slices) {
+            slice.free();
+        }
+    }
+
+    /**
+     * @return the number of states in the given slices.
+     */
+    private static long size(final List<LongLongMap> slices) {
+        long size = 0;
+        for (final LongLongMap slice : slices) {
+            size += slice.size();
+        }
+        return size;
+    }
+
+    /**
+     * Adds a count to a state.
+     *
+     * @param modulus
+     *            is the modulus of counts, or 0 to count exactly.
+     * @throws ArithmeticException
+     *             if the count overflows a <code>long</code>.
+     */
+    static void add(final LongLongMap states, final long state, final long count, final long modulus) {
+        final long sum = states.addTo(state, count);
+        if (modulus != 0) {
+            // residues are below 2^62, so their sum doesn't overflow
+            if (sum >= modulus) {
+                states.put(state, sum - modulus);
+            }
+        } else if (sum < 0) {
+            // counts are never negative, so an overflow wraps to a negative sum
+            throw new ArithmeticException("The path count overflows a long");
+        }
+    }
+
+    /**
+     * A table the states following a cell are added to.
+     *
+     * @author mattt
+     */
+    interface StateTable {
+
+        /**
+         * Adds a count to a state.
+         *
+         * @param state
+         *            is the packed state.
+         * @param count
+         *            is the number of ways to reach the state to add.
+         * @throws ArithmeticException
+         *             if the count of the state overflows a <code>long</code>, when counting exactly.
+         */
+        void add(long state, long count);
+    }
+
+    /**
+     * A table of states in a single map, for a single thread.
+     *
+     * @author mattt
+     */
+    private static final class MapStateTable implements StateTable {
+
+        private final LongLongMap states;
+        private final long modulus;
+
+        MapStateTable(final LongLongMap states, final long modulus) {
+            this.states = states;
+            this.modulus = modulus;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see com.quora.challenge.grid.FrontierCounter.StateTable#add(long, long)
+         */
+        @Override
+        public void add(final long state, final long count) {
+            FrontierCounter.add(states, state, count, modulus);
+        }
+    }
+}
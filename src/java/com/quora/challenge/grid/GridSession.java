@@ -0,0 +1,448 @@
+package com.quora.challenge.grid;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.collect.Lists;
+import com.quora.challenge.collect.LongLongMap;
+import com.quora.challenge.command.InputGrid;
+import com.quora.challenge.domain.Room;
+
+/**
+ * A mutable grid whose path count is kept up to date cheaply as its rooms change.
+ * <p/>
+ * Paths are counted by a frontier dynamic program (see {@link FrontierCounter}) sweeping the grid line by line, along
+ * its longer side: column by column for a grid at least as wide as it is high, row by row otherwise. The session keeps
+ * the table of frontier states at the boundary before each line, so after a room changes, only the lines from the one
+ * before that room onwards are swept again. Changes near the end of the sweep are the cheapest to recount.
+ * <p/>
+ * Unlike the room graph (see {@link com.quora.challenge.RoomGraphFactory}), the session requires every owned room to
+ * be on the path, including rooms without an owned neighbor. The session also counts the hamiltonian cycles of the grid
+ * (see {@link #countCycles()}), keeping their frontier states apart from those of paths.
+ * <p/>
+ * Counts that may not fit in a <code>long</code> are counted exactly (see {@link #countPathsExactly()}) in lanes, each
+ * sweeping the grid modulo a different prime (see {@link Moduli}), with enough lanes that their residues give any
+ * count the grid may have. Each lane keeps its own frontier states, so lanes are recounted incrementally too. The
+ * sweeps of cycles and of lanes are only made when first counted, so a session only holds the states of the counts
+ * it is asked for.
+ * <p/>
+ * Note that this class is not thread safe.
+ *
+ * @author mattt
+ */
+public final class GridSession {
+
+    private final int rows;
+    private final int cols;
+    private final Room.Type[] rooms;
+
+    // whether lines are columns (rather than rows)
+    private final boolean byColumn;
+    private final int lineCount;
+    private final int width;
+    private final int threads;
+    private final int parallelThreshold;
+    private final int laneCount;
+    private final Sweep paths;
+    // the sweeps of cycles, and the lanes counting paths and cycles exactly, by modulus; each made when first counted
+    private Sweep cycles;
+    private Sweep[] pathLanes;
+    private Sweep[] cycleLanes;
+
+    /**
+     * @param grid
+     *            is the initial grid of the session.
+     */
+    public GridSession(final InputGrid grid) {
+        this(grid, 1);
+    }
+
+    /**
+     * @param grid
+     *            is the initial grid of the session.
+     * @param threads
+     *            is the number of threads to sweep each line on (see {@link FrontierCounter}). Several threads only pay
+     *            off on wide grids, whose lines hold many frontier states.
+     */
+    public GridSession(final InputGrid grid, final int threads) {
+        this(grid, threads, FrontierCounter.DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param grid
+     *            is the initial grid of the session.
+     * @param threads
+     *            is the number of threads to sweep each line on.
+     * @param parallelThreshold
+     *            is the least number of frontier states of a cell swept on several threads.
+     */
+    GridSession(final InputGrid grid, final int threads, final int parallelThreshold) {
+        if (grid == null)
+            throw new NullPointerException();
+
+        this.rows = grid.getRows();
+        this.cols = grid.getCols();
+        this.rooms = new Room.Type[rows * cols];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = Room.Type.getType(grid.getGrid().get(i));
+        }
+
+        this.byColumn = cols >= rows;
+        this.lineCount = byColumn ? cols : rows;
+        this.width = byColumn ? rows : cols;
+        this.threads = threads;
+        this.parallelThreshold = parallelThreshold;
+        // a path or cycle leaves each room by one of at most 3 edges, so there are fewer than 3^rooms of them
+        final int bits = (int) Math.ceil(rooms.length * Math.log(3) / Math.log(2)) + 1;
+        this.laneCount = Moduli.count(bits);
+        this.paths = newSweep(false, 0);
+    }
+
+    /**
+     * @return the number of rows in the grid.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns in the grid.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @param row
+     *            is the row of the room.
+     * @param col
+     *            is the column of the room.
+     * @return the type of the room.
+     */
+    public Room.Type getType(final int row, final int col) {
+        return rooms[index(row, col)];
+    }
+
+    /**
+     * Changes the type of a room. Only the lines from the one before the room onwards are swept again by the next
+     * count.
+     *
+     * @param row
+     *            is the row of the room.
+     * @param col
+     *            is the column of the room.
+     * @param type
+     *            is the new type of the room.
+     */
+    public void setType(final int row, final int col, final Room.Type type) {
+        if (type == null)
+            throw new NullPointerException();
+
+        final int index = index(row, col);
+        if (rooms[index] == type) {
+            return;
+        }
+        rooms[index] = type;
+        invalidate(byColumn ? col : row);
+    }
+
+    /**
+     * Toggles a room between owned and not owned.
+     *
+     * @param row
+     *            is the row of the room.
+     * @param col
+     *            is the column of the room.
+     * @throws IllegalArgumentException
+     *             if the room is the start or goal room.
+     */
+    public void toggle(final int row, final int col) {
+        final Room.Type type = getType(row, col);
+        if (type == Room.Type.OWNED) {
+            setType(row, col, Room.Type.NOT_OWNED);
+        } else if (type == Room.Type.NOT_OWNED) {
+            setType(row, col, Room.Type.OWNED);
+        } else {
+            throw new IllegalArgumentException("Can't toggle the " + type.getLabel().toLowerCase() + " room");
+        }
+    }
+
+    /**
+     * Counts the hamiltonian paths of the grid from its start room to its goal room.
+     *
+     * @return the number of paths.
+     * @throws IllegalStateException
+     *             if the grid doesn't have exactly one start and one goal room.
+     * @throws ArithmeticException
+     *             if the number of paths overflows a <code>long</code>.
+     */
+    public long countPaths() {
+        checkEndpoints();
+        return count(paths)[0];
+    }
+
+    /**
+     * Counts the hamiltonian paths of the grid from its start room to its goal room, however many there are.
+     *
+     * @return the number of paths.
+     * @throws IllegalStateException
+     *             if the grid doesn't have exactly one start and one goal room.
+     */
+    public BigInteger countPathsExactly() {
+        checkEndpoints();
+        if (pathLanes == null) {
+            pathLanes = newLanes(false);
+        }
+        return Moduli.reconstruct(count(pathLanes));
+    }
+
+    /**
+     * Counts the hamiltonian cycles of the grid: the closed paths through every room, including the start and goal
+     * rooms, counted once whichever room and direction they are read from.
+     *
+     * @return the number of cycles.
+     * @throws ArithmeticException
+     *             if the number of cycles overflows a <code>long</code>.
+     */
+    public long countCycles() {
+        if (cycles == null) {
+            cycles = newSweep(true, 0);
+        }
+        return count(cycles)[0];
+    }
+
+    /**
+     * Counts the hamiltonian cycles of the grid (see {@link #countCycles()}), however many there are.
+     *
+     * @return the number of cycles.
+     */
+    public BigInteger countCyclesExactly() {
+        if (cycleLanes == null) {
+            cycleLanes = newLanes(true);
+        }
+        return Moduli.reconstruct(count(cycleLanes));
+    }
+
+    /**
+     * @return the number of lanes counting exactly.
+     */
+    int getLaneCount() {
+        return laneCount;
+    }
+
+    /**
+     * @return the number of boundaries (one before each line, and one after the last) whose frontier states of paths
+     *         are up to date.
+     */
+    int getValidBoundaries() {
+        return paths.boundaries.size();
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             if the grid doesn't have exactly one start and one goal room.
+     */
+    private void checkEndpoints() {
+        int starts = 0;
+        int goals = 0;
+        for (final Room.Type type : rooms) {
+            starts += type == Room.Type.START ? 1 : 0;
+            goals += type == Room.Type.GOAL ? 1 : 0;
+        }
+        if (starts != 1 || goals != 1)
+            throw new IllegalStateException("The grid must have exactly one start and one goal room");
+    }
+
+    /**
+     * Brings the given sweeps up to date, on threads started once for all of them.
+     *
+     * @return the count of each sweep (see {@link Sweep#count(ExecutorService)}).
+     */
+    private long[] count(final Sweep... sweeps) {
+        final ExecutorService executorService = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            final long[] counts = new long[sweeps.length];
+            for (int i = 0; i < sweeps.length; i++) {
+                counts[i] = sweeps[i].count(executorService);
+            }
+            return counts;
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the grid of this session.
+     */
+    public InputGrid toInputGrid() {
+        final List<String> grid = Lists.newArrayListWithCapacity(rooms.length);
+        for (final Room.Type type : rooms) {
+            grid.add(type.getRoomId());
+        }
+        return new InputGrid(rows, cols, grid);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(cols).append(' ').append(rows);
+        for (final Room.Type type : rooms) {
+            sb.append(' ').append(type.getRoomId());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Frees the memory of the frontier states of the session (see {@link LongLongMap#free()}), which are held outside
+     * the heap and only freed once the session is garbage collected otherwise. The session may still be used; its next
+     * count sweeps the whole grid again.
+     */
+    public void free() {
+        for (final Sweep sweep : getSweeps()) {
+            sweep.free();
+        }
+    }
+
+    /**
+     * Discards the frontier states that depend on the given line: those after it, and those before it, since sweeping
+     * the previous line looks ahead at which of its cells hold a room.
+     */
+    private void invalidate(final int line) {
+        for (final Sweep sweep : getSweeps()) {
+            sweep.invalidate(line);
+        }
+    }
+
+    /**
+     * @return the sweeps made so far.
+     */
+    private List<Sweep> getSweeps() {
+        final List<Sweep> sweeps = Lists.newArrayList(paths);
+        if (cycles != null) {
+            sweeps.add(cycles);
+        }
+        if (pathLanes != null) {
+            sweeps.addAll(Arrays.asList(pathLanes));
+        }
+        if (cycleLanes != null) {
+            sweeps.addAll(Arrays.asList(cycleLanes));
+        }
+        return sweeps;
+    }
+
+    /**
+     * @param countCycles
+     *            is true to count cycles, rather than paths.
+     * @param modulus
+     *            is the prime to count modulo, or 0 to count exactly.
+     * @return a new sweep of the grid.
+     */
+    private Sweep newSweep(final boolean countCycles, final long modulus) {
+        return new Sweep(new FrontierCounter(width, countCycles, threads, parallelThreshold, modulus));
+    }
+
+    /**
+     * @param countCycles
+     *            is true to count cycles, rather than paths.
+     * @return a new sweep of the grid for each lane.
+     */
+    private Sweep[] newLanes(final boolean countCycles) {
+        final Sweep[] lanes = new Sweep[laneCount];
+        for (int lane = 0; lane < laneCount; lane++) {
+            lanes[lane] = newSweep(countCycles, Moduli.get(lane));
+        }
+        return lanes;
+    }
+
+    /**
+     * @return the cells of the given line, for the frontier counter.
+     */
+    private byte[] getLine(final int line) {
+        final byte[] cells = new byte[byColumn ? rows : cols];
+        for (int pos = 0; pos < cells.length; pos++) {
+            final Room.Type type = byColumn ? rooms[pos * cols + line] : rooms[line * cols + pos];
+            switch (type) {
+            case NOT_OWNED:
+                cells[pos] = FrontierCounter.HOLE;
+                break;
+            case OWNED:
+                cells[pos] = FrontierCounter.ROOM;
+                break;
+            default:
+                cells[pos] = FrontierCounter.ENDPOINT;
+                break;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * @return the index of a room in the grid, row by row.
+     */
+    private int index(final int row, final int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols)
+            throw new IndexOutOfBoundsException("No room at row " + row + ", column " + col);
+        return row * cols + col;
+    }
+
+    /**
+     * A counter, and the frontier states it has reached at the boundary before each line, and after the last; only
+     * those before the first changed line are kept. The states before the first line are only made once counted.
+     *
+     * @author mattt
+     */
+    private final class Sweep {
+
+        private final FrontierCounter counter;
+        private final List<List<LongLongMap>> boundaries = Lists.newArrayList();
+
+        Sweep(final FrontierCounter counter) {
+            this.counter = counter;
+        }
+
+        /**
+         * Sweeps the lines from the first whose frontier states aren't up to date onwards.
+         *
+         * @param executorService
+         *            runs the threads of the counter, or is null to sweep on the calling thread alone.
+         * @return the number of complete paths (or cycles), or its residue for a counter with a modulus.
+         */
+        long count(final ExecutorService executorService) {
+            if (boundaries.isEmpty()) {
+                boundaries.add(FrontierCounter.initialStates());
+            }
+            for (int line = boundaries.size() - 1; line < lineCount; line++) {
+                final byte[] nextLine = line + 1 < lineCount ? getLine(line + 1) : null;
+                boundaries.add(counter.sweep(boundaries.get(line), getLine(line), nextLine, executorService));
+            }
+            return FrontierCounter.completeCount(boundaries.get(lineCount));
+        }
+
+        /**
+         * Discards the frontier states that depend on the given line (see {@link GridSession#invalidate(int)}).
+         */
+        void invalidate(final int line) {
+            while (boundaries.size() > Math.max(line, 1)) {
+                FrontierCounter.free(boundaries.remove(boundaries.size() - 1));
+            }
+        }
+
+        /**
+         * Frees every frontier state, including those before the first line.
+         */
+        void free() {
+            while (!boundaries.isEmpty()) {
+                FrontierCounter.free(boundaries.remove(boundaries.size() - 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.quora.challenge.grid;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The prime moduli counts are taken in, when they may not fit in a <code>long</code>, and the reconstruction of counts
+ * from their residues (the Chinese remainder theorem).
+ * <p/>
+ * The moduli are the primes just below 2^62, largest first, so a residue fits in a <code>long</code> and the sum of two
+ * residues doesn't overflow one; a sum is reduced by a subtraction rather than by a division.
+ * Counts below the product of k moduli, which is more than 2^(61 * k), are reconstructed exactly from their k residues.
+ *
+ * @author mattt
+ */
+final class Moduli {
+
+    // the bits of precision a modulus adds to a reconstructed count, rounded down
+    private static final int BITS_PER_MODULUS = 61;
+
+    // the moduli found so far, guarded by the class
+    private static final List<Long> MODULI = Lists.newArrayList();
+
+    /**
+     * suppress default constructor
+     */
+    private Moduli() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @param bits
+     *            is the number of bits of the largest count to reconstruct. Must be >= 1.
+     * @return the number of moduli whose residues reconstruct any count of the given number of bits.
+     */
+    static int count(final int bits) {
+        if (bits < 1)
+            throw new IllegalArgumentException("The number of bits must be >= 1");
+        return (bits + BITS_PER_MODULUS - 1) / BITS_PER_MODULUS;
+    }
+
+    /**
+     * @param index
+     *            is the index of the modulus. Must be >= 0.
+     * @return the modulus: the prime below 2^62 with the given number of primes between it and 2^62.
+     */
+    static synchronized long get(final int index) {
+        if (index < 0)
+            throw new IllegalArgumentException("The index must be >= 0");
+
+        long candidate = MODULI.isEmpty() ? 1L << 62 : MODULI.get(MODULI.size() - 1);
+        while (MODULI.size() <= index) {
+            // primes are odd, and about 1 in 43 numbers near 2^62 is prime
+            candidate -= candidate % 2 == 0 ? 1 : 2;
+            if (BigInteger.valueOf(candidate).isProbablePrime(100)) {
+                MODULI.add(candidate);
+            }
+        }
+        return MODULI.get(index);
+    }
+
+    /**
+     * Reconstructs a count from its residues (Garner's algorithm).
+     *
+     * @param residues
+     *            is the residue of the count by each of the first moduli.
+     * @return the least count with the given residues.
+     */
+    static BigInteger reconstruct(final long[] residues) {
+        BigInteger count = BigInteger.ZERO;
+        BigInteger product = BigInteger.ONE;
+        for (int i = 0; i < residues.length; i++) {
+            final BigInteger modulus = BigInteger.valueOf(get(i));
+            // the multiple of the product of the previous moduli to add, to give the right residue by this modulus
+            final BigInteger multiple = BigInteger.valueOf(residues[i]).subtract(count).multiply(
+                    product.modInverse(modulus)).mod(modulus);
+            count = count.add(product.multiply(multiple));
+            product = product.multiply(modulus);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,73 @@
+package com.quora.challenge.grid;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.quora.challenge.collect.LongLongMap;
+import com.quora.challenge.collect.OffHeapLongLongMap;
+
+/**
+ * A table of frontier states and their counts (see {@link FrontierCounter}) that any number of threads may add to at
+ * once.
+ * <p/>
+ * The table is split into shards by a hash of the packed state, each shard a map guarded by its own lock (lock
+ * striping), so threads adding different states rarely wait for each other. With many more shards than threads, the
+ * shards also split the table evenly for the next step to expand in parallel.
+ *
+ * @author mattt
+ */
+final class ShardedStateTable implements FrontierCounter.StateTable {
+
+    private final LongLongMap[] shards;
+    private final int mask;
+    private final long modulus;
+
+    /**
+     * @param shardCount
+     *            is the number of shards. Must be a power of 2.
+     * @param modulus
+     *            is the modulus of counts, or 0 to count exactly.
+     */
+    ShardedStateTable(final int shardCount, final long modulus) {
+        if (shardCount < 1 || Integer.bitCount(shardCount) != 1)
+            throw new IllegalArgumentException("The number of shards must be a power of 2");
+
+        this.shards = new LongLongMap[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new OffHeapLongLongMap();
+        }
+        this.mask = shardCount - 1;
+        this.modulus = modulus;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.quora.challenge.grid.FrontierCounter.StateTable#add(long, long)
+     */
+    @Override
+    public void add(final long state, final long count) {
+        final LongLongMap shard = shards[shardOf(state)];
+        synchronized (shard) {
+            FrontierCounter.add(shard, state, count, modulus);
+        }
+    }
+
+    /**
+     * @return the shards of the table. Only safe to read once every thread adding to the table is done.
+     */
+    List<LongLongMap> getShards() {
+        return Lists.newArrayList(shards);
+    }
+
+    /**
+     * @return the shard of the given state.
+     */
+    private int shardOf(final long state) {
+        // states differ mostly in their low bits, so the high bits are mixed in (the finalizer of MurmurHash3)
+        long h = state;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
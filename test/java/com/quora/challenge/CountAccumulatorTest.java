@@ -0,0 +1,45 @@
+package com.quora.challenge;
+
+import java.math.BigInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CountAccumulatorTest {
+
+    @Test
+    public void longCountTest() {
+        final CountAccumulator count = new CountAccumulator();
+        count.add(40);
+        count.add(2);
+        Assert.assertTrue(count.fitsInLong());
+        Assert.assertEquals(count.longValue(), 42);
+        Assert.assertEquals(count.toBigInteger(), BigInteger.valueOf(42));
+    }
+
+    @Test
+    public void overflowingCountTest() {
+        final CountAccumulator count = new CountAccumulator();
+        for (int i = 0; i < 4; i++) {
+            count.add(Long.MAX_VALUE);
+        }
+        count.add(3);
+        Assert.assertFalse(count.fitsInLong());
+        Assert.assertEquals(count.toBigInteger(), BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(4))
+                .add(BigInteger.valueOf(3)));
+
+        final CountAccumulator merged = new CountAccumulator();
+        merged.add(count);
+        merged.add(count.toBigInteger().negate());
+        Assert.assertTrue(merged.fitsInLong());
+        Assert.assertEquals(merged.longValue(), 0);
+    }
+
+    @Test(expectedExceptions = ArithmeticException.class)
+    public void overflowingLongValueTest() {
+        final CountAccumulator count = new CountAccumulator();
+        count.add(Long.MAX_VALUE);
+        count.add(1);
+        count.longValue();
+    }
+}
@@ -0,0 +1,111 @@
+package com.quora.challenge;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.quora.challenge.cache.ResultCache;
+import com.quora.challenge.cache.TieredResultCache;
+import com.quora.challenge.command.TablebaseGenerator;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+import com.quora.challenge.graph.ham.HamiltonianPathCounter;
+import com.quora.challenge.graph.ham.HamiltonianPathCounterFactory;
+
+public class PathTablebaseTest {
+
+    private File file;
+    private PathTablebase tablebase;
+
+    @BeforeClass
+    public void setup() throws IOException, InterruptedException {
+        final long[] keys = TablebaseGenerator.enumerateGrids(3, 4, 2);
+        final long[] counts = TablebaseGenerator.countGrids(keys, 2);
+        final SortedMap<Long, Long> table = Maps.newTreeMap();
+        for (int i = 0; i < keys.length; i++) {
+            table.put(keys[i], counts[i]);
+        }
+
+        file = File.createTempFile("tablebase", ".bin");
+        PathTablebase.write(file, table);
+        tablebase = PathTablebase.open(file);
+        Assert.assertEquals(tablebase.size(), keys.length);
+    }
+
+    @AfterClass
+    public void teardown() {
+        file.delete();
+    }
+
+    @Test
+    public void encodeDecodeTest() {
+        final Graph<Room> graph = RoomGraphFactory.generateRoomGraph(3, 4, Lists.newArrayList("2", "0", "0", "1",
+                "0", "1", "0", "0", "0", "0", "0", "3"));
+        final String key = RoomGraphKeys.canonicalKey(graph);
+        Assert.assertEquals(RoomGraphKeys.canonicalKey(PathTablebase.decode(PathTablebase.encode(key))), key);
+    }
+
+    @Test
+    public void corridorTest() throws InterruptedException {
+        // a corridor is wider than 15 columns, whatever its orientation
+        final List<String> rooms = Lists.newArrayList();
+        for (int i = 0; i < PathTablebase.MAX_AREA; i++) {
+            rooms.add("0");
+        }
+        rooms.set(0, "2");
+        rooms.set(rooms.size() - 1, "3");
+        final Graph<Room> corridor = RoomGraphFactory.generateRoomGraph(1, rooms.size(), rooms);
+        final String key = RoomGraphKeys.canonicalKey(corridor);
+        final long packed = PathTablebase.encode(key);
+        Assert.assertTrue(packed >= 0);
+        Assert.assertEquals(RoomGraphKeys.canonicalKey(PathTablebase.decode(packed)), key);
+
+        final long[] keys = TablebaseGenerator.enumerateGrids(1, PathTablebase.MAX_AREA, 0);
+        final int index = Arrays.binarySearch(keys, packed);
+        Assert.assertTrue(index >= 0);
+        Assert.assertEquals(TablebaseGenerator.countGrids(keys, 2)[index], 1);
+    }
+
+    @Test
+    public void lookupTest() {
+        final HamiltonianPathCounter<Room> pathCounter = HamiltonianPathCounterFactory.getInstance();
+        final Graph<Room> graph = RoomGraphFactory.generateRoomGraph(3, 4, Lists.newArrayList("2", "0", "0", "0",
+                "0", "0", "0", "0", "0", "0", "0", "3"));
+        final Graph<Room> holes = RoomGraphFactory.generateRoomGraph(3, 4, Lists.newArrayList("0", "2", "0", "0",
+                "0", "1", "0", "0", "1", "0", "0", "3"));
+
+        for (final Graph<Room> g : ImmutableList.of(graph, holes)) {
+            Assert.assertEquals(tablebase.get(RoomGraphKeys.canonicalKey(g)).getPathCount(), pathCounter
+                    .findPaths(g).getPathCount());
+        }
+
+        // too large for the table
+        final Graph<Room> large = TestUtils.getRoomGraphFromFixture("7-cols-4-rows-38-paths");
+        Assert.assertNull(tablebase.get(RoomGraphKeys.canonicalKey(large)));
+        Assert.assertNull(tablebase.get(large));
+    }
+
+    @Test
+    public void tieredLookupTest() {
+        final ResultCache<Object, PathStatistics<Room>> cache = new TieredResultCache<Object, PathStatistics<Room>>(
+                HamiltonianPathCounter.<Room> newResultCache(), tablebase);
+        final HamiltonianPathCounter<Room> pathCounter = HamiltonianPathCounterFactory.getInstance(
+                RoomGraphKeys.CANONICAL, cache);
+        final long hits = tablebase.getStats().getHits();
+
+        final Graph<Room> graph = RoomGraphFactory.generateRoomGraph(2, 3, Lists.newArrayList("2", "0", "0", "3",
+                "0", "0"));
+        Assert.assertEquals(pathCounter.findPaths(graph).getPathCount(), 1);
+        Assert.assertEquals(tablebase.getStats().getHits(), hits + 1);
+    }
+}
@@ -0,0 +1,43 @@
+package com.quora.challenge;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+
+public class RoomGraphKeysTest {
+
+    @Test
+    public void symmetricGridsTest() {
+        final String key = RoomGraphKeys.canonicalKey(RoomGraphFactory.generateRoomGraph(2, 3,
+                Lists.newArrayList("2", "0", "0", "0", "1", "3")));
+
+        // mirrored
+        Assert.assertEquals(RoomGraphKeys.canonicalKey(RoomGraphFactory.generateRoomGraph(2, 3,
+                Lists.newArrayList("0", "0", "2", "3", "1", "0"))), key);
+        // transposed
+        Assert.assertEquals(RoomGraphKeys.canonicalKey(RoomGraphFactory.generateRoomGraph(3, 2,
+                Lists.newArrayList("2", "0", "0", "1", "0", "3"))), key);
+        // rotated, with start and goal swapped
+        Assert.assertEquals(RoomGraphKeys.canonicalKey(RoomGraphFactory.generateRoomGraph(3, 2,
+                Lists.newArrayList("2", "0", "1", "0", "0", "3"))), key);
+        // surrounded by rooms not owned
+        Assert.assertEquals(RoomGraphKeys.canonicalKey(RoomGraphFactory.generateRoomGraph(3, 4,
+                Lists.newArrayList("2", "0", "0", "1", "0", "1", "3", "1", "1", "1", "1", "1"))), key);
+    }
+
+    @Test
+    public void differentGridsTest() {
+        final Graph<Room> graph = RoomGraphFactory.generateRoomGraph(2, 3,
+                Lists.newArrayList("2", "0", "0", "0", "1", "3"));
+
+        Assert.assertFalse(RoomGraphKeys.canonicalKey(graph).equals(
+                RoomGraphKeys.canonicalKey(RoomGraphFactory.generateRoomGraph(2, 3,
+                        Lists.newArrayList("2", "0", "0", "0", "0", "3")))));
+        Assert.assertFalse(RoomGraphKeys.canonicalKey(graph).equals(
+                RoomGraphKeys.canonicalKey(RoomGraphFactory.generateRoomGraph(2, 3,
+                        Lists.newArrayList("2", "0", "0", "3", "1", "0")))));
+    }
+}
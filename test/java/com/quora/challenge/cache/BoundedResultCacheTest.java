@@ -0,0 +1,97 @@
+package com.quora.challenge.cache;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+
+public class BoundedResultCacheTest {
+
+    // the cost of a result is its value
+    private static final Function<Long, Long> VALUE = new Function<Long, Long>() {
+        @Override
+        public Long apply(final Long value) {
+            return value;
+        }
+    };
+
+    @Test
+    public void leastRecentlyUsedTest() {
+        final ResultCache<String, Long> cache = new BoundedResultCache.Builder<String, Long>().maximumSize(2).build();
+        cache.put("a", 1L);
+        cache.put("b", 2L);
+        Assert.assertEquals(cache.get("a"), Long.valueOf(1));
+        cache.put("c", 3L);
+
+        // with a constant cost, the least recently used result is evicted
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(cache.get("a"), Long.valueOf(1));
+        Assert.assertEquals(cache.get("c"), Long.valueOf(3));
+
+        final CacheStats stats = cache.getStats();
+        Assert.assertEquals(stats.getHits(), 3);
+        Assert.assertEquals(stats.getMisses(), 1);
+        Assert.assertEquals(stats.getEvictions(), 1);
+        Assert.assertEquals(stats.getSize(), 2);
+    }
+
+    @Test
+    public void costAwareTest() {
+        final ResultCache<String, Long> cache = new BoundedResultCache.Builder<String, Long>().maximumSize(2).cost(
+                VALUE).build();
+        cache.put("expensive", 1000L);
+        cache.put("cheap", 1L);
+        cache.put("cheaper", 2L);
+
+        // the expensive result outlives the more recent cheap one
+        Assert.assertNotNull(cache.get("expensive"));
+        Assert.assertNull(cache.get("cheap"));
+        Assert.assertNotNull(cache.get("cheaper"));
+
+        // but not forever, as evicted priorities inflate those of new results
+        for (long i = 0; i < 1000; i++) {
+            cache.put("new-" + i, 2L);
+        }
+        Assert.assertNull(cache.get("expensive"));
+    }
+
+    @Test
+    public void maximumWeightTest() {
+        final ResultCache<String, Long> cache = new BoundedResultCache.Builder<String, Long>()
+                .maximumWeight(10, VALUE).build();
+        cache.put("a", 4L);
+        cache.put("b", 4L);
+        cache.put("c", 11L); // heavier than the whole cache, so not cached
+        Assert.assertNull(cache.get("c"));
+        Assert.assertEquals(cache.getStats().getWeight(), 8);
+
+        cache.put("d", 4L);
+        Assert.assertEquals(cache.getStats().getSize(), 2);
+        Assert.assertEquals(cache.getStats().getWeight(), 8);
+        Assert.assertEquals(cache.getStats().getEvictions(), 1);
+
+        // replacing a result replaces its weight
+        cache.put("d", 6L);
+        Assert.assertEquals(cache.getStats().getWeight(), 10);
+    }
+
+    @Test
+    public void tieredTest() {
+        final ResultCache<String, Long> near = new BoundedResultCache.Builder<String, Long>().maximumSize(1).build();
+        final ResultCache<String, Long> far = new BoundedResultCache.Builder<String, Long>().build();
+        final TieredResultCache<String, Long> cache = new TieredResultCache<String, Long>(near, far);
+
+        cache.put("a", 1L);
+        cache.put("b", 2L);
+        Assert.assertEquals(near.getStats().getSize(), 1);
+        Assert.assertEquals(far.getStats().getSize(), 2);
+
+        // a far hit is copied into the near tier
+        Assert.assertEquals(cache.get("a"), Long.valueOf(1));
+        Assert.assertEquals(near.get("a"), Long.valueOf(1));
+        Assert.assertNull(cache.get("c"));
+
+        Assert.assertEquals(cache.getStats().getHits(), 1);
+        Assert.assertEquals(cache.getStats().getMisses(), 1);
+    }
+}
@@ -0,0 +1,98 @@
+package com.quora.challenge.collect;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Maps;
+
+public class OffHeapLongLongMapTest {
+
+    @Test
+    public void randomOperationsTest() {
+        final OffHeapLongLongMap map = new OffHeapLongLongMap();
+        final Map<Long, Long> expected = Maps.newHashMap();
+        final Random random = new Random(17);
+        for (int i = 0; i < 200000; i++) {
+            // few distinct keys, including the key of a free slot, so keys are often found again
+            final long key = random.nextInt(50000) - 10;
+            final long value = random.nextLong();
+            switch (random.nextInt(3)) {
+            case 0:
+                map.put(key, value);
+                expected.put(key, value);
+                break;
+            case 1:
+                final Long current = expected.get(key);
+                final long sum = (current == null ? 0 : current) + value;
+                Assert.assertEquals(map.addTo(key, value), sum);
+                expected.put(key, sum);
+                break;
+            default:
+                Assert.assertEquals(map.containsKey(key), expected.containsKey(key));
+                Assert.assertEquals(map.get(key, -1), expected.containsKey(key) ? expected.get(key) : -1);
+                break;
+            }
+        }
+        Assert.assertEquals(map.size(), expected.size());
+        Assert.assertTrue(expected.containsKey(0L));
+
+        final Map<Long, Long> entries = Maps.newHashMap();
+        for (final LongLongMap.Cursor cursor = map.cursor(); cursor.next();) {
+            Assert.assertNull(entries.put(cursor.key(), cursor.value()));
+        }
+        Assert.assertEquals(entries, expected);
+    }
+
+    @Test
+    public void growTest() {
+        final OffHeapLongLongMap map = new OffHeapLongLongMap(100);
+        final long initialMemory = map.getMemoryUsage();
+        for (long key = 1; key <= 100; key++) {
+            map.put(key << 40, key);
+        }
+        // the expected size is held without growing
+        Assert.assertEquals(map.getMemoryUsage(), initialMemory);
+
+        for (long key = 101; key <= 10000; key++) {
+            map.put(key << 40, key);
+        }
+        Assert.assertTrue(map.getMemoryUsage() > initialMemory);
+        Assert.assertEquals(map.size(), 10000);
+        for (long key = 1; key <= 10000; key++) {
+            Assert.assertEquals(map.get(key << 40, 0), key);
+        }
+    }
+
+    @Test
+    public void clearTest() {
+        final OffHeapLongLongMap map = new OffHeapLongLongMap();
+        map.put(0, 1);
+        map.put(-1, 2);
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertFalse(map.containsKey(0));
+        Assert.assertFalse(map.containsKey(-1));
+        Assert.assertFalse(map.cursor().next());
+    }
+
+    @Test
+    public void freeTest() {
+        final OffHeapLongLongMap map = new OffHeapLongLongMap();
+        for (long key = 1; key <= 1000; key++) {
+            map.put(key, key);
+        }
+        map.free();
+        Assert.assertEquals(map.getMemoryUsage(), 0);
+        // freeing again does nothing
+        map.free();
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void cursorBeforeFirstTest() {
+        new OffHeapLongLongMap().cursor().key();
+    }
+}
@@ -0,0 +1,79 @@
+package com.quora.challenge.command;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class CountServiceTest {
+
+    private static final String GRID_38_PATHS = "7 4 2 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 3 0 0 0 0 1 1";
+
+    private CountService service;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        service = new CountService(1, 4, 10);
+        service.start(0);
+    }
+
+    @AfterClass
+    public void teardown() {
+        service.close();
+    }
+
+    @Test
+    public void countTest() throws IOException {
+        final Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), service.getPort());
+        try {
+            final Writer out = new OutputStreamWriter(socket.getOutputStream(), "US-ASCII");
+            final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+
+            out.write("first " + GRID_38_PATHS + "\n");
+            out.flush();
+            final String[] first = readResponse(in, "first").split(" ");
+            Assert.assertEquals(first[1], "OK");
+            Assert.assertEquals(first[2], "38");
+
+            // the same grid, spaced differently, is answered from the cache
+            out.write("second  " + GRID_38_PATHS.replace(" ", "  ") + "\n");
+            out.flush();
+            final String[] second = readResponse(in, "second").split(" ");
+            Assert.assertEquals(second[1], "OK");
+            Assert.assertEquals(second[2], "38");
+            Assert.assertEquals(second[4], "cached");
+
+            out.write("third 2 2 2 3\n");
+            out.flush();
+            Assert.assertTrue(readResponse(in, "third").startsWith("third ERROR"));
+
+            out.write("QUIT\n");
+            out.flush();
+            Assert.assertNull(in.readLine());
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Reads response lines until the final response of the given request.
+     */
+    private static String readResponse(final BufferedReader in, final String id) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            Assert.assertTrue(line.startsWith(id + " "), line);
+            if (!line.startsWith(id + " PROGRESS")) {
+                return line;
+            }
+        }
+        throw new IOException("The service closed the connection");
+    }
+}
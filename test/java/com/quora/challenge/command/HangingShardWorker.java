@@ -0,0 +1,28 @@
+package com.quora.challenge.command;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A {@link ShardWorker} that hangs the first time it is started, for testing how a {@link ShardCoordinator} recovers
+ * from a worker that neither answers nor exits.
+ *
+ * @author mattt
+ */
+public class HangingShardWorker {
+
+    /**
+     * @param args
+     *            holds the path of a marker file; the worker hangs if it creates the file, and works otherwise.
+     * @throws IOException
+     *             if an error occurs while reading grid input or work units.
+     * @throws InterruptedException
+     *             if interrupted while hanging.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (new File(args[0]).createNewFile()) {
+            Thread.sleep(Long.MAX_VALUE);
+        }
+        ShardWorker.main(new String[0]);
+    }
+}
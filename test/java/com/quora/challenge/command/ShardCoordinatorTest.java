@@ -0,0 +1,39 @@
+package com.quora.challenge.command;
+
+import java.io.File;
+import java.math.BigInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ShardCoordinatorTest {
+
+    @Test
+    public void shardedCountTest() throws Exception {
+        final ShardCoordinator coordinator = new ShardCoordinator(2, 4, 3);
+        Assert.assertEquals(coordinator.countPaths("7 4 2 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 3 0 0 0 0 1 1"),
+                BigInteger.valueOf(38));
+    }
+
+    @Test
+    public void shardedNoPathCountTest() throws Exception {
+        final ShardCoordinator coordinator = new ShardCoordinator(2, 2, 3);
+        Assert.assertEquals(coordinator.countPaths("2 2 2 3 1 0"), BigInteger.ZERO);
+    }
+
+    @Test
+    public void hangingWorkerTest() throws Exception {
+        final File marker = File.createTempFile("hanging-worker", ".marker");
+        try {
+            Assert.assertTrue(marker.delete());
+            // the first worker hangs on its first unit, so it is killed and the unit retried on a new worker
+            final ShardCoordinator coordinator = new ShardCoordinator(1, 2, 3, 2000, HangingShardWorker.class, marker
+                    .getPath());
+            Assert.assertEquals(coordinator.countPaths("7 4 2 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 3 0 0 0 0 1 1"),
+                    BigInteger.valueOf(38));
+            Assert.assertTrue(marker.exists());
+        } finally {
+            marker.delete();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.quora.challenge.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.quora.challenge.TestUtils;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+import com.quora.challenge.graph.ham.HamiltonianPathCounterFactory;
+import com.quora.challenge.graph.ham.PathEnumeration;
+
+public class RoomPathWriterTest {
+
+    @Test
+    public void writeAndReadPathsTest() throws IOException {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths");
+        final File file = File.createTempFile("paths", ".bin");
+        file.deleteOnExit();
+
+        final Set<List<Room.RoomLocation>> written = Sets.newHashSet();
+        final PathEnumeration<Room> enumeration = HamiltonianPathCounterFactory.<Room> getInstance().enumeratePaths(
+                graph);
+        // a small buffer forces several flushes
+        final RoomPathWriter writer = new RoomPathWriter(file, enumeration.getVertices(), graph.getStart(), 1024);
+        while (enumeration.hasNext()) {
+            final int[] path = enumeration.next();
+            writer.write(path);
+
+            final List<Room.RoomLocation> locations = Lists.newArrayList();
+            for (final Room room : enumeration.toVertices(path)) {
+                locations.add(room.getLocation());
+            }
+            written.add(locations);
+        }
+        writer.close();
+        Assert.assertEquals(writer.getPathCount(), 1770);
+
+        final RoomPathReader reader = new RoomPathReader(file);
+        try {
+            Assert.assertEquals(reader.getPathCount(), 1770);
+            Assert.assertEquals(reader.getMoveCount(), 35);
+            Assert.assertEquals(reader.getStart(), graph.getStart().getLocation());
+
+            final Set<List<Room.RoomLocation>> read = Sets.newHashSet();
+            for (long i = 0; i < reader.getPathCount(); i++) {
+                read.add(reader.getPath(i));
+            }
+            Assert.assertEquals(read, written);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void nonAdjacentMoveTest() {
+        Move.codeOf(0, 0, 1, 1);
+    }
+}
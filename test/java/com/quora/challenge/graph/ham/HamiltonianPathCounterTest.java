@@ -1,14 +1,27 @@
 package com.quora.challenge.graph.ham;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.quora.challenge.PathStatistics;
 import com.quora.challenge.RoomGraphFactory;
+import com.quora.challenge.RoomGraphKeys;
 import com.quora.challenge.TestUtils;
+import com.quora.challenge.cache.BoundedResultCache;
+import com.quora.challenge.cache.CacheStats;
+import com.quora.challenge.cache.ResultCache;
 import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.AdjacencyList;
 import com.quora.challenge.graph.Graph;
 
 public class HamiltonianPathCounterTest {
@@ -69,4 +82,383 @@ public class HamiltonianPathCounterTest {
         Assert.assertEquals(stats.getPathCount(), 0);
     }
 
+    @Test
+    public void pathPrefixesPartitionCountTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("7-cols-4-rows-38-paths");
+        for (int steps = 0; steps <= 30; steps += 5) {
+            long count = 0;
+            for (final List<Room> prefix : pathCounter.findPathPrefixes(graph, steps)) {
+                Assert.assertEquals(prefix.get(0), graph.getStart());
+                count += pathCounter.countPaths(graph, prefix);
+            }
+            Assert.assertEquals(count, 38);
+        }
+    }
+
+    @Test
+    public void enumeratePathsTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("7-cols-4-rows-38-paths");
+        final PathEnumeration<Room> enumeration = pathCounter.enumeratePaths(graph);
+
+        final Set<List<Room>> paths = Sets.newHashSet();
+        while (enumeration.hasNext()) {
+            final List<Room> path = enumeration.toVertices(enumeration.next());
+            Assert.assertEquals(path.size(), graph.getGraph().vertexCount());
+            Assert.assertEquals(path.get(0), graph.getStart());
+            Assert.assertEquals(path.get(path.size() - 1), graph.getGoal());
+            Assert.assertEquals(Sets.newHashSet(path).size(), path.size());
+            for (int i = 1; i < path.size(); i++) {
+                Assert.assertTrue(graph.getGraph().containsEdge(path.get(i - 1), path.get(i)));
+            }
+            paths.add(path);
+        }
+        Assert.assertEquals(paths.size(), 38);
+    }
+
+    @Test
+    public void closeEnumerationTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths");
+        final PathEnumeration<Room> enumeration = pathCounter.enumeratePaths(graph);
+        Assert.assertTrue(enumeration.hasNext());
+        Assert.assertEquals(enumeration.next().length, graph.getGraph().vertexCount());
+        enumeration.close();
+        Assert.assertFalse(enumeration.hasNext());
+    }
+
+    @Test
+    public void searchCountersTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths");
+        final PathStatistics<Room> stats = pathCounter.findPaths(graph);
+
+        final SearchCounters counters = stats.getCounters();
+        Assert.assertEquals(counters.getPaths(), 1770);
+        Assert.assertEquals(counters.getExpansions(), stats.getDepth());
+        Assert.assertEquals(counters.getNodes(), counters.getExpansions() + counters.getPrunes()
+                + counters.getLeaves());
+        Assert.assertTrue(counters.getLeaves() >= counters.getPaths());
+
+        final SearchCounters merged = new SearchCounters();
+        for (final SearchCounters c : stats.getWorkerCounters()) {
+            merged.add(c);
+        }
+        Assert.assertEquals(merged.toString(), counters.toString());
+    }
+
+    @Test
+    public void nodeBudgetTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths");
+        final HamiltonianPathCounter<Room> counter = HamiltonianPathCounterFactory.getInstance();
+        final PathStatistics<Room> stats = counter.findPaths(graph, new SearchOptions.Builder().nodeBudget(100)
+                .build());
+
+        Assert.assertFalse(stats.isComplete());
+        Assert.assertTrue(stats.getExploredFraction() < 1.0);
+        Assert.assertTrue(stats.getPathCount() < 1770);
+        Assert.assertTrue(stats.getCounters().getNodes() < 1000);
+
+        // incomplete statistics aren't cached
+        Assert.assertEquals(counter.findPaths(graph).getPathCount(), 1770);
+        Assert.assertTrue(counter.findPaths(graph).isComplete());
+    }
+
+    @Test
+    public void cancellationTest() {
+        final Graph<Room> graph = quoraGrid();
+
+        final CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+        final PathStatistics<Room> stats = HamiltonianPathCounterFactory.<Room> getInstance().findPaths(graph,
+                new SearchOptions.Builder().cancellation(cancellation).build());
+
+        Assert.assertFalse(stats.isComplete());
+        Assert.assertTrue(stats.getExploredFraction() < 1.0);
+        Assert.assertTrue(stats.getPathCount() < 301716);
+    }
+
+    @Test
+    public void progressListenerTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths");
+        final List<SearchProgress> samples = Lists.newArrayList();
+        final PathStatistics<Room> stats = HamiltonianPathCounterFactory.<Room> getInstance().findPaths(graph,
+                new SearchOptions.Builder().progress(new ProgressListener() {
+                    @Override
+                    public void progress(final SearchProgress progress) {
+                        samples.add(progress);
+                    }
+                }, 1).build());
+
+        // the last sample is taken once the count has completed
+        Assert.assertFalse(samples.isEmpty());
+        final SearchProgress last = samples.get(samples.size() - 1);
+        Assert.assertEquals(last.getCompletedUnits(), last.getTotalUnits());
+        Assert.assertEquals(last.getPartialCount(), stats.getExactPathCount());
+        Assert.assertEquals(last.getNodes(), stats.getCounters().getNodes());
+        Assert.assertEquals(last.getExploredFraction(), 1.0);
+        Assert.assertEquals(last.getEstimatedTimeRemaining(), 0);
+    }
+
+    @Test
+    public void exactEstimateTest() {
+        // small enough to be counted while calibrating
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("7-cols-4-rows-38-paths");
+        final SearchEstimate estimate = pathCounter.estimateSearch(graph, 0);
+        Assert.assertTrue(estimate.isExact());
+        Assert.assertEquals(estimate.getPaths(), 38.0);
+        Assert.assertEquals(estimate.getPathsLow(), estimate.getPathsHigh());
+    }
+
+    @Test
+    public void probeEstimateTest() {
+        final SearchEstimate estimate = pathCounter.estimateSearch(quoraGrid(), 2000, new Random(42));
+
+        Assert.assertFalse(estimate.isExact());
+        Assert.assertEquals(estimate.getProbes(), 2000);
+        Assert.assertTrue(estimate.getPathsLow() <= estimate.getPaths());
+        Assert.assertTrue(estimate.getPaths() <= estimate.getPathsHigh());
+        Assert.assertTrue(estimate.getTimeLow() <= estimate.getTimeHigh());
+        // the seeded estimate is well within a factor of two of the 301716 paths
+        Assert.assertTrue(Math.abs(Math.log(estimate.getPaths() / 301716)) < Math.log(2), estimate.toString());
+    }
+
+    @Test
+    public void approximatePathsTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths");
+        final PathApproximation approximation = pathCounter.approximatePaths(graph, 0.02, 60000);
+
+        Assert.assertTrue(approximation.isConverged(), approximation.toString());
+        Assert.assertTrue(approximation.getRelativeError() <= 0.02);
+        Assert.assertTrue(approximation.getLow() <= approximation.getCount());
+        Assert.assertTrue(approximation.getCount() <= approximation.getHigh());
+        // ten standard errors off would be astronomically unlikely
+        Assert.assertTrue(Math.abs(approximation.getCount() - 1770) < 10 * approximation.getStandardError(),
+                approximation.toString());
+    }
+
+    @Test
+    public void approximateNoPathsTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-no-path");
+        final PathApproximation approximation = pathCounter.approximatePaths(graph, 0.02, 100);
+
+        // without a single path sampled, the relative error can't be reached
+        Assert.assertFalse(approximation.isConverged());
+        Assert.assertTrue(approximation.getSamples() > 0);
+        Assert.assertEquals(approximation.getCount(), 0.0);
+    }
+
+    @Test(timeOut = 60000)
+    public void approximateNoPathsUnboundedTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-no-path");
+        // without a deadline, sampling stops once paths are known to be too rare for the target error
+        final PathApproximation approximation = pathCounter.approximatePaths(graph, 0.1, Long.MAX_VALUE);
+
+        Assert.assertFalse(approximation.isConverged());
+        Assert.assertTrue(approximation.getSamples() >= 300, approximation.toString());
+        Assert.assertEquals(approximation.getCount(), 0.0);
+    }
+
+    @Test
+    public void coalescedCountTest() throws Exception {
+        final HamiltonianPathCounter<Room> counter = HamiltonianPathCounterFactory
+                .getInstance(RoomGraphKeys.CANONICAL);
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths");
+        // the same grid, mirrored left to right
+        final List<String> rooms = Lists.newArrayList();
+        for (int i = 0; i < 36; i++) {
+            rooms.add("0");
+        }
+        rooms.set(5, "2");
+        rooms.set(35, "3");
+        final Graph<Room> mirrored = RoomGraphFactory.generateRoomGraph(6, 6, rooms);
+
+        final List<PathStatistics<Room>> results = Collections.synchronizedList(Lists
+                .<PathStatistics<Room>> newArrayList());
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                results.add(counter.findPaths(mirrored));
+            }
+        };
+        thread.start();
+        results.add(counter.findPaths(graph));
+        thread.join();
+
+        // whichever count ran first, the other caller shared its statistics
+        Assert.assertEquals(results.size(), 2);
+        Assert.assertSame(results.get(0), results.get(1));
+        Assert.assertEquals(results.get(0).getPathCount(), 1770);
+    }
+
+    @Test(timeOut = 60000)
+    public void limitedCountSkipsFlightTest() throws Exception {
+        final HamiltonianPathCounter<Room> counter = HamiltonianPathCounterFactory
+                .getInstance(RoomGraphKeys.CANONICAL);
+        final Graph<Room> graph = quoraGrid();
+        final CancellationToken cancellation = new CancellationToken();
+        final CountDownLatch started = new CountDownLatch(1);
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                counter.findPaths(graph, new SearchOptions.Builder().cancellation(cancellation).progress(
+                        new ProgressListener() {
+                            @Override
+                            public void progress(final SearchProgress progress) {
+                                started.countDown();
+                            }
+                        }, 1).build());
+            }
+        };
+        thread.start();
+        try {
+            started.await();
+            // the unlimited count of the same grid is still in flight, and isn't waited for
+            Assert.assertTrue(counter.hasPath(graph));
+            Assert.assertTrue(thread.isAlive());
+        } finally {
+            cancellation.cancel();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void resultCacheTest() {
+        final ResultCache<Object, PathStatistics<Room>> cache =
+                new BoundedResultCache.Builder<Object, PathStatistics<Room>>().maximumSize(1).build();
+        final HamiltonianPathCounter<Room> counter = HamiltonianPathCounterFactory.getInstance(RoomGraphKeys.CANONICAL,
+                cache);
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("7-cols-4-rows-38-paths");
+        final Graph<Room> other = TestUtils.getRoomGraphFromFixture("quora-example-path-2-paths");
+
+        final PathStatistics<Room> stats = counter.findPaths(graph);
+        Assert.assertSame(counter.findPaths(graph), stats);
+        counter.findPaths(other);
+        Assert.assertNotSame(counter.findPaths(graph), stats);
+
+        final CacheStats cacheStats = counter.getCacheStats();
+        Assert.assertEquals(cacheStats.getHits(), 1);
+        Assert.assertEquals(cacheStats.getMisses(), 3);
+        Assert.assertEquals(cacheStats.getEvictions(), 2);
+    }
+
+    @Test
+    public void countPathsByEndTest() {
+        final List<String> rooms = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            rooms.add("0");
+        }
+        rooms.set(0, "2");
+        rooms.set(19, "3");
+        rooms.set(1, "1");
+        final Map<Room, Long> counts = pathCounter.countPathsByEnd(RoomGraphFactory.generateRoomGraph(4, 5, rooms));
+        Assert.assertEquals(counts.size(), 18);
+
+        // every end room matches a count of the paths to that room alone
+        rooms.set(19, "0");
+        long total = 0;
+        for (final Map.Entry<Room, Long> entry : counts.entrySet()) {
+            final int index = entry.getKey().getLocation().getX() * 5 + entry.getKey().getLocation().getY();
+            rooms.set(index, "3");
+            final Graph<Room> graph = RoomGraphFactory.generateRoomGraph(4, 5, rooms);
+            Assert.assertEquals(entry.getValue().longValue(), pathCounter.findPaths(graph).getPathCount());
+            rooms.set(index, "0");
+            total += entry.getValue();
+        }
+        Assert.assertTrue(total > 0);
+    }
+
+    @Test
+    public void countPathsByPairTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("7-cols-4-rows-38-paths");
+        final PathCountMatrix<Room> matrix = pathCounter.countPathsByPair(graph);
+        Assert.assertEquals(matrix.getCount(graph.getStart(), graph.getGoal()), 38);
+
+        // every row matches a count of the paths from that room alone
+        final List<Room> rooms = matrix.getVertices();
+        for (int i = 0; i < rooms.size(); i++) {
+            final Map<Room, Long> counts = pathCounter.countPathsByEnd(new Graph<Room>(rooms.get(i), null, graph
+                    .getGraph()));
+            for (int j = 0; j < rooms.size(); j++) {
+                Assert.assertEquals(matrix.getCount(i, j), i == j ? 0 : counts.get(rooms.get(j)).longValue());
+                Assert.assertEquals(matrix.getCount(i, j), matrix.getCount(j, i));
+            }
+        }
+    }
+
+    @Test
+    public void countPathsByPairNonBipartiteTest() {
+        // a square with one diagonal
+        final AdjacencyList<Integer> al = new AdjacencyList<Integer>();
+        final int[][] edges = { { 0, 1 }, { 1, 2 }, { 2, 3 }, { 3, 0 }, { 0, 2 } };
+        for (final int[] edge : edges) {
+            al.addEdge(edge[0], edge[1]);
+            al.addEdge(edge[1], edge[0]);
+        }
+        final HamiltonianPathCounter<Integer> counter = HamiltonianPathCounterFactory.getInstance();
+        final PathCountMatrix<Integer> matrix = counter.countPathsByPair(new Graph<Integer>(0, 2, al));
+
+        Assert.assertEquals(matrix.getCount(0, 2), 0);
+        Assert.assertEquals(matrix.getCount(1, 3), 2);
+        Assert.assertEquals(matrix.getCount(0, 1), 1);
+        Assert.assertEquals(matrix.getCount(3, 2), 1);
+        Assert.assertEquals(matrix.getTotal(), 6);
+    }
+
+    @Test
+    public void countCyclesTest() {
+        Assert.assertEquals(pathCounter.countCycles(fullGrid(4, 4)).getPathCount(), 6);
+        Assert.assertEquals(pathCounter.countCycles(fullGrid(4, 6)).getPathCount(), 37);
+        Assert.assertEquals(pathCounter.countCycles(fullGrid(6, 6)).getPathCount(), 1072);
+        Assert.assertEquals(pathCounter.countCycles(fullGrid(3, 3)).getPathCount(), 0);
+        Assert.assertEquals(pathCounter.countCycles(fullGrid(1, 2)).getPathCount(), 0);
+    }
+
+    /**
+     * @return a grid of owned rooms, with the start room in the first corner and the goal room in the last.
+     */
+    private static Graph<Room> fullGrid(final int rows, final int cols) {
+        final List<String> rooms = Lists.newArrayList();
+        for (int i = 0; i < rows * cols; i++) {
+            rooms.add("0");
+        }
+        rooms.set(0, "2");
+        rooms.set(rows * cols - 1, "3");
+        return RoomGraphFactory.generateRoomGraph(rows, cols, rooms);
+    }
+
+    @Test
+    public void pathLimitTest() {
+        final HamiltonianPathCounter<Room> counter = HamiltonianPathCounterFactory.getInstance();
+        final PathStatistics<Room> stats = counter.findPaths(quoraGrid(), new SearchOptions.Builder().pathLimit(1000)
+                .build());
+        Assert.assertFalse(stats.isComplete());
+        Assert.assertTrue(stats.getPathCount() >= 1000);
+        Assert.assertTrue(stats.getPathCount() < 301716);
+
+        // a limit above the number of paths doesn't stop the count
+        final PathStatistics<Room> exact = counter.findPaths(TestUtils.getRoomGraphFromFixture(
+                "7-cols-4-rows-38-paths"), new SearchOptions.Builder().pathLimit(100).build());
+        Assert.assertTrue(exact.isComplete());
+        Assert.assertEquals(exact.getPathCount(), 38);
+    }
+
+    @Test
+    public void hasPathTest() {
+        final HamiltonianPathCounter<Room> counter = HamiltonianPathCounterFactory.getInstance();
+        Assert.assertTrue(counter.hasPath(quoraGrid()));
+        Assert.assertFalse(counter.hasPath(TestUtils.getRoomGraphFromFixture("6-cols-6-rows-no-path")));
+    }
+
+    /**
+     * @return the 7 x 8 grid of the quora challenge, which has 301716 paths.
+     */
+    private static Graph<Room> quoraGrid() {
+        final List<String> rooms = Lists.newArrayList();
+        for (int i = 0; i < 56; i++) {
+            rooms.add("0");
+        }
+        rooms.set(0, "2");
+        rooms.set(49, "3");
+        rooms.set(54, "1");
+        rooms.set(55, "1");
+        return RoomGraphFactory.generateRoomGraph(8, 7, rooms);
+    }
 }
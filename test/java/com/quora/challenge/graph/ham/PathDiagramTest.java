@@ -0,0 +1,114 @@
+package com.quora.challenge.graph.ham;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.quora.challenge.RoomGraphFactory;
+import com.quora.challenge.TestUtils;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+
+public class PathDiagramTest {
+
+    @Test
+    public void fixtureCountTest() {
+        Assert.assertEquals(PathDiagram.build(TestUtils.getRoomGraphFromFixture("quora-example-path-2-paths")).count(),
+                BigInteger.valueOf(2));
+        Assert.assertEquals(PathDiagram.build(TestUtils.getRoomGraphFromFixture("7-cols-4-rows-38-paths")).count(),
+                BigInteger.valueOf(38));
+        Assert.assertEquals(PathDiagram.build(TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths")).count(),
+                BigInteger.valueOf(1770));
+        Assert.assertEquals(PathDiagram.build(TestUtils.getRoomGraphFromFixture("6-cols-6-rows-no-path")).count(),
+                BigInteger.ZERO);
+        Assert.assertEquals(PathDiagram.build(TestUtils.getRoomGraphFromFixture("adjacent-start-goal-1-path"))
+                .count(), BigInteger.ONE);
+    }
+
+    @Test
+    public void quoraGridTest() {
+        final PathDiagram<Room> diagram = PathDiagram.build(quoraGrid());
+        Assert.assertEquals(diagram.count(), BigInteger.valueOf(301716));
+        // the diagram is far smaller than the paths it holds
+        Assert.assertTrue(diagram.getNodeCount() < 301716, diagram.toString());
+        Assert.assertTrue(diagram.getNodeCount() <= diagram.getBuiltNodeCount());
+        Assert.assertEquals(diagram.getMemoryUsage(), 12L * diagram.getNodeCount());
+    }
+
+    @Test
+    public void enumerationTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("7-cols-4-rows-38-paths");
+        final Set<List<Room>> paths = Sets.newHashSet();
+        for (final List<Room> path : PathDiagram.build(graph)) {
+            assertPath(graph, path);
+            paths.add(path);
+        }
+        Assert.assertEquals(paths.size(), 38);
+    }
+
+    @Test
+    public void forbidTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths");
+        final PathDiagram<Room> diagram = PathDiagram.build(graph);
+        final Room start = graph.getStart();
+        final Room next = graph.getGraph().getVerticesFromSource(start).iterator().next();
+
+        final PathDiagram<Room> forbidden = diagram.forbid(next, start);
+        int expected = 0;
+        for (final List<Room> path : diagram) {
+            expected += path.get(1).equals(next) ? 0 : 1;
+        }
+        Assert.assertEquals(forbidden.count(), BigInteger.valueOf(expected));
+        Assert.assertTrue(expected > 0 && expected < 1770);
+        for (final List<Room> path : forbidden) {
+            Assert.assertFalse(path.get(1).equals(next));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void forbidNonEdgeTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("7-cols-4-rows-38-paths");
+        PathDiagram.build(graph).forbid(graph.getStart(), graph.getGoal());
+    }
+
+    @Test
+    public void singleRoomTest() {
+        final Graph<Room> graph = RoomGraphFactory.generateRoomGraph(1, 2, Lists.newArrayList("2", "3"));
+        final PathDiagram<Room> diagram = PathDiagram.build(graph);
+        Assert.assertEquals(diagram.count(), BigInteger.ONE);
+        Assert.assertEquals(diagram.iterator().next(), Lists.newArrayList(graph.getStart(), graph.getGoal()));
+    }
+
+    /**
+     * Asserts that the given path is a hamiltonian path of the graph from its start to its goal.
+     */
+    private static void assertPath(final Graph<Room> graph, final List<Room> path) {
+        Assert.assertEquals(path.size(), graph.getGraph().getVerticies().size());
+        Assert.assertEquals(Sets.newHashSet(path).size(), path.size());
+        Assert.assertEquals(path.get(0), graph.getStart());
+        Assert.assertEquals(path.get(path.size() - 1), graph.getGoal());
+        for (int i = 1; i < path.size(); i++) {
+            Assert.assertTrue(graph.getGraph().containsEdge(path.get(i - 1), path.get(i)));
+        }
+    }
+
+    /**
+     * @return the 7 x 8 grid of the quora challenge, which has 301716 paths.
+     */
+    private static Graph<Room> quoraGrid() {
+        final List<String> rooms = Lists.newArrayList();
+        for (int i = 0; i < 56; i++) {
+            rooms.add("0");
+        }
+        rooms.set(0, "2");
+        rooms.set(49, "3");
+        rooms.set(54, "1");
+        rooms.set(55, "1");
+        return RoomGraphFactory.generateRoomGraph(8, 7, rooms);
+    }
+}
@@ -0,0 +1,105 @@
+package com.quora.challenge.graph.ham;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.quora.challenge.TestUtils;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.IndexedGraph;
+import com.quora.challenge.graph.ham.pruning.BiConnectedPruningStrategy;
+
+public class PathSearchTest {
+
+    private static IndexedGraph<Room> getGraph() {
+        return IndexedGraph.create(TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths"));
+    }
+
+    private static PathSearch<Room> newSearch(final IndexedGraph<Room> graph, final SearchCounters counters) {
+        final PathSearch<Room> search = new PathSearch<Room>(graph, new BiConnectedPruningStrategy<Room>(), counters);
+        search.start(new int[] { graph.getStart() }, 1);
+        return search;
+    }
+
+    @Test
+    public void suspendAndResumeTest() {
+        final IndexedGraph<Room> graph = getGraph();
+        final SearchCounters counters = new SearchCounters();
+        final PathSearch<Room> search = newSearch(graph, counters);
+
+        int runs = 1;
+        while (!search.run(100)) {
+            runs++;
+        }
+        Assert.assertTrue(runs > 1);
+        Assert.assertEquals(counters.getPaths(), 1770);
+    }
+
+    @Test
+    public void warnsdorffOrderTest() {
+        final IndexedGraph<Room> graph = getGraph();
+        final SearchCounters counters = new SearchCounters();
+        final PathSearch<Room> search = new PathSearch<Room>(graph, new BiConnectedPruningStrategy<Room>(), counters);
+        search.setWarnsdorffOrder(true);
+        search.start(new int[] { graph.getStart() }, 1);
+
+        // suspending and splitting explore the reordered neighbors like any others
+        Assert.assertFalse(search.run(1000));
+        final List<int[]> prefixes = search.split();
+        search.run(Long.MAX_VALUE);
+        for (final int[] prefix : prefixes) {
+            search.start(prefix, prefix.length);
+            search.run(Long.MAX_VALUE);
+        }
+        Assert.assertEquals(counters.getPaths(), 1770);
+    }
+
+    @Test
+    public void stopTokenTest() {
+        final IndexedGraph<Room> graph = getGraph();
+        final SearchCounters counters = new SearchCounters();
+        final PathSearch<Room> search = newSearch(graph, counters);
+        final CancellationToken stopToken = new CancellationToken();
+        search.setStopToken(stopToken);
+        stopToken.cancel();
+        Assert.assertFalse(search.run(Long.MAX_VALUE));
+        Assert.assertEquals(counters.getPaths(), 0);
+    }
+
+    @Test
+    public void splitTest() {
+        final IndexedGraph<Room> graph = getGraph();
+        final SearchCounters counters = new SearchCounters();
+        final PathSearch<Room> search = newSearch(graph, counters);
+        Assert.assertFalse(search.run(1000));
+
+        // the split prefixes and the remainder of the search partition the unexplored search space
+        final List<int[]> prefixes = search.split();
+        Assert.assertFalse(prefixes.isEmpty());
+        search.run(Long.MAX_VALUE);
+
+        final PathSearch<Room> splitSearch = new PathSearch<Room>(graph, new BiConnectedPruningStrategy<Room>(),
+                counters);
+        for (final int[] prefix : prefixes) {
+            splitSearch.start(prefix, prefix.length);
+            splitSearch.run(Long.MAX_VALUE);
+        }
+        Assert.assertEquals(counters.getPaths(), 1770);
+    }
+
+    @Test
+    public void restoreFramesTest() {
+        final IndexedGraph<Room> graph = getGraph();
+        final SearchCounters counters = new SearchCounters();
+        final PathSearch<Room> search = newSearch(graph, counters);
+        Assert.assertFalse(search.run(5000));
+        final int[][] frames = search.getFrames();
+
+        final PathSearch<Room> restored = new PathSearch<Room>(graph, new BiConnectedPruningStrategy<Room>(),
+                counters);
+        restored.restore(frames[0], frames[1], 1);
+        restored.run(Long.MAX_VALUE);
+        Assert.assertEquals(counters.getPaths(), 1770);
+    }
+}
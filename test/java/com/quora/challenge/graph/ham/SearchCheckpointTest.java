@@ -0,0 +1,97 @@
+package com.quora.challenge.graph.ham;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+import com.quora.challenge.PathStatistics;
+import com.quora.challenge.TestUtils;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+
+public class SearchCheckpointTest {
+
+    @Test
+    public void completedCheckpointTest() throws IOException {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths");
+        final File file = checkpointFile();
+
+        final PathStatistics<Room> stats = HamiltonianPathCounterFactory.<Room> getInstance().findPaths(graph,
+                new SearchOptions.Builder().checkpoint(file).build());
+        Assert.assertEquals(stats.getPathCount(), 1770);
+
+        // the final checkpoint records the completed count
+        final SearchCheckpoint checkpoint = SearchCheckpoint.read(file);
+        Assert.assertTrue(checkpoint.getUnitCount() > 1);
+        Assert.assertEquals(checkpoint.getCompletedUnitCount(), checkpoint.getUnitCount());
+        Assert.assertEquals(checkpoint.getPartialCount(), BigInteger.valueOf(1770));
+    }
+
+    @Test
+    public void resumeTest() throws IOException {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths");
+        final File file = checkpointFile();
+        HamiltonianPathCounterFactory.<Room> getInstance().findPaths(graph,
+                new SearchOptions.Builder().checkpoint(file).build());
+
+        // mark every other unit as pending, as if the count had been interrupted
+        final List<String> lines = Lists.newArrayList();
+        long pendingPaths = 0;
+        final BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+            lines.add(in.readLine());
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (lines.size() % 2 == 0) {
+                    pendingPaths += Long.parseLong(line.substring(0, line.indexOf(' ')));
+                    line = "-" + line.substring(line.indexOf(' '));
+                }
+                lines.add(line);
+            }
+        } finally {
+            in.close();
+        }
+        final FileWriter out = new FileWriter(file);
+        try {
+            for (final String line : lines) {
+                out.write(line + "\n");
+            }
+        } finally {
+            out.close();
+        }
+
+        final SearchCheckpoint checkpoint = SearchCheckpoint.read(file);
+        Assert.assertEquals(checkpoint.getPartialCount(), BigInteger.valueOf(1770 - pendingPaths));
+
+        final PathStatistics<Room> stats = HamiltonianPathCounterFactory.<Room> getInstance().findPaths(graph,
+                new SearchOptions.Builder().resumeFrom(checkpoint).build());
+        Assert.assertEquals(stats.getPathCount(), 1770);
+        // only the pending units were searched
+        Assert.assertEquals(stats.getCounters().getPaths(), pendingPaths);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mismatchedGraphTest() throws IOException {
+        final File file = checkpointFile();
+        HamiltonianPathCounterFactory.<Room> getInstance().findPaths(
+                TestUtils.getRoomGraphFromFixture("7-cols-4-rows-38-paths"),
+                new SearchOptions.Builder().checkpoint(file).build());
+
+        HamiltonianPathCounterFactory.<Room> getInstance().findPaths(
+                TestUtils.getRoomGraphFromFixture("6-cols-6-rows-1770-paths"),
+                new SearchOptions.Builder().resumeFrom(SearchCheckpoint.read(file)).build());
+    }
+
+    private static File checkpointFile() throws IOException {
+        final File file = File.createTempFile("checkpoint", ".txt");
+        file.deleteOnExit();
+        return file;
+    }
+}
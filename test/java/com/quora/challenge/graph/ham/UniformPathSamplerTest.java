@@ -0,0 +1,68 @@
+package com.quora.challenge.graph.ham;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.quora.challenge.RoomGraphFactory;
+import com.quora.challenge.TestUtils;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.Graph;
+
+public class UniformPathSamplerTest {
+
+    @Test
+    public void uniformTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("7-cols-4-rows-38-paths");
+        final UniformPathSampler<Room> sampler = new UniformPathSampler<Room>(PathDiagram.build(graph), 7);
+        Assert.assertEquals(sampler.getPathCount(), BigInteger.valueOf(38));
+
+        final int perPath = 500;
+        final Map<List<Room>, Integer> frequencies = Maps.newHashMap();
+        for (int i = 0; i < 38 * perPath; i++) {
+            final List<Room> path = sampler.next();
+            Assert.assertEquals(path.get(0), graph.getStart());
+            Assert.assertEquals(path.get(path.size() - 1), graph.getGoal());
+            final Integer frequency = frequencies.get(path);
+            frequencies.put(path, frequency == null ? 1 : frequency + 1);
+        }
+
+        // every path is drawn, and the chi-squared statistic is well below its 99.9th percentile (about 70 for 37
+        // degrees of freedom)
+        Assert.assertEquals(frequencies.size(), 38);
+        double chiSquared = 0;
+        for (final int frequency : frequencies.values()) {
+            chiSquared += (frequency - perPath) * (double) (frequency - perPath) / perPath;
+        }
+        Assert.assertTrue(chiSquared < 70, "chi-squared " + chiSquared);
+    }
+
+    @Test
+    public void seedTest() {
+        final PathDiagram<Room> diagram = PathDiagram.build(TestUtils
+                .getRoomGraphFromFixture("6-cols-6-rows-1770-paths"));
+        final UniformPathSampler<Room> first = new UniformPathSampler<Room>(diagram, 42);
+        final UniformPathSampler<Room> second = new UniformPathSampler<Room>(diagram, 42);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(first.next(), second.next());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void noPathTest() {
+        final Graph<Room> graph = TestUtils.getRoomGraphFromFixture("6-cols-6-rows-no-path");
+        new UniformPathSampler<Room>(PathDiagram.build(graph), 0).next();
+    }
+
+    @Test
+    public void singlePathTest() {
+        final Graph<Room> graph = RoomGraphFactory.generateRoomGraph(1, 2, Lists.newArrayList("2", "3"));
+        final UniformPathSampler<Room> sampler = new UniformPathSampler<Room>(PathDiagram.build(graph), 0);
+        Assert.assertEquals(sampler.next(), Lists.newArrayList(graph.getStart(), graph.getGoal()));
+    }
+}
@@ -8,6 +8,8 @@ import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
 import com.quora.challenge.graph.AdjacencyList;
+import com.quora.challenge.graph.Graph;
+import com.quora.challenge.graph.IndexedGraph;
 
 public class BiConnectedPruningStrategyTest {
 
@@ -60,4 +62,40 @@ public class BiConnectedPruningStrategyTest {
         Set<Integer> currentPath = Collections.emptySet();
         Assert.assertTrue(strategy.isBiConnected(al, 0, currentPath, 4));
     }
+
+    @Test
+    public void indexedBiConnectedSimpleGraphTest() {
+        AdjacencyList<Integer> al = new AdjacencyList<Integer>();
+
+        al.addEdge(0, 1);
+        al.addEdge(0, 2);
+
+        al.addEdge(1, 0);
+        al.addEdge(1, 3);
+
+        al.addEdge(2, 0);
+        al.addEdge(2, 3);
+
+        al.addEdge(3, 4);
+        al.addEdge(4, 3);
+
+        IndexedGraph<Integer> graph = IndexedGraph.create(new Graph<Integer>(0, 4, al));
+        BiConnectedPruningStrategy.Workspace workspace = new BiConnectedPruningStrategy.Workspace(5);
+        Assert.assertFalse(strategy.isBiConnected(graph, 0, new boolean[5], 5, 4, workspace));
+
+        al.addEdge(4, 2);
+        al.addEdge(2, 4);
+
+        graph = IndexedGraph.create(new Graph<Integer>(0, 4, al));
+        Assert.assertTrue(strategy.isBiConnected(graph, 0, new boolean[5], 5, 4, workspace));
+
+        boolean[] path = new boolean[5];
+        path[1] = true;
+        Assert.assertTrue(strategy.isBiConnected(graph, 0, path, 4, 4, workspace));
+
+        // vertex 3 can't be reached once 2 and 4 are on the path as well
+        path[2] = true;
+        path[4] = true;
+        Assert.assertFalse(strategy.isBiConnected(graph, 0, path, 2, 4, workspace));
+    }
 }
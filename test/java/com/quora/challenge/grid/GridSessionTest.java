@@ -0,0 +1,189 @@
+package com.quora.challenge.grid;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.quora.challenge.RoomGraphFactory;
+import com.quora.challenge.TestUtils;
+import com.quora.challenge.command.InputGrid;
+import com.quora.challenge.command.InputGridUtil;
+import com.quora.challenge.domain.Room;
+import com.quora.challenge.graph.ham.HamiltonianPathCounter;
+import com.quora.challenge.graph.ham.HamiltonianPathCounterFactory;
+
+public class GridSessionTest {
+
+    private static final String QUORA_GRID = "7 8 2 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 "
+            + "0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 3 0 0 0 0 1 1";
+
+    @Test
+    public void fixturesTest() throws IOException {
+        Assert.assertEquals(session("7-cols-4-rows-38-paths").countPaths(), 38);
+        Assert.assertEquals(session("6-cols-6-rows-1770-paths").countPaths(), 1770);
+        Assert.assertEquals(session("quora-example-path-2-paths").countPaths(), 2);
+        Assert.assertEquals(session("adjacent-start-goal-1-path").countPaths(), 1);
+        Assert.assertEquals(session("adjacent-start-goal-no-path").countPaths(), 0);
+        Assert.assertEquals(session("6-cols-6-rows-no-path").countPaths(), 0);
+    }
+
+    @Test
+    public void quoraGridTest() {
+        Assert.assertEquals(new GridSession(InputGridUtil.asInputGrid(QUORA_GRID)).countPaths(), 301716);
+    }
+
+    @Test
+    public void incrementalTest() {
+        final HamiltonianPathCounter<Room> pathCounter = HamiltonianPathCounterFactory.getInstance();
+        final GridSession session = new GridSession(InputGridUtil.asInputGrid(QUORA_GRID));
+        session.countPaths();
+
+        // toggle rooms near the end of the sweep (row by row, as the grid is higher than it is wide), and compare with
+        // a search of the edited grid
+        for (final int[][] cells : new int[][][] { { { 7, 3 } }, { { 6, 5 } }, { { 7, 3 }, { 6, 1 } }, { { 5, 6 } } }) {
+            for (final int[] cell : cells) {
+                session.toggle(cell[0], cell[1]);
+                Assert.assertTrue(session.getValidBoundaries() >= cell[0]);
+            }
+
+            final InputGrid grid = session.toInputGrid();
+            Assert.assertEquals(session.countPaths(), pathCounter.findPaths(
+                    RoomGraphFactory.generateRoomGraph(grid)).getPathCount(), session.toString());
+            Assert.assertEquals(session.getValidBoundaries(), grid.getRows() + 1);
+        }
+    }
+
+    @Test
+    public void cyclesTest() throws IOException {
+        Assert.assertEquals(new GridSession(InputGridUtil.asInputGrid(fullGrid(4, 4))).countCycles(), 6);
+        Assert.assertEquals(new GridSession(InputGridUtil.asInputGrid(fullGrid(6, 4))).countCycles(), 37);
+        Assert.assertEquals(new GridSession(InputGridUtil.asInputGrid(fullGrid(6, 6))).countCycles(), 1072);
+        Assert.assertEquals(new GridSession(InputGridUtil.asInputGrid(fullGrid(3, 3))).countCycles(), 0);
+
+        // the start and goal rooms are on a cycle like any other room
+        final HamiltonianPathCounter<Room> pathCounter = HamiltonianPathCounterFactory.getInstance();
+        final GridSession session = session("6-cols-6-rows-1770-paths");
+        final InputGrid grid = session.toInputGrid();
+        Assert.assertEquals(session.countCycles(), pathCounter.countCycles(RoomGraphFactory.generateRoomGraph(grid))
+                .getPathCount());
+
+        // paths and cycles are recounted apart after an edit
+        session.toggle(5, 5);
+        Assert.assertEquals(session.countCycles(), pathCounter.countCycles(
+                RoomGraphFactory.generateRoomGraph(session.toInputGrid())).getPathCount());
+        Assert.assertEquals(session.countPaths(), pathCounter.findPaths(
+                RoomGraphFactory.generateRoomGraph(session.toInputGrid())).getPathCount());
+    }
+
+    @Test
+    public void parallelTest() throws IOException {
+        // every cell is swept on several threads, so single slices and sharded tables are both expanded in parallel
+        Assert.assertEquals(new GridSession(InputGridUtil.asInputGrid(QUORA_GRID), 3, 1).countPaths(), 301716);
+        Assert.assertEquals(new GridSession(InputGridUtil.asInputGrid(fullGrid(6, 6)), 4, 1).countCycles(), 1072);
+
+        // a grid wide enough to reach the default threshold, from one corner to the next
+        final GridSession sequential = new GridSession(InputGridUtil.asInputGrid(fullGrid(10, 10)));
+        final GridSession parallel = new GridSession(InputGridUtil.asInputGrid(fullGrid(10, 10)), 4);
+        for (final GridSession session : new GridSession[] { sequential, parallel }) {
+            session.setType(0, 0, Room.Type.START);
+            session.setType(0, 9, Room.Type.GOAL);
+        }
+        Assert.assertEquals(parallel.countPaths(), sequential.countPaths());
+        Assert.assertTrue(sequential.countPaths() > 0);
+    }
+
+    @Test
+    public void exactTest() {
+        final GridSession session = new GridSession(InputGridUtil.asInputGrid(QUORA_GRID));
+        Assert.assertEquals(session.countPathsExactly(), BigInteger.valueOf(301716));
+        // the lanes are recounted after a change, as the count is
+        session.toggle(7, 3);
+        Assert.assertEquals(session.countPathsExactly(), BigInteger.valueOf(session.countPaths()));
+
+        // the cycles of a 4 x n grid follow a linear recurrence, and overflow a long by n = 60
+        final BigInteger[] expected = new BigInteger[61];
+        expected[2] = BigInteger.ONE;
+        expected[3] = BigInteger.valueOf(2);
+        expected[4] = BigInteger.valueOf(6);
+        expected[5] = BigInteger.valueOf(14);
+        for (int n = 6; n <= 60; n++) {
+            expected[n] = expected[n - 1].add(expected[n - 2]).subtract(expected[n - 3]).shiftLeft(1).add(
+                    expected[n - 4]);
+        }
+        final GridSession wide = new GridSession(InputGridUtil.asInputGrid(fullGrid(60, 4)));
+        Assert.assertTrue(wide.getLaneCount() > 1);
+        Assert.assertEquals(wide.countCyclesExactly(), expected[60]);
+        try {
+            wide.countCycles();
+            Assert.fail();
+        } catch (ArithmeticException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void invalidModulusTest() {
+        for (final long modulus : new long[] { -1, 1, 1L << 62 }) {
+            try {
+                new FrontierCounter(4, false, 1, FrontierCounter.DEFAULT_PARALLEL_THRESHOLD, modulus);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void freeTest() throws JMException {
+        final long before = directMemoryUsed();
+        final GridSession session = new GridSession(InputGridUtil.asInputGrid(QUORA_GRID));
+        Assert.assertEquals(session.countPaths(), 301716);
+        Assert.assertEquals(session.countPathsExactly(), BigInteger.valueOf(301716));
+        Assert.assertTrue(directMemoryUsed() > before);
+
+        // other tests may leave buffers for the garbage collector to free meanwhile, but none are added
+        session.free();
+        Assert.assertTrue(directMemoryUsed() <= before);
+
+        // a freed session counts again from scratch
+        Assert.assertEquals(session.countPaths(), 301716);
+        session.free();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void toggleStartTest() {
+        new GridSession(InputGridUtil.asInputGrid(QUORA_GRID)).toggle(0, 0);
+    }
+
+    /**
+     * @return a grid of owned rooms, in the form of the input.
+     */
+    private static String fullGrid(final int cols, final int rows) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(cols).append(' ').append(rows);
+        for (int i = 0; i < rows * cols; i++) {
+            sb.append(" 0");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the memory held by direct buffers, in bytes.
+     */
+    private static long directMemoryUsed() throws JMException {
+        return (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(
+                new ObjectName("java.nio:type=BufferPool,name=direct"), "MemoryUsed");
+    }
+
+    private static GridSession session(final String fixture) throws IOException {
+        final InputStream is = GridSessionTest.class.getResourceAsStream("/fixtures/" + fixture);
+        return new GridSession(InputGridUtil.asInputGrid(TestUtils.convertStreamToString(is)));
+    }
+}
@@ -0,0 +1,34 @@
+package com.quora.challenge.grid;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ModuliTest {
+
+    @Test
+    public void moduliTest() {
+        for (int i = 0; i < 8; i++) {
+            final long modulus = Moduli.get(i);
+            Assert.assertTrue(BigInteger.valueOf(modulus).isProbablePrime(100));
+            Assert.assertTrue(modulus < 1L << 62);
+            Assert.assertTrue(i == 0 || modulus < Moduli.get(i - 1));
+        }
+        Assert.assertEquals(Moduli.get(0), (1L << 62) - 57);
+    }
+
+    @Test
+    public void reconstructTest() {
+        final Random random = new Random(3);
+        for (int bits = 1; bits <= 600; bits += 37) {
+            final BigInteger count = new BigInteger(bits, random);
+            final long[] residues = new long[Moduli.count(bits)];
+            for (int i = 0; i < residues.length; i++) {
+                residues[i] = count.mod(BigInteger.valueOf(Moduli.get(i))).longValue();
+            }
+            Assert.assertEquals(Moduli.reconstruct(residues), count);
+        }
+    }
+}